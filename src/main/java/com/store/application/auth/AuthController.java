@@ -2,6 +2,7 @@ package com.store.application.auth;
 
 import com.store.application.exceptions.RoleNotFoundException;
 import com.store.application.exceptions.UserAlreadyExistsException;
+import com.store.application.security.AuthAttemptLimiter;
 import com.store.application.user.UserDTO;
 import com.store.application.user.UserService;
 import com.store.application.utils.jwt.JwtTokenUtil;
@@ -11,6 +12,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -23,7 +25,6 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.bind.annotation.*;
 
-import javax.servlet.http.HttpServletRequest;
 
 @RequestMapping("/auth")
 @RestController
@@ -35,6 +36,7 @@ public class AuthController {
     private final JwtTokenUtil jwtTokenUtil;
     private final UserService userService;
     private final UserDetailsService userDetailsService;
+    private final AuthAttemptLimiter authAttemptLimiter;
 
     // Login endpoint
     @Operation(summary = "Login user", tags = { "auth", "post" })
@@ -43,10 +45,12 @@ public class AuthController {
                     description = "Successfully logged in",
                     content = {@Content(mediaType = "application/json", schema = @Schema(implementation = AuthResponse.class))}
             ),
-            @ApiResponse(responseCode = "401", description = "Unauthorized login")
+            @ApiResponse(responseCode = "401", description = "Unauthorized login"),
+            @ApiResponse(responseCode = "429", description = "Too many login attempts")
     })
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody AuthRequest authRequest) {
+    public ResponseEntity<?> login(@RequestBody AuthRequest authRequest, HttpServletRequest request) {
+        authAttemptLimiter.acquire(request.getRemoteAddr(), authRequest.getEmail());
         try {
             // Authenticate the user
             Authentication authentication = authenticationManager.authenticate(
@@ -57,6 +61,8 @@ public class AuthController {
             UserDetails userDetails = (UserDetails) authentication.getPrincipal();
             String token = jwtTokenUtil.generateToken(userDetails);
 
+            // Only failed logins count against the budgets
+            authAttemptLimiter.refund(request.getRemoteAddr(), authRequest.getEmail());
             return ResponseEntity.ok(new AuthResponse(token));
         } catch (BadCredentialsException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid Credentials");
@@ -70,24 +76,21 @@ public class AuthController {
                     content = {@Content(mediaType = "application/json", schema = @Schema(implementation = AuthResponse.class))}
             ),
             @ApiResponse(responseCode = "409", description = "User already exists"),
-            @ApiResponse(responseCode = "400", description = "Role not found")
+            @ApiResponse(responseCode = "400", description = "Role not found"),
+            @ApiResponse(responseCode = "429", description = "Too many registration attempts")
     })
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody UserDTO userDTO) {
+    public ResponseEntity<?> register(@RequestBody UserDTO userDTO, HttpServletRequest request) {
         log.info("Registering new user: {}", userDTO);
+        authAttemptLimiter.acquire(request.getRemoteAddr(), userDTO.getEmail());
         try {
-            String rawPassword = userDTO.getPassword();
             UserDTO createdUser = userService.createUser(userDTO);
 
-            // Authenticate the user after registration
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(createdUser.getUsername(), rawPassword)
-            );
-
-            // Generate JWT token
-            UserDetails userDetails = (UserDetails) authentication.getPrincipal();
+            // The password was just hashed by createUser, there is no need to verify it again
+            UserDetails userDetails = userDetailsService.loadUserByUsername(createdUser.getEmail());
             String token = jwtTokenUtil.generateToken(userDetails);
 
+            authAttemptLimiter.refund(request.getRemoteAddr(), userDTO.getEmail());
             return ResponseEntity.ok(new AuthResponse(token));
 
         } catch (UserAlreadyExistsException e) {
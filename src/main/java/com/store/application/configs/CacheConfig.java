@@ -1,5 +1,6 @@
 package com.store.application.configs;
 
+import com.store.application.utils.filters.FilteredPageReader;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
@@ -12,6 +13,6 @@ public class CacheConfig {
 
     @Bean
     public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("products", "users");
+        return new ConcurrentMapCacheManager("products", "users", FilteredPageReader.COUNT_CACHE);
     }
 }
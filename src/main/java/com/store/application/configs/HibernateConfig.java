@@ -0,0 +1,21 @@
+package com.store.application.configs;
+
+import com.store.application.utils.sql.ExplainRewriter;
+import com.store.application.utils.sql.SqlStatementCounter;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HibernateConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementInspectorCustomizer() {
+        SqlStatementCounter counter = new SqlStatementCounter();
+        ExplainRewriter explainRewriter = new ExplainRewriter();
+        StatementInspector inspector = sql -> explainRewriter.inspect(counter.inspect(sql));
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, inspector);
+    }
+}
@@ -1,31 +1,53 @@
 package com.store.application.configs;
 
+import com.store.application.security.BCryptCalibrator;
 import com.store.application.security.CustomUserDetailsService;
+import com.store.application.security.IsolatedPasswordEncoder;
+import com.store.application.security.PasswordHashingExecutor;
+import com.store.application.security.PasswordRehashService;
+import com.store.application.security.PermissionAuthorizationManager;
+import com.store.application.security.RbacRegistry;
+import com.store.application.security.RehashingAuthenticationProvider;
+import com.store.application.security.RequiresPermission;
 import com.store.application.utils.jwt.JwtAuthenticationFilter;
+import com.store.application.utils.jwt.JwtLogoutHandler;
 import lombok.RequiredArgsConstructor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.Pointcuts;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.authorization.method.AuthorizationInterceptorsOrder;
+import org.springframework.security.authorization.method.AuthorizationManagerBeforeMethodInterceptor;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.config.annotation.web.configurers.LogoutConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.logout.HttpStatusReturningLogoutSuccessHandler;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 @Configuration
 @RequiredArgsConstructor
@@ -35,9 +57,18 @@ public class SecurityConfig {
     private final CustomUserDetailsService userDetailsService;
     @Value("#{'${allowed.origins}'.split(',')}")
     private List<String> allowedOrigins;
+    @Value("${security.password-hashing.algorithm:bcrypt}")
+    private String passwordAlgorithm;
+    // 0 calibrates the strength against the target verify time at startup
+    @Value("${security.password-hashing.bcrypt-strength:0}")
+    private int bcryptStrength;
+    @Value("${security.password-hashing.target-verify-time:250ms}")
+    private Duration targetVerifyTime;
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtAuthenticationFilter jwtAuthenticationFilter) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtAuthenticationFilter jwtAuthenticationFilter,
+                                                   JwtLogoutHandler jwtLogoutHandler,
+                                                   AuthenticationProvider authenticationProvider) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .cors(Customizer.withDefaults())
@@ -47,6 +78,7 @@ public class SecurityConfig {
                         .requestMatchers("/roles/**").hasRole("ADMIN")
                         .requestMatchers("/permissions/**").hasRole("ADMIN")
                         .requestMatchers("/users/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/health/liveness", "/actuator/health/readiness").permitAll() // load balancer probes
                         .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .requestMatchers(
                                 "/v3/api-docs/**",
@@ -55,23 +87,48 @@ public class SecurityConfig {
                         ).permitAll()
                         .anyRequest().authenticated()
                 )
-                .logout(LogoutConfigurer::permitAll)
+                .logout(logout -> logout
+                        .logoutUrl("/auth/logout")
+                        .addLogoutHandler(jwtLogoutHandler) // revokes the caller's tokens
+                        .logoutSuccessHandler(new HttpStatusReturningLogoutSuccessHandler())
+                        .permitAll()
+                )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)) // No sessions
-                .authenticationProvider(authenticationProvider())
+                .authenticationProvider(authenticationProvider)
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class); // JWT filter
         return http.build();
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    static Advisor requiresPermissionAuthorizationAdvisor(ObjectProvider<RbacRegistry> rbacRegistry) {
+        Pointcut pointcut = Pointcuts.union(
+                new AnnotationMatchingPointcut(null, RequiresPermission.class, true),
+                new AnnotationMatchingPointcut(RequiresPermission.class, true));
+        AuthorizationManagerBeforeMethodInterceptor interceptor =
+                new AuthorizationManagerBeforeMethodInterceptor(pointcut, new PermissionAuthorizationManager(rbacRegistry::getObject));
+        interceptor.setOrder(AuthorizationInterceptorsOrder.PRE_AUTHORIZE.getOrder());
+        return interceptor;
+    }
+
+    @Bean
+    public IsolatedPasswordEncoder passwordEncoder(PasswordHashingExecutor passwordHashingExecutor) {
+        int strength = bcryptStrength > 0 ? bcryptStrength : BCryptCalibrator.calibrate(targetVerifyTime);
+        Map<String, PasswordEncoder> encoders = Map.of(
+                "bcrypt", new BCryptPasswordEncoder(strength),
+                "pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        DelegatingPasswordEncoder delegatingEncoder = new DelegatingPasswordEncoder(passwordAlgorithm, encoders);
+        // hashes stored before the {id} prefix was introduced are plain BCrypt, they are upgraded on the next login
+        delegatingEncoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return new IsolatedPasswordEncoder(delegatingEncoder, passwordHashingExecutor);
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
-        DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder,
+                                                         PasswordRehashService passwordRehashService) {
+        DaoAuthenticationProvider authProvider = new RehashingAuthenticationProvider(passwordRehashService);
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
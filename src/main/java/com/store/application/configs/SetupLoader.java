@@ -12,6 +12,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
@@ -22,6 +24,7 @@ import java.util.*;
 @Component
 @Slf4j
 @Transactional
+@Order(Ordered.HIGHEST_PRECEDENCE) // runs before the registries that load roles and permissions at startup
 public class SetupLoader implements ApplicationListener<ContextRefreshedEvent> {
 
     boolean alreadySetup = false;
@@ -47,6 +50,7 @@ public class SetupLoader implements ApplicationListener<ContextRefreshedEvent> {
 
         Permission readPerm = createPrivilegeIfNotFound("READ_PERM");
         Permission writePerm = createPrivilegeIfNotFound("WRITE_PERM");
+        assignMissingPermissionBits();
 
         List<Permission> adminPermissions = Arrays.asList(readPerm, writePerm);
 
@@ -61,6 +65,7 @@ public class SetupLoader implements ApplicationListener<ContextRefreshedEvent> {
                     .password(passwordEncoder.encode("admin"))
                     .roles(Set.of(adminRole))
                     .enabled(true)
+                    .tokenVersion(userRepository.removeDeletedTokenVersion("admin@admin.com").map(version -> version + 1).orElse(0))
                     .build();
             userRepository.save(user);
         }
@@ -73,12 +78,30 @@ public class SetupLoader implements ApplicationListener<ContextRefreshedEvent> {
         if (permission == null) {
             permission = Permission.builder()
                     .name(name)
+                    .bit(allocateBit(name))
                     .build();
             permissionRepository.save(permission);
         }
         return permission;
     }
 
+    void assignMissingPermissionBits() {
+        for (Permission permission : permissionRepository.findWithoutUsableBit()) {
+            permission.setBit(allocateBit(permission.getName()));
+            permissionRepository.saveAndFlush(permission);
+        }
+    }
+
+    // a permission left without a bit is still created, it just cannot be granted until a bit frees up
+    private Integer allocateBit(String name) {
+        OptionalInt bit = permissionRepository.allocateBit();
+        if (bit.isEmpty()) {
+            log.warn("No permission bit left for {}", name);
+            return null;
+        }
+        return bit.getAsInt();
+    }
+
     Role createRoleIfNotFound(RoleEnum name, List<Permission> permissions) {
         Role role = roleRepository.findByName(name);
         if (role == null) {
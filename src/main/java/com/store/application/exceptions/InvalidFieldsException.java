@@ -0,0 +1,7 @@
+package com.store.application.exceptions;
+
+public class InvalidFieldsException extends RuntimeException {
+    public InvalidFieldsException(String message) {
+        super(message);
+    }
+}
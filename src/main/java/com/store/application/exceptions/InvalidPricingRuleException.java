@@ -0,0 +1,7 @@
+package com.store.application.exceptions;
+
+public class InvalidPricingRuleException extends RuntimeException {
+    public InvalidPricingRuleException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.store.application.exceptions;
+
+public class PermissionLimitExceededException extends RuntimeException {
+    public PermissionLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.store.application.exceptions;
+
+public class PriceChangeNotFoundException extends RuntimeException {
+    public PriceChangeNotFoundException(String message) {
+        super(message);
+    }
+}
@@ -2,9 +2,9 @@ package com.store.application.permission;
 
 import com.fasterxml.jackson.annotation.*;
 import com.store.application.role.Role;
+import com.store.application.utils.ids.UuidV7;
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.UuidGenerator;
 
 import java.util.Collection;
 import java.util.UUID;
@@ -22,12 +22,15 @@ import java.util.UUID;
 public class Permission {
     @Id
     @Column(name = "id", updatable = false, nullable = false)
-    @GeneratedValue(generator = "UUID", strategy = GenerationType.UUID)
-    @UuidGenerator
+    @UuidV7
     private UUID id;
 
     private String name;
 
+    // position of this permission in the compact permission mask carried by tokens, assigned on creation
+    @Column(name = "bit", unique = true)
+    private Integer bit;
+
     @ManyToMany(mappedBy = "permissions")
     @JsonIdentityReference(alwaysAsId = true)
     private Collection<Role> roles;
@@ -1,5 +1,6 @@
 package com.store.application.permission;
 
+import com.store.application.security.RequiresPermission;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -11,7 +12,6 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -31,7 +31,7 @@ public class PermissionController {
                     content = {@Content(mediaType = "application/json", schema = @Schema(implementation = PermissionDTO.class))}
             )
     })
-    @PreAuthorize("@securityService.hasPermission('READ')")
+    @RequiresPermission("READ")
     @GetMapping
     public ResponseEntity<List<PermissionDTO>> getAllPermissions() {
         List<PermissionDTO> permissions = permissionService.getAllPermissions();
@@ -43,7 +43,7 @@ public class PermissionController {
             @ApiResponse(responseCode = "200", description = "Fetched permission successfully"),
             @ApiResponse(responseCode = "404", description = "Permission not found")
     })
-    @PreAuthorize("@securityService.hasPermission('READ')")
+    @RequiresPermission("READ")
     @GetMapping("/{id}")
     public ResponseEntity<PermissionDTO> getPermissionById(@Parameter(description = "Permission id to get data for", required = true) @PathVariable UUID id) {
         PermissionDTO permission = permissionService.getPermissionById(id);
@@ -54,7 +54,7 @@ public class PermissionController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Created new permission successfully")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @PostMapping
     public ResponseEntity<PermissionDTO> createPermission(@Parameter(description = "Permission data to create", required = true) @Valid @RequestBody PermissionDTO permissionDTO) {
         PermissionDTO createdPermission = permissionService.createPermission(permissionDTO);
@@ -66,7 +66,7 @@ public class PermissionController {
             @ApiResponse(responseCode = "200", description = "Updated permission successfully"),
             @ApiResponse(responseCode = "404", description = "Permission not found")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @PutMapping
     public ResponseEntity<PermissionDTO> updatePermission(@Parameter(description = "Permission with updated data", required = true) @Valid @RequestBody PermissionDTO updatedPermissionDTO) {
         PermissionDTO permission = permissionService.updatePermission(updatedPermissionDTO);
@@ -78,7 +78,7 @@ public class PermissionController {
             @ApiResponse(responseCode = "204", description = "Deleted permission successfully"),
             @ApiResponse(responseCode = "404", description = "Permission not found")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deletePermission(@Parameter(description = "Permission id to delete", required = true) @PathVariable UUID id) {
         permissionService.deletePermission(id);
@@ -1,9 +1,44 @@
 package com.store.application.permission;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
+import java.util.OptionalInt;
 import java.util.UUID;
 
 public interface PermissionRepository extends JpaRepository<Permission, UUID> {
     Permission findByName(String name);
+
+    // permissions created before the permission mask existed, or holding a bit the mask cannot carry
+    @Query("select p from Permission p where p.bit is null or p.bit < 0 or p.bit >= " + Long.SIZE)
+    List<Permission> findWithoutUsableBit();
+
+    @Query("select p.bit from Permission p where p.bit is not null order by p.bit")
+    List<Integer> findAssignedBits();
+
+    // blocks other writers of the table, not readers, until the transaction ends
+    @Modifying
+    @Query(value = "lock table permissions in share row exclusive mode", nativeQuery = true)
+    void lockForBitAllocation();
+
+    /**
+     * Lowest bit of the permission mask not held by any permission, bits of deleted permissions are handed out again.
+     * The table stays locked until the transaction ends, so concurrent allocations cannot pick the same bit.
+     * Empty once all {@value Long#SIZE} bits are taken.
+     */
+    default OptionalInt allocateBit() {
+        lockForBitAllocation();
+        int bit = 0;
+        for (int assigned : findAssignedBits()) {
+            if (assigned > bit) {
+                break;
+            }
+            if (assigned == bit) {
+                bit++;
+            }
+        }
+        return bit < Long.SIZE ? OptionalInt.of(bit) : OptionalInt.empty();
+    }
 }
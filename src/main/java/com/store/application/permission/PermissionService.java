@@ -1,9 +1,14 @@
 package com.store.application.permission;
 
+import com.store.application.exceptions.PermissionLimitExceededException;
 import com.store.application.exceptions.PermissionNotFoundException;
+import com.store.application.security.RbacChangedEvent;
+import com.store.application.security.TokenRevocationReloadEvent;
+import com.store.application.user.UserRepository;
 import com.store.application.utils.LogMessages;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,6 +26,10 @@ public class PermissionService implements IPermissionService {
 
     private PermissionMapper permissionMapper;
 
+    private UserRepository userRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+
     public List<PermissionDTO> getAllPermissions() {
         return permissionRepository.findAll().stream()
                 .map(permissionMapper::toDTO)
@@ -36,14 +45,20 @@ public class PermissionService implements IPermissionService {
     @Transactional
     public PermissionDTO createPermission(PermissionDTO permissionDTO) {
         Permission permission = permissionMapper.toEntity(permissionDTO);
-        return permissionMapper.toDTO(permissionRepository.save(permission));
+        permission.setBit(permissionRepository.allocateBit().orElseThrow(() ->
+                new PermissionLimitExceededException(String.format(LogMessages.PERMISSION_LIMIT_EXCEEDED, Long.SIZE))));
+        PermissionDTO createdPermission = permissionMapper.toDTO(permissionRepository.save(permission));
+        eventPublisher.publishEvent(new RbacChangedEvent());
+        return createdPermission;
     }
 
     @Transactional
     public PermissionDTO updatePermission(PermissionDTO updatedPermissionDTO) {
         return permissionRepository.findById(updatedPermissionDTO.getId()).map(permission -> {
             permission.setName(updatedPermissionDTO.getName());
-            return permissionMapper.toDTO(permissionRepository.save(permission));
+            PermissionDTO savedPermission = permissionMapper.toDTO(permissionRepository.save(permission));
+            eventPublisher.publishEvent(new RbacChangedEvent());
+            return savedPermission;
         }).orElseThrow(() -> new PermissionNotFoundException(LogMessages.PERMISSION_NOT_FOUND_MESSAGE + updatedPermissionDTO.getId()));
     }
 
@@ -52,6 +67,11 @@ public class PermissionService implements IPermissionService {
         if (!permissionRepository.existsById(id)) {
             throw new PermissionNotFoundException(LogMessages.PERMISSION_NOT_FOUND_MESSAGE + id);
         }
+        // the freed bit goes to the next permission created, tokens still carrying it must not grant that one
+        if (userRepository.incrementTokenVersionByPermissionId(id) > 0) {
+            eventPublisher.publishEvent(new TokenRevocationReloadEvent());
+        }
         permissionRepository.deleteById(id);
+        eventPublisher.publishEvent(new RbacChangedEvent());
     }
 }
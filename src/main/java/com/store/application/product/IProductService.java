@@ -1,19 +1,40 @@
 package com.store.application.product;
 
+import com.store.application.product.pricing.PricingRequest;
+import com.store.application.product.pricing.PricingResult;
+import com.store.application.product.schedule.ScheduledPriceChangeDTO;
+import com.store.application.product.stream.ProductStreamFilter;
+import com.store.application.utils.CustomResponse;
+import com.store.application.utils.changes.ChangeFeed;
+import com.store.application.utils.filters.BulkRequest;
+import com.store.application.utils.filters.BulkResult;
+import com.store.application.utils.filters.PageFilter;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface IProductService {
     Page<ProductDTO> getAllProducts(Pageable pageable);
+    CustomResponse<ProductDTO> getAllProductsFilteredAndPaginated(PageFilter pageFilter);
+    CustomResponse<Map<String, Object>> getProductFieldsFilteredAndPaginated(PageFilter pageFilter);
     Optional<ProductDTO> getProductById(UUID id);
     ProductDTO createProduct(ProductDTO productDTO);
     ProductDTO updateProduct(ProductDTO updatedProductDTO);
     void deleteProduct(UUID id);
-    List<ProductDTO> getProductsByCategory(Category category);
+    Page<ProductDTO> getProductsByCategory(Category category, Pageable pageable);
     ProductDTO changePrice(UUID id, Double amount);
     ProductDTO increaseQuantity(UUID id, int amount);
+    BulkResult bulkUpdate(BulkRequest bulkRequest);
+    BulkResult bulkDelete(BulkRequest bulkRequest);
+    PricingResult reprice(PricingRequest pricingRequest);
+    ScheduledPriceChangeDTO schedulePriceChange(UUID productId, ScheduledPriceChangeDTO scheduledPriceChangeDTO);
+    List<ScheduledPriceChangeDTO> getPendingPriceChanges(UUID productId);
+    void cancelPriceChange(UUID id);
+    ChangeFeed<ProductDTO> getChanges(long since, UUID after, int limit);
+    SseEmitter streamChanges(ProductStreamFilter filter, String lastEventId);
 }
@@ -1,10 +1,10 @@
 package com.store.application.product;
 
+import com.store.application.utils.ids.UuidV7;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
-import org.hibernate.annotations.UuidGenerator;
 
 import java.io.Serializable;
 import java.util.UUID;
@@ -12,7 +12,8 @@ import java.util.UUID;
 @Entity
 @Table(name = "products", indexes = {
         @Index(name = "idx_name", columnList = "name"),
-        @Index(name = "idx_category", columnList = "category")
+        @Index(name = "idx_category", columnList = "category"),
+        @Index(name = "idx_products_change_seq_id", columnList = "change_seq, id")
 })
 @Builder
 @Getter
@@ -23,8 +24,7 @@ import java.util.UUID;
 public class Product implements Serializable {
     @Id
     @Column(name = "id", updatable = false, nullable = false)
-    @GeneratedValue(generator = "UUID", strategy = GenerationType.UUID)
-    @UuidGenerator
+    @UuidV7
     private UUID id;
 
     @Column(name = "name", unique = true, nullable = false)
@@ -51,4 +51,8 @@ public class Product implements Serializable {
     @Column(name = "discount")
     @Min(0)
     private Double discount = 0.0;
+
+    // stamped by the database on every write, see ChangeSequence
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    private Long changeSeq;
 }
@@ -1,7 +1,19 @@
 package com.store.application.product;
 
 import com.store.application.exceptions.ProductAlreadyExistsException;
+import com.store.application.exceptions.PriceChangeNotFoundException;
 import com.store.application.exceptions.ProductNotFoundException;
+import com.store.application.product.pricing.PricingRequest;
+import com.store.application.product.pricing.PricingResult;
+import com.store.application.product.schedule.ScheduledPriceChangeDTO;
+import com.store.application.product.stream.ProductStreamFilter;
+import com.store.application.security.RequiresPermission;
+import com.store.application.utils.CustomResponse;
+import com.store.application.utils.changes.ChangeFeed;
+import com.store.application.utils.filters.BulkRequest;
+import com.store.application.utils.filters.BulkResult;
+import com.store.application.utils.filters.PageFilter;
+import com.store.application.utils.filters.SparseFields;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -13,12 +25,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
@@ -33,7 +47,7 @@ public class ProductController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully fetched all products")
     })
-    @PreAuthorize("@securityService.hasPermission('READ')")
+    @RequiresPermission("READ")
     @GetMapping
     public ResponseEntity<Page<ProductDTO>> getAllProducts(@RequestParam("page") int pageIndex,
                                                            @RequestParam("size") int pageSize) {
@@ -41,12 +55,26 @@ public class ProductController {
         return new ResponseEntity<>(products, HttpStatus.OK);
     }
 
+    @Operation(summary = "Fetching all products filtered & paginated", tags = { "Product", "post" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully fetched all products filtered & paginated")
+    })
+    @RequiresPermission("READ")
+    @PostMapping("/get-filtered")
+    public ResponseEntity<CustomResponse<?>> getAllProductsFilteredAndPaginated(
+            @Parameter(description = "Filter & Pageable query", required = true) @Valid @RequestBody PageFilter pageFilter) {
+        CustomResponse<?> products = SparseFields.requested(pageFilter)
+                ? productService.getProductFieldsFilteredAndPaginated(pageFilter)
+                : productService.getAllProductsFilteredAndPaginated(pageFilter);
+        return new ResponseEntity<>(products, HttpStatus.OK);
+    }
+
     @Operation(summary = "Fetching product with id", tags = { "Product", "get" })
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully fetched product"),
             @ApiResponse(responseCode = "404", description = "Product not found")
     })
-    @PreAuthorize("@securityService.hasPermission('READ')")
+    @RequiresPermission("READ")
     @GetMapping("/{id}")
     public ResponseEntity<ProductDTO> getProductById(@Parameter(description = "Product id to get data for", required = true) @PathVariable UUID id) {
         Optional<ProductDTO> product = productService.getProductById(id);
@@ -60,7 +88,7 @@ public class ProductController {
             @ApiResponse(responseCode = "409", description = "Product already exists"),
             @ApiResponse(responseCode = "400", description = "Error creating product")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @PostMapping
     public ResponseEntity<ProductDTO> createProduct(@Parameter(description = "Product data to create", required = true) @Valid @RequestBody ProductDTO productDTO) {
         try {
@@ -79,7 +107,7 @@ public class ProductController {
             @ApiResponse(responseCode = "404", description = "Product not found"),
             @ApiResponse(responseCode = "409", description = "Product with the same name already exists")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @PutMapping
     public ResponseEntity<ProductDTO> updateProduct(@Parameter(description = "Product with updated data", required = true) @Valid @RequestBody ProductDTO updatedProductDTO) {
         try {
@@ -97,7 +125,7 @@ public class ProductController {
             @ApiResponse(responseCode = "204", description = "Successfully deleted product"),
             @ApiResponse(responseCode = "404", description = "Product not found")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProduct(@Parameter(description = "Product id to delete data for", required = true) @PathVariable UUID id) {
         try {
@@ -112,10 +140,12 @@ public class ProductController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully fetched products by category")
     })
-    @PreAuthorize("@securityService.hasPermission('READ')")
+    @RequiresPermission("READ")
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<ProductDTO>> getProductsByCategory(@Parameter(description = "Get products by category", required = true) @PathVariable Category category) {
-        List<ProductDTO> products = productService.getProductsByCategory(category);
+    public ResponseEntity<Page<ProductDTO>> getProductsByCategory(@Parameter(description = "Get products by category", required = true) @PathVariable Category category,
+                                                                  @RequestParam(value = "page", defaultValue = "0") int pageIndex,
+                                                                  @RequestParam(value = "size", defaultValue = "20") int pageSize) {
+        Page<ProductDTO> products = productService.getProductsByCategory(category, PageRequest.of(pageIndex, pageSize));
         return new ResponseEntity<>(products, HttpStatus.OK);
     }
 
@@ -124,7 +154,7 @@ public class ProductController {
             @ApiResponse(responseCode = "200", description = "Successfully changed product price"),
             @ApiResponse(responseCode = "404", description = "Product not found")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @PatchMapping("/{id}/changePrice")
     public ResponseEntity<ProductDTO> changePrice(
             @Parameter(description = "Product id to change the price to", required = true) @PathVariable UUID id,
@@ -142,7 +172,7 @@ public class ProductController {
             @ApiResponse(responseCode = "200", description = "Successfully changed product quantity"),
             @ApiResponse(responseCode = "404", description = "Product not found")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @PatchMapping("/{id}/increaseQuantity")
     public ResponseEntity<ProductDTO> increaseQuantity(
             @Parameter(description = "Product id to change the quantity to", required = true) @PathVariable UUID id,
@@ -155,11 +185,125 @@ public class ProductController {
         }
     }
 
+    @Operation(summary = "Updating all products matching a filter", tags = { "Product", "patch" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully updated the matching products"),
+            @ApiResponse(responseCode = "400", description = "Invalid filter or assignment")
+    })
+    @RequiresPermission("WRITE")
+    @PatchMapping("/bulk")
+    public ResponseEntity<BulkResult> bulkUpdateProducts(
+            @Parameter(description = "Filter and field assignments, e.g. price MULTIPLY 0.9", required = true) @Valid @RequestBody BulkRequest bulkRequest) {
+        BulkResult result = productService.bulkUpdate(bulkRequest);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Deleting all products matching a filter", tags = { "Product", "delete" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully deleted the matching products"),
+            @ApiResponse(responseCode = "400", description = "Invalid filter")
+    })
+    @RequiresPermission("WRITE")
+    @DeleteMapping("/bulk")
+    public ResponseEntity<BulkResult> bulkDeleteProducts(
+            @Parameter(description = "Filter of the products to delete", required = true) @Valid @RequestBody BulkRequest bulkRequest) {
+        BulkResult result = productService.bulkDelete(bulkRequest);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Repricing the catalog with pricing rules", tags = { "Product", "post" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully evaluated the rules, and applied them unless it was a dry run"),
+            @ApiResponse(responseCode = "400", description = "Invalid pricing rule")
+    })
+    @RequiresPermission("WRITE")
+    @PostMapping("/reprice")
+    public ResponseEntity<PricingResult> reprice(
+            @Parameter(description = "Rules applied in order, e.g. FROZEN SET_DISCOUNT 10 then ROUND_TO_99", required = true) @Valid @RequestBody PricingRequest pricingRequest) {
+        PricingResult result = productService.reprice(pricingRequest);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Scheduling a price or discount change of a product", tags = { "Product", "post" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Successfully scheduled the change"),
+            @ApiResponse(responseCode = "404", description = "Product not found")
+    })
+    @RequiresPermission("WRITE")
+    @PostMapping("/{id}/price-changes")
+    public ResponseEntity<ScheduledPriceChangeDTO> schedulePriceChange(
+            @Parameter(description = "Product id to schedule the change for", required = true) @PathVariable UUID id,
+            @Parameter(description = "New price and/or discount and when they take effect", required = true) @Valid @RequestBody ScheduledPriceChangeDTO scheduledPriceChangeDTO) {
+        try {
+            ScheduledPriceChangeDTO change = productService.schedulePriceChange(id, scheduledPriceChangeDTO);
+            return new ResponseEntity<>(change, HttpStatus.CREATED);
+        } catch (ProductNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @Operation(summary = "Fetching the pending price changes of a product", tags = { "Product", "get" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully fetched the pending changes")
+    })
+    @RequiresPermission("READ")
+    @GetMapping("/{id}/price-changes")
+    public ResponseEntity<List<ScheduledPriceChangeDTO>> getPendingPriceChanges(
+            @Parameter(description = "Product id to get the pending changes for", required = true) @PathVariable UUID id) {
+        List<ScheduledPriceChangeDTO> changes = productService.getPendingPriceChanges(id);
+        return new ResponseEntity<>(changes, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Cancelling a pending price change", tags = { "Product", "delete" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Successfully cancelled the change"),
+            @ApiResponse(responseCode = "404", description = "No pending change with this id")
+    })
+    @RequiresPermission("WRITE")
+    @DeleteMapping("/price-changes/{changeId}")
+    public ResponseEntity<Void> cancelPriceChange(
+            @Parameter(description = "Id of the pending change to cancel", required = true) @PathVariable UUID changeId) {
+        try {
+            productService.cancelPriceChange(changeId);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (PriceChangeNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @Operation(summary = "Fetching the products changed after a sequence", tags = { "Product", "get" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully fetched the changes")
+    })
+    @RequiresPermission("READ")
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeFeed<ProductDTO>> getChanges(
+            @Parameter(description = "Sequence to read after, 0 or the next of the previous call") @RequestParam(defaultValue = "0") long since,
+            @Parameter(description = "Id to read after within the since sequence, the after of the previous call") @RequestParam(required = false) UUID after,
+            @Parameter(description = "Most changes returned") @RequestParam(defaultValue = "1000") int limit) {
+        ChangeFeed<ProductDTO> changes = productService.getChanges(since, after, limit);
+        return new ResponseEntity<>(changes, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Streaming product changes as server-sent events", tags = { "Product", "get" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stream of CREATED, UPDATED, DELETED and RESET events")
+    })
+    @RequiresPermission("READ")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @Parameter(description = "Only products of these categories") @RequestParam(required = false) Set<Category> categories,
+            @Parameter(description = "Only products with these ids") @RequestParam(required = false) Set<UUID> ids,
+            @Parameter(description = "Only products with at most this quantity") @RequestParam(required = false) Integer lowStock,
+            @Parameter(description = "Id of the last event received, to resume after it") @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return productService.streamChanges(new ProductStreamFilter(categories, ids, lowStock), lastEventId);
+    }
+
     @Operation(summary = "Fetching available categories", tags = { "Product", "get" })
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully fetched categories")
     })
-    @PreAuthorize("@securityService.hasPermission('READ')")
+    @RequiresPermission("READ")
     @GetMapping("/categories")
     public ResponseEntity<List<String>> getCategories() {
         List<String> categories = productService.getCategories();
@@ -1,5 +1,7 @@
 package com.store.application.product;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.store.application.product.pricing.Prices;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -29,6 +31,12 @@ public class ProductDTO implements Serializable {
     private Double price = 0.0;
     @Min(message = "Quantity cannot be negative", value = 0)
     private int quantity = 0;
+    // percentage of the price
     @Min(message = "Discount cannot be negative", value = 0)
     private Double discount = 0.0;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    public Double getEffectivePrice() {
+        return Prices.effectivePrice(price, discount);
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.store.application.product;
 
+import com.store.application.product.schedule.ScheduledPriceChange;
+import com.store.application.product.schedule.ScheduledPriceChangeDTO;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -16,6 +18,17 @@ public class ProductMapper {
                 .build();
     }
 
+    public ScheduledPriceChangeDTO toDTO(ScheduledPriceChange change) {
+        return ScheduledPriceChangeDTO.builder()
+                .id(change.getId())
+                .productId(change.getProduct().getId())
+                .price(change.getPrice())
+                .discount(change.getDiscount())
+                .effectiveAt(change.getEffectiveAt())
+                .appliedAt(change.getAppliedAt())
+                .build();
+    }
+
     public Product toEntity(ProductDTO productDTO) {
         return Product.builder()
                 .id(productDTO.getId())
@@ -1,6 +1,13 @@
 package com.store.application.product;
 
+import com.store.application.product.pricing.ProductPrice;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -8,7 +15,36 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, UUID> {
-    List<Product> findByCategory(Category category);
+public interface ProductRepository extends JpaRepository<Product, UUID>, JpaSpecificationExecutor<Product> {
+    Page<Product> findByCategory(Category category, Pageable pageable);
     Optional<Product> findByName(String name);
+
+    // keyset pages of the catalog for repricing, read as plain values
+    List<ProductPrice> findByIdGreaterThanOrderByIdAsc(UUID id, Limit limit);
+
+    // a taken name inserts nothing and returns no row, instead of failing the transaction
+    @Query(value = "insert into products (id, name, description, category, price, quantity, discount) " +
+            "values (:#{#product.id}, :#{#product.name}, :#{#product.description}, :#{#product.category.name()}, " +
+            ":#{#product.price}, :#{#product.quantity}, :#{#product.discount}) " +
+            "on conflict (name) do nothing returning *", nativeQuery = true)
+    Optional<Product> insertIfNameAbsent(@Param("product") Product product);
+
+    // locks the row for the update that follows, so the change stream gets the state it replaces
+    @Query(value = "select category, quantity from products where id = :id for update", nativeQuery = true)
+    Optional<ProductStreamState> lockStreamState(@Param("id") UUID id);
+
+    @Query(value = "update products set name = :#{#product.name}, description = :#{#product.description}, " +
+            "category = :#{#product.category.name()}, price = :#{#product.price}, quantity = :#{#product.quantity}, " +
+            "discount = :#{#product.discount} where id = :#{#product.id} returning *", nativeQuery = true)
+    Optional<Product> updateReturning(@Param("product") Product product);
+
+    @Query(value = "update products set price = :price where id = :id returning *", nativeQuery = true)
+    Optional<Product> updatePriceReturning(@Param("id") UUID id, @Param("price") Double price);
+
+    @Query(value = "update products set quantity = quantity + :amount where id = :id returning *", nativeQuery = true)
+    Optional<Product> increaseQuantityReturning(@Param("id") UUID id, @Param("amount") int amount);
+
+    // the deleted row is returned for the change stream
+    @Query(value = "delete from products where id = :id returning *", nativeQuery = true)
+    Optional<Product> deleteReturning(@Param("id") UUID id);
 }
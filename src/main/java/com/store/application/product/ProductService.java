@@ -1,38 +1,129 @@
 package com.store.application.product;
 
 import com.store.application.exceptions.ProductAlreadyExistsException;
+import com.store.application.exceptions.PriceChangeNotFoundException;
 import com.store.application.exceptions.ProductNotFoundException;
+import com.store.application.product.pricing.PricingEngine;
+import com.store.application.product.pricing.PricingRequest;
+import com.store.application.product.pricing.PricingResult;
+import com.store.application.product.pricing.Prices;
+import com.store.application.product.schedule.PriceChangeScheduler;
+import com.store.application.product.schedule.ScheduledPriceChange;
+import com.store.application.product.schedule.ScheduledPriceChangeDTO;
+import com.store.application.product.schedule.ScheduledPriceChangeRepository;
+import com.store.application.product.stream.ProductChangeStream;
+import com.store.application.product.stream.ProductChangeType;
+import com.store.application.product.stream.ProductChangedEvent;
+import com.store.application.product.stream.ProductStreamFilter;
+import com.store.application.utils.CustomResponse;
 import com.store.application.utils.LogMessages;
+import com.store.application.utils.changes.ChangeFeed;
+import com.store.application.utils.changes.ChangeFeedReader;
+import com.store.application.utils.filters.BulkRequest;
+import com.store.application.utils.filters.BulkResult;
+import com.store.application.utils.filters.BulkWriter;
+import com.store.application.utils.filters.FilteredPage;
+import com.store.application.utils.filters.FilteredPageReader;
+import com.store.application.utils.filters.PageFilter;
+import com.store.application.utils.filters.SparseFields;
+import com.store.application.utils.ids.UuidV7Generator;
+import com.store.application.utils.sql.ConstraintViolations;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 @Transactional(readOnly = true)
 @AllArgsConstructor
 public class ProductService implements IProductService {
+    private static final String CACHE = "products";
+    private static final String TABLE = "products";
+    private static final String PRICE = "price";
+    private static final String DISCOUNT = "discount";
+    private static final String EFFECTIVE_PRICE = "effectivePrice";
+    // the name is unique, a bulk assignment would give every matching product the same one
+    private static final Set<String> BULK_UPDATABLE = Set.of("description", "category", "price", "quantity", "discount");
+
     private ProductRepository productRepository;
 
     private ProductMapper productMapper;
 
+    private FilteredPageReader filteredPageReader;
+
+    private BulkWriter bulkWriter;
+
+    private ChangeFeedReader changeFeedReader;
+
+    private PricingEngine pricingEngine;
+
+    private ScheduledPriceChangeRepository scheduledPriceChangeRepository;
+
+    private PriceChangeScheduler priceChangeScheduler;
+
+    private ProductChangeStream productChangeStream;
+
+    private CacheManager cacheManager;
+
+    // changes are streamed once the transaction publishing them commits
+    private ApplicationEventPublisher eventPublisher;
+
     @Cacheable(cacheNames = "products", unless = "#result == null")
     public Page<ProductDTO> getAllProducts(Pageable pageable) {
         return productRepository.findAll(pageable).map(productMapper::toDTO);
     }
 
+    @Cacheable(cacheNames = "products", unless = "#result == null")
+    public CustomResponse<ProductDTO> getAllProductsFilteredAndPaginated(PageFilter pageFilter) {
+        FilteredPage<Product> page = filteredPageReader.read(Product.class, pageFilter);
+        return page.toResponse(page.content().stream().map(productMapper::toDTO).toList());
+    }
+
+    // every product DTO field is a column of its own, only the requested ones are selected
+    @Cacheable(cacheNames = "products", key = "{'fields', #pageFilter}", unless = "#result == null")
+    public CustomResponse<Map<String, Object>> getProductFieldsFilteredAndPaginated(PageFilter pageFilter) {
+        List<String> fields = SparseFields.validate(ProductDTO.class, pageFilter.getFields());
+        if (!fields.contains(EFFECTIVE_PRICE)) {
+            FilteredPage<Map<String, Object>> page = filteredPageReader.read(Product.class, pageFilter, fields);
+            return page.toResponse(page.content());
+        }
+        // the effective price is not a column, it is computed from the price and discount selected with the page
+        List<String> columns = new ArrayList<>(fields);
+        columns.remove(EFFECTIVE_PRICE);
+        Stream.of(PRICE, DISCOUNT).filter(column -> !columns.contains(column)).forEach(columns::add);
+        FilteredPage<Map<String, Object>> page = filteredPageReader.read(Product.class, pageFilter, columns);
+        return page.toResponse(page.content().stream().map(row -> {
+            Map<String, Object> product = new LinkedHashMap<>();
+            fields.forEach(field -> product.put(field, field.equals(EFFECTIVE_PRICE)
+                    ? Prices.effectivePrice((Double) row.get(PRICE), (Double) row.get(DISCOUNT))
+                    : row.get(field)));
+            return product;
+        }).toList());
+    }
+
 
     @Cacheable(cacheNames = "products", key = "#id", unless = "#result == null")
     public Optional<ProductDTO> getProductById(UUID id) {
@@ -40,65 +131,141 @@ public class ProductService implements IProductService {
     }
 
     @Transactional
-    @CacheEvict(cacheNames = "products", allEntries = true)
+    @CacheEvict(cacheNames = {"products", FilteredPageReader.COUNT_CACHE}, allEntries = true)
     public ProductDTO createProduct(ProductDTO productDTO) {
-        if (productRepository.findByName(productDTO.getName()).isPresent()) {
-            throw new ProductAlreadyExistsException(LogMessages.PRODUCT_ALREADY_EXISTS + productDTO.getName());
-        }
         Product product = productMapper.toEntity(productDTO);
-        return productMapper.toDTO(productRepository.save(product));
+        product.setId(UuidV7Generator.next());
+        return productRepository.insertIfNameAbsent(product)
+                .map(productMapper::toDTO)
+                .map(created -> publish(ProductChangeType.CREATED, created))
+                .orElseThrow(() -> new ProductAlreadyExistsException(LogMessages.PRODUCT_ALREADY_EXISTS + productDTO.getName()));
     }
 
     @Transactional
-    @CacheEvict(cacheNames = "products", allEntries = true)
+    @CacheEvict(cacheNames = {"products", FilteredPageReader.COUNT_CACHE}, allEntries = true)
     public ProductDTO updateProduct(ProductDTO updatedProductDTO) {
-        return productRepository.findById(updatedProductDTO.getId()).map(product -> {
-            Optional<Product> existingProduct = productRepository.findByName(updatedProductDTO.getName());
-            if (existingProduct.isPresent() && !existingProduct.get().getId().equals(updatedProductDTO.getId())) {
-                throw new ProductAlreadyExistsException(LogMessages.PRODUCT_ALREADY_EXISTS + updatedProductDTO.getName());
+        try {
+            Optional<ProductStreamState> previous = productRepository.lockStreamState(updatedProductDTO.getId());
+            return productRepository.updateReturning(productMapper.toEntity(updatedProductDTO))
+                    .map(productMapper::toDTO)
+                    .map(updated -> publishUpdate(updated, previous.map(ProductStreamState::getCategory).orElse(null),
+                            previous.map(ProductStreamState::getQuantity).orElse(null)))
+                    .orElseThrow(() -> new ProductNotFoundException(LogMessages.PRODUCT_NOT_FOUND_BY_ID + updatedProductDTO.getId()));
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isUniqueViolation(e)) {
+                throw e;
             }
-            product.setName(updatedProductDTO.getName());
-            product.setDescription(updatedProductDTO.getDescription());
-            product.setCategory(Category.valueOf(updatedProductDTO.getCategory()));
-            product.setPrice(updatedProductDTO.getPrice());
-            product.setQuantity(updatedProductDTO.getQuantity());
-            product.setDiscount(updatedProductDTO.getDiscount());
-            return productMapper.toDTO(productRepository.save(product));
-        }).orElseThrow(() -> new ProductNotFoundException(LogMessages.PRODUCT_NOT_FOUND_BY_ID + updatedProductDTO.getId()));
+            throw new ProductAlreadyExistsException(LogMessages.PRODUCT_ALREADY_EXISTS + updatedProductDTO.getName());
+        }
     }
 
     @Transactional
-    @CacheEvict(cacheNames = "products", allEntries = true)
+    @CacheEvict(cacheNames = {"products", FilteredPageReader.COUNT_CACHE}, allEntries = true)
     public void deleteProduct(UUID id) {
-        if (!productRepository.existsById(id)) {
-            throw new ProductNotFoundException(LogMessages.PRODUCT_NOT_FOUND_BY_ID + id);
-        }
-        productRepository.deleteById(id);
+        ProductDTO deleted = productRepository.deleteReturning(id)
+                .map(productMapper::toDTO)
+                .orElseThrow(() -> new ProductNotFoundException(LogMessages.PRODUCT_NOT_FOUND_BY_ID + id));
+        publish(ProductChangeType.DELETED, deleted);
     }
 
-    @Cacheable(cacheNames = "products", key = "#category", unless = "#result == null")
-    public List<ProductDTO> getProductsByCategory(Category category) {
-        return productRepository.findByCategory(category).stream()
-                .map(productMapper::toDTO)
-                .collect(Collectors.toList());
+    // cached one page at a time, a whole category can be large
+    @Cacheable(cacheNames = "products", key = "{#category, #pageable.pageNumber, #pageable.pageSize}", unless = "#result == null")
+    public Page<ProductDTO> getProductsByCategory(Category category, Pageable pageable) {
+        return productRepository.findByCategory(category, pageable).map(productMapper::toDTO);
     }
 
     @Transactional
     @CachePut(cacheNames = "products", key = "#id")
+    @CacheEvict(cacheNames = FilteredPageReader.COUNT_CACHE, allEntries = true)
     public ProductDTO changePrice(UUID id, Double amount) {
-        return productRepository.findById(id).map(product -> {
-            product.setPrice(amount);
-            return productMapper.toDTO(productRepository.save(product));
-        }).orElseThrow(() -> new ProductNotFoundException(LogMessages.PRODUCT_NOT_FOUND_BY_ID + id));
+        return productRepository.updatePriceReturning(id, amount)
+                .map(productMapper::toDTO)
+                .map(updated -> publishUpdate(updated, updated.getCategory(), updated.getQuantity()))
+                .orElseThrow(() -> new ProductNotFoundException(LogMessages.PRODUCT_NOT_FOUND_BY_ID + id));
     }
 
     @Transactional
     @CachePut(cacheNames = "products", key = "#id")
+    @CacheEvict(cacheNames = FilteredPageReader.COUNT_CACHE, allEntries = true)
     public ProductDTO increaseQuantity(UUID id, int amount) {
-        return productRepository.findById(id).map(product -> {
-            product.setQuantity(product.getQuantity() + amount);
-            return productMapper.toDTO(productRepository.save(product));
-        }).orElseThrow(() -> new ProductNotFoundException(LogMessages.PRODUCT_NOT_FOUND_BY_ID + id));
+        // incremented in the statement, concurrent increases cannot overwrite each other
+        return productRepository.increaseQuantityReturning(id, amount)
+                .map(productMapper::toDTO)
+                .map(updated -> publishUpdate(updated, updated.getCategory(), updated.getQuantity() - amount))
+                .orElseThrow(() -> new ProductNotFoundException(LogMessages.PRODUCT_NOT_FOUND_BY_ID + id));
+    }
+
+    // the writer commits on its own, in chunks if requested, and evicts only what it changed
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkResult bulkUpdate(BulkRequest bulkRequest) {
+        return publishReset(bulkWriter.update(Product.class, CACHE, bulkRequest, BULK_UPDATABLE));
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkResult bulkDelete(BulkRequest bulkRequest) {
+        return publishReset(bulkWriter.delete(Product.class, CACHE, bulkRequest));
+    }
+
+    // chunks are committed by the engine as they are written, a dry run changes nothing
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public PricingResult reprice(PricingRequest pricingRequest) {
+        PricingEngine.validate(pricingRequest.getRules());
+        PricingResult result = null;
+        try {
+            result = pricingEngine.run(pricingRequest.getRules(), pricingRequest.isDryRun());
+            return result;
+        } finally {
+            // a failed run may already have committed some chunks
+            if (!pricingRequest.isDryRun() && (result == null || result.written() > 0)) {
+                clearCaches(CACHE, FilteredPageReader.COUNT_CACHE);
+                eventPublisher.publishEvent(ProductChangedEvent.reset());
+            }
+        }
+    }
+
+    // a single insert, the foreign key tells whether the product exists
+    @Transactional
+    public ScheduledPriceChangeDTO schedulePriceChange(UUID productId, ScheduledPriceChangeDTO scheduledPriceChangeDTO) {
+        ScheduledPriceChange change = ScheduledPriceChange.builder()
+                .product(productRepository.getReferenceById(productId))
+                .price(scheduledPriceChangeDTO.getPrice())
+                .discount(scheduledPriceChangeDTO.getDiscount())
+                .effectiveAt(scheduledPriceChangeDTO.getEffectiveAt())
+                .build();
+        try {
+            change = scheduledPriceChangeRepository.saveAndFlush(change);
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isForeignKeyViolation(e)) {
+                throw e;
+            }
+            throw new ProductNotFoundException(LogMessages.PRODUCT_NOT_FOUND_BY_ID + productId);
+        }
+        priceChangeScheduler.track(change.getId(), change.getEffectiveAt());
+        return productMapper.toDTO(change);
+    }
+
+    public List<ScheduledPriceChangeDTO> getPendingPriceChanges(UUID productId) {
+        return scheduledPriceChangeRepository.findPendingByProductId(productId).stream()
+                .map(productMapper::toDTO)
+                .toList();
+    }
+
+    @Transactional
+    public void cancelPriceChange(UUID id) {
+        if (scheduledPriceChangeRepository.deletePendingById(id) == 0) {
+            throw new PriceChangeNotFoundException(LogMessages.PRICE_CHANGE_NOT_FOUND + id);
+        }
+        priceChangeScheduler.cancel(id);
+    }
+
+    // not cached, every call reads up to the current watermark
+    public ChangeFeed<ProductDTO> getChanges(long since, UUID after, int limit) {
+        return changeFeedReader.read(TABLE, since, after, limit, ids -> productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, productMapper::toDTO)));
+    }
+
+    public SseEmitter streamChanges(ProductStreamFilter filter, String lastEventId) {
+        return productChangeStream.subscribe(filter, lastEventId);
     }
 
     public List<String> getCategories() {
@@ -106,4 +273,32 @@ public class ProductService implements IProductService {
                 .map(Enum::name)
                 .collect(Collectors.toList());
     }
+
+    private ProductDTO publish(ProductChangeType type, ProductDTO product) {
+        eventPublisher.publishEvent(new ProductChangedEvent(type, product.getId(), product));
+        return product;
+    }
+
+    // with the state before the update, which stream filters also select on
+    private ProductDTO publishUpdate(ProductDTO product, String previousCategory, Integer previousQuantity) {
+        eventPublisher.publishEvent(new ProductChangedEvent(ProductChangeType.UPDATED, product.getId(), product, previousCategory, previousQuantity));
+        return product;
+    }
+
+    private void clearCaches(String... cacheNames) {
+        for (String cacheName : cacheNames) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    // bulk writes change too many products to stream one by one
+    private BulkResult publishReset(BulkResult result) {
+        if (result.affected() > 0) {
+            eventPublisher.publishEvent(ProductChangedEvent.reset());
+        }
+        return result;
+    }
 }
@@ -0,0 +1,9 @@
+package com.store.application.product;
+
+/**
+ * Projection of the {@link Product} columns product stream filters select on, as they were before an update
+ */
+public interface ProductStreamState {
+    String getCategory();
+    int getQuantity();
+}
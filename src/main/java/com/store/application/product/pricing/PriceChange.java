@@ -0,0 +1,9 @@
+package com.store.application.product.pricing;
+
+import java.util.UUID;
+
+public record PriceChange(UUID id, String name,
+                          Double oldPrice, Double newPrice,
+                          Double oldDiscount, Double newDiscount,
+                          Double effectivePrice) {
+}
@@ -0,0 +1,33 @@
+package com.store.application.product.pricing;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class Prices {
+    private Prices() {
+    }
+
+    public static Double round(Double amount) {
+        return amount == null ? null : BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    /**
+     * The price after the discount, which is a percentage of it.
+     */
+    public static Double effectivePrice(Double price, Double discount) {
+        if (price == null) {
+            return null;
+        }
+        double percent = discount == null ? 0 : Math.min(Math.max(discount, 0), 100);
+        return round(price * (100 - percent) / 100);
+    }
+
+    // 10.00 becomes 9.99, 10.20 becomes 10.99
+    static Double roundTo99(Double price) {
+        Double rounded = round(price);
+        if (rounded == null || rounded <= 0) {
+            return rounded;
+        }
+        return round(Math.ceil(rounded) - 0.01);
+    }
+}
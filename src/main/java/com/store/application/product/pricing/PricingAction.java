@@ -0,0 +1,10 @@
+package com.store.application.product.pricing;
+
+public enum PricingAction {
+    // discount percentage, 0 to 100
+    SET_DISCOUNT,
+    // price change in percent, negative values mark down
+    MARKUP,
+    // up to the next x.99
+    ROUND_TO_99
+}
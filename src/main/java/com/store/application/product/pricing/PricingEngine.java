@@ -0,0 +1,300 @@
+package com.store.application.product.pricing;
+
+import com.store.application.exceptions.InvalidPricingRuleException;
+import com.store.application.product.Category;
+import com.store.application.product.ProductRepository;
+import com.store.application.utils.LogMessages;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs pricing rules over the whole catalog. Products are read in id order, {@code pricing.chunk-size} at a time,
+ * and each chunk is evaluated with fork-join on a pool of {@code pricing.parallelism} workers while the next one is read.
+ * Only products whose price or discount changes are written back, {@code pricing.batch-size} rows per statement,
+ * each chunk in its own transaction.
+ * A row is only overwritten if it still holds the values the rules were evaluated on, so concurrent edits win.
+ */
+@Component
+@Slf4j
+public class PricingEngine {
+    // below this many rows a chunk is evaluated without splitting it further
+    private static final int SPLIT_THRESHOLD = 512;
+    private static final UUID NIL = new UUID(0, 0);
+    // a batch is one statement over arrays of the changed rows, rather than a statement per row
+    private static final String UPDATE_SQL = "update products p set price = c.price, discount = c.discount " +
+            "from unnest(?::uuid[], ?::float8[], ?::float8[], ?::float8[], ?::float8[]) " +
+            "as c(id, price, discount, read_price, read_discount) " +
+            "where p.id = c.id and p.price is not distinct from c.read_price and p.discount is not distinct from c.read_discount";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int chunkSize;
+    private final int batchSize;
+    private final int maxListedChanges;
+    private final MeterRegistry meterRegistry;
+
+    public PricingEngine(ProductRepository productRepository,
+                         DataSource dataSource,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${pricing.parallelism:4}") int parallelism,
+                         @Value("${pricing.chunk-size:5000}") int chunkSize,
+                         @Value("${pricing.batch-size:500}") int batchSize,
+                         @Value("${pricing.max-listed-changes:1000}") int maxListedChanges) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(this.parallelism);
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+        this.maxListedChanges = maxListedChanges;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Evaluates the rules against every product and, unless it is a dry run, writes the changed ones.
+     *
+     * @throws InvalidPricingRuleException if a rule is missing its value or its bounds are inverted
+     */
+    public PricingResult run(List<PricingRule> rules, boolean dryRun) {
+        validate(rules);
+        long startedAt = System.nanoTime();
+        Run run = new Run(rules, dryRun);
+        // bounds the chunks held in memory, reading pauses while every worker is busy
+        Semaphore slots = new Semaphore(parallelism);
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+
+        UUID after = NIL;
+        long index = 0;
+        List<ProductPrice> chunk;
+        do {
+            UUID from = after;
+            chunk = Objects.requireNonNull(readTransaction.execute(status ->
+                    productRepository.findByIdGreaterThanOrderByIdAsc(from, Limit.of(chunkSize))));
+            if (chunk.isEmpty()) {
+                break;
+            }
+            after = chunk.getLast().id();
+            acquire(slots);
+            List<ProductPrice> rows = chunk;
+            long position = index++ * chunkSize;
+            chunks.add(CompletableFuture.runAsync(() -> run.process(position, rows), pool)
+                    .whenComplete((ignored, e) -> {
+                        if (e != null) {
+                            run.failed = true;
+                        }
+                        slots.release();
+                    }));
+        } while (chunk.size() == chunkSize && !run.failed);
+        join(chunks);
+
+        long duration = System.nanoTime() - startedAt;
+        Timer.builder("pricing.run")
+                .description("Time to evaluate pricing rules over the catalog and write the changes")
+                .tag("mode", dryRun ? "dry-run" : "apply")
+                .register(meterRegistry)
+                .record(duration, TimeUnit.NANOSECONDS);
+        PricingResult result = new PricingResult(dryRun, run.evaluated.sum(), run.changed.sum(), run.written.sum(),
+                run.conflicts.sum(), TimeUnit.NANOSECONDS.toMillis(duration), List.copyOf(run.listed.values()));
+        log.info("Repricing {} {} products, {} changed, {} written, {} conflicts in {} ms", dryRun ? "evaluated" : "applied to",
+                result.evaluated(), result.changed(), result.written(), result.conflicts(), result.durationMs());
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private final class Run {
+        private final List<PricingRule> rules;
+        private final boolean dryRun;
+        private final LongAdder evaluated = new LongAdder();
+        private final LongAdder changed = new LongAdder();
+        private final LongAdder written = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        // keyed by position in the catalog, so the listed changes are the first ones in id order
+        private final TreeMap<Long, PriceChange> listed = new TreeMap<>();
+        private volatile boolean failed;
+
+        private Run(List<PricingRule> rules, boolean dryRun) {
+            this.rules = rules;
+            this.dryRun = dryRun;
+        }
+
+        private void process(long position, List<ProductPrice> rows) {
+            Map<Integer, PriceChange> changes = new Evaluation(rules, rows, 0, rows.size()).invoke();
+            evaluated.add(rows.size());
+            changed.add(changes.size());
+            List<Integer> offsets = changes.keySet().stream().sorted().limit(maxListedChanges).toList();
+            synchronized (listed) {
+                offsets.forEach(offset -> listed.put(position + offset, changes.get(offset)));
+                while (listed.size() > maxListedChanges) {
+                    listed.pollLastEntry();
+                }
+            }
+            if (!dryRun && !changes.isEmpty()) {
+                long updated = write(rows, changes);
+                written.add(updated);
+                conflicts.add(changes.size() - updated);
+            }
+        }
+    }
+
+    // changed rows of rows[from, to), by their index in the chunk
+    private static final class Evaluation extends RecursiveTask<Map<Integer, PriceChange>> {
+        private final List<PricingRule> rules;
+        private final List<ProductPrice> rows;
+        private final int from;
+        private final int to;
+
+        private Evaluation(List<PricingRule> rules, List<ProductPrice> rows, int from, int to) {
+            this.rules = rules;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<Integer, PriceChange> compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                Map<Integer, PriceChange> changes = new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    PriceChange change = evaluate(rules, rows.get(i));
+                    if (change != null) {
+                        changes.put(i, change);
+                    }
+                }
+                return changes;
+            }
+            int middle = (from + to) >>> 1;
+            Evaluation left = new Evaluation(rules, rows, from, middle);
+            left.fork();
+            Map<Integer, PriceChange> changes = new Evaluation(rules, rows, middle, to).compute();
+            changes.putAll(left.join());
+            return changes;
+        }
+    }
+
+    /**
+     * Runs the product through every rule it matches, in order.
+     *
+     * @return the change, or null if the price and discount stay the same
+     */
+    static PriceChange evaluate(List<PricingRule> rules, ProductPrice product) {
+        Double price = product.price();
+        Double discount = product.discount();
+        for (PricingRule rule : rules) {
+            if (!matches(rule, product.category(), price, product.quantity())) {
+                continue;
+            }
+            switch (rule.getAction()) {
+                case SET_DISCOUNT -> discount = rule.getValue();
+                case MARKUP -> price = price == null ? null : Prices.round(price * (100 + rule.getValue()) / 100);
+                case ROUND_TO_99 -> price = Prices.roundTo99(price);
+            }
+        }
+        if (Objects.equals(price, product.price()) && Objects.equals(discount, product.discount())) {
+            return null;
+        }
+        return new PriceChange(product.id(), product.name(), product.price(), price, product.discount(), discount,
+                Prices.effectivePrice(price, discount));
+    }
+
+    // price conditions see the price left by the rules before, so a markup can move a product into a later rule
+    private static boolean matches(PricingRule rule, Category category, Double price, int quantity) {
+        if (rule.getCategories() != null && !rule.getCategories().isEmpty() && !rule.getCategories().contains(category)) {
+            return false;
+        }
+        if ((rule.getMinPrice() != null || rule.getMaxPrice() != null) && price == null) {
+            return false;
+        }
+        return (rule.getMinPrice() == null || price >= rule.getMinPrice())
+                && (rule.getMaxPrice() == null || price <= rule.getMaxPrice())
+                && (rule.getMinQuantity() == null || quantity >= rule.getMinQuantity())
+                && (rule.getMaxQuantity() == null || quantity <= rule.getMaxQuantity());
+    }
+
+    private long write(List<ProductPrice> rows, Map<Integer, PriceChange> changes) {
+        List<Map.Entry<Integer, PriceChange>> entries = new ArrayList<>(changes.entrySet());
+        return Objects.requireNonNull(writeTransaction.execute(status -> {
+            long updated = 0;
+            for (int from = 0; from < entries.size(); from += batchSize) {
+                List<Map.Entry<Integer, PriceChange>> batch = entries.subList(from, Math.min(from + batchSize, entries.size()));
+                updated += jdbcTemplate.update(UPDATE_SQL, statement -> {
+                    Connection connection = statement.getConnection();
+                    statement.setArray(1, connection.createArrayOf("uuid", batch.stream().map(entry -> entry.getValue().id()).toArray()));
+                    statement.setArray(2, connection.createArrayOf("float8", batch.stream().map(entry -> entry.getValue().newPrice()).toArray()));
+                    statement.setArray(3, connection.createArrayOf("float8", batch.stream().map(entry -> entry.getValue().newDiscount()).toArray()));
+                    statement.setArray(4, connection.createArrayOf("float8", batch.stream().map(entry -> rows.get(entry.getKey()).price()).toArray()));
+                    statement.setArray(5, connection.createArrayOf("float8", batch.stream().map(entry -> rows.get(entry.getKey()).discount()).toArray()));
+                });
+            }
+            return updated;
+        }));
+    }
+
+    /**
+     * Checks the rules up front, before anything is read or written.
+     *
+     * @throws InvalidPricingRuleException if a rule is missing its value or its bounds are inverted
+     */
+    public static void validate(List<PricingRule> rules) {
+        rules.forEach(PricingEngine::validate);
+    }
+
+    private static void validate(PricingRule rule) {
+        Double value = rule.getValue();
+        boolean valid = switch (rule.getAction()) {
+            case SET_DISCOUNT -> value != null && value >= 0 && value <= 100;
+            case MARKUP -> value != null && value > -100;
+            case ROUND_TO_99 -> true;
+        };
+        valid &= rule.getMinPrice() == null || rule.getMaxPrice() == null || rule.getMinPrice() <= rule.getMaxPrice();
+        valid &= rule.getMinQuantity() == null || rule.getMaxQuantity() == null || rule.getMinQuantity() <= rule.getMaxQuantity();
+        if (!valid) {
+            throw new InvalidPricingRuleException(String.format(LogMessages.INVALID_PRICING_RULE, rule));
+        }
+    }
+
+    private static void acquire(Semaphore slots) {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while repricing", e);
+        }
+    }
+
+    private static void join(List<CompletableFuture<Void>> chunks) {
+        try {
+            CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
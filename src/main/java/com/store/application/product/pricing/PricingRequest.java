@@ -0,0 +1,16 @@
+package com.store.application.product.pricing;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PricingRequest {
+    // applied in order, a product goes through every rule it matches
+    @NotEmpty(message = "At least one pricing rule is required")
+    private List<@Valid PricingRule> rules;
+    // computes the changes without writing them
+    private boolean dryRun;
+}
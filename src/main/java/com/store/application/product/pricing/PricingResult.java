@@ -0,0 +1,11 @@
+package com.store.application.product.pricing;
+
+import java.util.List;
+
+/**
+ * Totals of a repricing run. {@code conflicts} are changed rows that were modified by someone else after being read
+ * and were left alone; {@code changes} lists at most {@code pricing.max-listed-changes} of them, in id order.
+ */
+public record PricingResult(boolean dryRun, long evaluated, long changed, long written, long conflicts,
+                            long durationMs, List<PriceChange> changes) {
+}
@@ -0,0 +1,30 @@
+package com.store.application.product.pricing;
+
+import com.store.application.product.Category;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+/**
+ * Applies its action to every product matching all of its conditions, unset conditions match any product.
+ * Price and quantity bounds are inclusive.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PricingRule {
+    private Set<Category> categories;
+    private Double minPrice;
+    private Double maxPrice;
+    private Integer minQuantity;
+    private Integer maxQuantity;
+    @NotNull(message = "Pricing action must not be null")
+    private PricingAction action;
+    // unused by ROUND_TO_99
+    private Double value;
+}
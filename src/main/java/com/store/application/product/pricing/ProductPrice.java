@@ -0,0 +1,9 @@
+package com.store.application.product.pricing;
+
+import com.store.application.product.Category;
+
+import java.util.UUID;
+
+// the columns pricing rules read, loaded without managed entities
+public record ProductPrice(UUID id, String name, Category category, Double price, int quantity, Double discount) {
+}
@@ -0,0 +1,7 @@
+package com.store.application.product.schedule;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+public record PendingPriceChange(UUID id, OffsetDateTime effectiveAt) {
+}
@@ -0,0 +1,378 @@
+package com.store.application.product.schedule;
+
+import com.store.application.product.stream.ProductChangedEvent;
+import com.store.application.utils.filters.FilteredPageReader;
+import com.store.application.utils.timing.TimingWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Applies scheduled price changes when they come due. Only the node holding the {@code price-changes.lock-key}
+ * PostgreSQL advisory lock runs them: it loads the changes due within {@code price-changes.load-horizon} into a
+ * hierarchical timing wheel, polls for new ones, and applies due changes in batches of one statement each.
+ * Changes whose time passed while no node was leading, e.g. during a restart, are applied on the first poll.
+ * The apply statement skips changes already marked applied, so a change is never applied twice even across a failover.
+ * Polling and ticking run on their own threads, so a long load or apply neither delays the ticks nor other scheduled tasks.
+ */
+@Component
+@Slf4j
+public class PriceChangeScheduler {
+    private static final int LOAD_PAGE_SIZE = 10_000;
+    private static final UUID NIL = new UUID(0, 0);
+
+    private final ScheduledPriceChangeRepository repository;
+    private final DataSource dataSource;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long lockKey;
+    private final Duration loadHorizon;
+    private final Duration pollInterval;
+    private final Duration reloadInterval;
+    private final Duration createdSlack;
+    private final long tickMillis;
+    private final int wheelSize;
+    private final int batchSize;
+    private final Counter applied;
+    private final Map<UUID, TimingWheel.Timeout<UUID>> pending = new ConcurrentHashMap<>();
+    // one thread polls and one ticks, off the shared scheduler
+    private final ScheduledExecutorService executor;
+
+    // the session holding the advisory lock, null while another node leads
+    private Connection lockConnection;
+    private TimingWheel<UUID> wheel;
+    // changes due up to this time are in the wheel
+    private long loadedUntil;
+    // start of the last poll that loaded, and of the last one loading every pending change
+    private long lastPoll;
+    private long lastFullLoad;
+
+    public PriceChangeScheduler(ScheduledPriceChangeRepository repository,
+                                DataSource dataSource,
+                                PlatformTransactionManager transactionManager,
+                                CacheManager cacheManager,
+                                ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry,
+                                @Value("${price-changes.lock-key:7236823}") long lockKey,
+                                @Value("${price-changes.poll-interval:PT30S}") Duration pollInterval,
+                                @Value("${price-changes.reload-interval:PT1H}") Duration reloadInterval,
+                                @Value("${price-changes.created-slack:PT1M}") Duration createdSlack,
+                                @Value("${price-changes.load-horizon:PT24H}") Duration loadHorizon,
+                                @Value("${price-changes.tick:PT1S}") Duration tick,
+                                @Value("${price-changes.wheel-size:512}") int wheelSize,
+                                @Value("${price-changes.batch-size:500}") int batchSize) {
+        this.repository = repository;
+        this.dataSource = dataSource;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.cacheManager = cacheManager;
+        this.eventPublisher = eventPublisher;
+        this.lockKey = lockKey;
+        this.loadHorizon = loadHorizon;
+        this.pollInterval = pollInterval;
+        this.reloadInterval = reloadInterval;
+        this.createdSlack = createdSlack;
+        this.tickMillis = tick.toMillis();
+        this.wheelSize = wheelSize;
+        this.batchSize = batchSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "price-changes-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.applied = Counter.builder("price.changes.applied")
+                .description("Products updated by scheduled price changes")
+                .register(meterRegistry);
+        Gauge.builder("price.changes.pending", pending, Map::size)
+                .description("Scheduled price changes waiting in this node's timing wheel")
+                .register(meterRegistry);
+        Gauge.builder("price.changes.leader", this, scheduler -> scheduler.isLeader() ? 1 : 0)
+                .description("1 while this node holds the lock and applies scheduled price changes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        executor.scheduleWithFixedDelay(() -> run("poll", this::poll), 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(() -> run("tick", this::tick), tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        stepDown();
+    }
+
+    /**
+     * Takes the lock if no node holds it, then loads the changes that came within the horizon: all of them when it just
+     * took the lock or every {@code price-changes.reload-interval}, otherwise only the ones created since the last poll
+     * and the ones the horizon moved over.
+     */
+    public void poll() {
+        if (!holdsLock() && !tryLock()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long until = now + loadHorizon.toMillis();
+        long from;
+        long createdSince;
+        boolean full;
+        synchronized (this) {
+            full = loadedUntil == 0 || now - lastFullLoad >= reloadInterval.toMillis();
+            from = loadedUntil;
+            // creation times come from the writing node's clock, and the change may commit a moment later
+            createdSince = lastPoll - createdSlack.toMillis();
+        }
+        OffsetDateTime fromTime = toTime(full ? 0 : from);
+        OffsetDateTime untilTime = toTime(until);
+        int loaded = load(after -> repository.findPendingDueBetween(fromTime, untilTime, after.effectiveAt(), after.id(), Limit.of(LOAD_PAGE_SIZE)));
+        if (!full && loaded >= 0) {
+            OffsetDateTime createdTime = toTime(createdSince);
+            int created = load(after -> repository.findPendingCreatedSince(createdTime, untilTime, after.effectiveAt(), after.id(), Limit.of(LOAD_PAGE_SIZE)));
+            loaded = created < 0 ? created : loaded + created;
+        }
+        if (loaded < 0) {
+            return;
+        }
+        synchronized (this) {
+            if (wheel == null) {
+                return;
+            }
+            loadedUntil = Math.max(loadedUntil, until);
+            lastPoll = now;
+            if (full) {
+                lastFullLoad = now;
+            }
+        }
+        if (loaded > 0) {
+            log.debug("Loaded {} scheduled price changes, {} pending", loaded, pending.size());
+        }
+    }
+
+    public void tick() {
+        List<UUID> due;
+        synchronized (this) {
+            if (wheel == null) {
+                return;
+            }
+            due = wheel.advance(System.currentTimeMillis());
+            due.forEach(pending::remove);
+        }
+        // in order of their time, so a later change to a product is never overwritten by an earlier one in a later batch
+        for (int from = 0; from < due.size(); from += batchSize) {
+            apply(due.subList(from, Math.min(from + batchSize, due.size())));
+        }
+    }
+
+    /**
+     * Adds a new change to the wheel once its transaction commits, if this node leads and it is due within the
+     * loaded horizon. Otherwise the leader picks it up on its next poll.
+     */
+    public void track(UUID id, OffsetDateTime effectiveAt) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(id, effectiveAt);
+                }
+            });
+        } else {
+            add(id, effectiveAt);
+        }
+    }
+
+    public void cancel(UUID id) {
+        TimingWheel.Timeout<UUID> timeout = pending.remove(id);
+        if (timeout != null) {
+            synchronized (this) {
+                timeout.cancel();
+            }
+        }
+    }
+
+    public synchronized boolean isLeader() {
+        return lockConnection != null;
+    }
+
+    public synchronized void stepDown() {
+        if (lockConnection != null) {
+            // closing the session releases the lock
+            try {
+                lockConnection.close();
+            } catch (SQLException e) {
+                log.debug("Could not close the price change lock session: {}", e.getMessage());
+            }
+            log.info("Stopped applying scheduled price changes, {} pending left to the next leader", pending.size());
+        }
+        lockConnection = null;
+        wheel = null;
+        pending.clear();
+        loadedUntil = 0;
+        lastPoll = 0;
+    }
+
+    // an exception would cancel the later runs
+    private void run(String task, Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (RuntimeException e) {
+            log.warn("Scheduled price change {} failed: {}", task, e.getMessage());
+        }
+    }
+
+    private synchronized void add(UUID id, OffsetDateTime effectiveAt) {
+        long deadline = effectiveAt.toInstant().toEpochMilli();
+        if (wheel != null && deadline <= loadedUntil && !pending.containsKey(id)) {
+            pending.put(id, wheel.add(id, deadline));
+        }
+    }
+
+    // a failed batch stays pending in the table and is loaded again by the next poll
+    private void apply(List<UUID> ids) {
+        try {
+            int updated = Objects.requireNonNull(writeTransaction.execute(status -> repository.applyDue(ids)));
+            if (updated > 0) {
+                applied.increment(updated);
+                evictProducts();
+                // published outside the transaction, so streamed right away
+                eventPublisher.publishEvent(ProductChangedEvent.reset());
+            }
+            log.debug("Applied {} scheduled price changes to {} products", ids.size(), updated);
+        } catch (RuntimeException e) {
+            log.warn("Could not apply {} scheduled price changes, retrying after the next poll: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    // keyset pages in time order, the number of changes added or -1 once this node stepped down
+    private int load(Function<PendingPriceChange, List<PendingPriceChange>> pageAfter) {
+        PendingPriceChange after = new PendingPriceChange(NIL, toTime(0));
+        List<PendingPriceChange> page;
+        int loaded = 0;
+        do {
+            PendingPriceChange from = after;
+            page = Objects.requireNonNull(readTransaction.execute(status -> pageAfter.apply(from)));
+            synchronized (this) {
+                if (wheel == null) {
+                    return -1;
+                }
+                for (PendingPriceChange change : page) {
+                    if (!pending.containsKey(change.id())) {
+                        pending.put(change.id(), wheel.add(change.id(), change.effectiveAt().toInstant().toEpochMilli()));
+                        loaded++;
+                    }
+                }
+            }
+            if (!page.isEmpty()) {
+                after = page.getLast();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+        return loaded;
+    }
+
+    private static OffsetDateTime toTime(long millis) {
+        return OffsetDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private void evictProducts() {
+        for (String cacheName : List.of("products", FilteredPageReader.COUNT_CACHE)) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private boolean holdsLock() {
+        Connection connection;
+        synchronized (this) {
+            connection = lockConnection;
+        }
+        if (connection == null) {
+            return false;
+        }
+        try {
+            if (connection.isValid(2)) {
+                return true;
+            }
+        } catch (SQLException e) {
+            log.debug("Could not check the price change lock session: {}", e.getMessage());
+        }
+        log.warn("Lost the price change lock session");
+        stepDown();
+        return false;
+    }
+
+    private boolean tryLock() {
+        Connection connection = null;
+        try {
+            connection = dataSource.getConnection();
+            boolean locked;
+            try (PreparedStatement statement = connection.prepareStatement("select pg_try_advisory_lock(?)")) {
+                statement.setLong(1, lockKey);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    locked = resultSet.next() && resultSet.getBoolean(1);
+                }
+            }
+            if (!locked) {
+                connection.close();
+                return false;
+            }
+            synchronized (this) {
+                lockConnection = connection;
+                wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+                pending.clear();
+                loadedUntil = 0;
+                lastPoll = 0;
+            }
+            log.info("Took the price change lock, this node applies scheduled price changes");
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Could not take the price change lock: {}", e.getMessage());
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException closeException) {
+                    log.debug("Could not close the price change lock session: {}", closeException.getMessage());
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.store.application.product.schedule;
+
+import com.store.application.product.Product;
+import com.store.application.utils.ids.UuidV7;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * A price and/or discount a product takes at {@code effectiveAt}, applied by {@link PriceChangeScheduler}.
+ */
+@Entity
+@Table(name = "scheduled_price_changes", indexes = {
+        // pending changes have a null applied_at, both scans of the scheduler are range scans within it
+        @Index(name = "idx_scheduled_price_changes_pending", columnList = "applied_at, effective_at, id"),
+        @Index(name = "idx_scheduled_price_changes_created", columnList = "applied_at, created_at"),
+        @Index(name = "idx_scheduled_price_changes_product", columnList = "product_id")
+})
+@Builder
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduledPriceChange {
+    @Id
+    @Column(name = "id", updatable = false, nullable = false)
+    @UuidV7
+    private UUID id;
+
+    // pending changes go with their product
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "product_id", nullable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @ToString.Exclude
+    private Product product;
+
+    // null keeps the current value
+    @Column(name = "price")
+    private Double price;
+
+    @Column(name = "discount")
+    private Double discount;
+
+    @Column(name = "effective_at", nullable = false)
+    private OffsetDateTime effectiveAt;
+
+    @Column(name = "applied_at")
+    private OffsetDateTime appliedAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private OffsetDateTime createdAt;
+}
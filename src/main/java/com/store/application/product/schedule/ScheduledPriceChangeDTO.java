@@ -0,0 +1,43 @@
+package com.store.application.product.schedule;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * DTO for {@link ScheduledPriceChange}
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ScheduledPriceChangeDTO implements Serializable {
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private UUID id;
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private UUID productId;
+    @Min(message = "Price cannot be negative", value = 0)
+    private Double price;
+    @Min(message = "Discount cannot be negative", value = 0)
+    @Max(message = "Discount cannot be above 100", value = 100)
+    private Double discount;
+    // a past instant applies the change right away
+    @NotNull(message = "Effective time is required")
+    private OffsetDateTime effectiveAt;
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private OffsetDateTime appliedAt;
+
+    @JsonIgnore
+    @AssertTrue(message = "A price or a discount is required")
+    public boolean isChangingPrice() {
+        return price != null || discount != null;
+    }
+}
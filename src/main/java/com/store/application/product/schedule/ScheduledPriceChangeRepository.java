@@ -0,0 +1,58 @@
+package com.store.application.product.schedule;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ScheduledPriceChangeRepository extends JpaRepository<ScheduledPriceChange, UUID> {
+    @Query("select c from ScheduledPriceChange c where c.product.id = :productId and c.appliedAt is null order by c.effectiveAt")
+    List<ScheduledPriceChange> findPendingByProductId(@Param("productId") UUID productId);
+
+    // keyset pages in (effective_at, id) order of the changes due after from and by until
+    @Query("select new com.store.application.product.schedule.PendingPriceChange(c.id, c.effectiveAt) from ScheduledPriceChange c " +
+            "where c.appliedAt is null and c.effectiveAt > :from and c.effectiveAt <= :until " +
+            "and c.effectiveAt >= :afterTime and (c.effectiveAt > :afterTime or c.id > :afterId) order by c.effectiveAt, c.id")
+    List<PendingPriceChange> findPendingDueBetween(@Param("from") OffsetDateTime from, @Param("until") OffsetDateTime until,
+                                                   @Param("afterTime") OffsetDateTime afterTime, @Param("afterId") UUID afterId,
+                                                   Limit limit);
+
+    // the same for the changes created since the given time, only a few between two polls
+    @Query("select new com.store.application.product.schedule.PendingPriceChange(c.id, c.effectiveAt) from ScheduledPriceChange c " +
+            "where c.appliedAt is null and c.createdAt >= :createdSince and c.effectiveAt <= :until " +
+            "and c.effectiveAt >= :afterTime and (c.effectiveAt > :afterTime or c.id > :afterId) order by c.effectiveAt, c.id")
+    List<PendingPriceChange> findPendingCreatedSince(@Param("createdSince") OffsetDateTime createdSince, @Param("until") OffsetDateTime until,
+                                                     @Param("afterTime") OffsetDateTime afterTime, @Param("afterId") UUID afterId,
+                                                     Limit limit);
+
+    @Modifying
+    @Query("delete from ScheduledPriceChange c where c.id = :id and c.appliedAt is null")
+    int deletePendingById(@Param("id") UUID id);
+
+    /**
+     * Marks the given changes applied and writes them to their products in one statement. Changes applied before,
+     * by this or another node, are skipped; of several changes to the same product the latest value of each column wins.
+     *
+     * @return the number of products updated
+     */
+    @Modifying
+    @Query(value = "with due as (" +
+            "update scheduled_price_changes set applied_at = now() " +
+            "where id in (:ids) and applied_at is null " +
+            "returning id, product_id, price, discount, effective_at), " +
+            "latest as (select product_id, " +
+            "(array_agg(price order by effective_at desc, id desc) filter (where price is not null))[1] as price, " +
+            "(array_agg(discount order by effective_at desc, id desc) filter (where discount is not null))[1] as discount " +
+            "from due group by product_id) " +
+            "update products p set price = coalesce(l.price, p.price), discount = coalesce(l.discount, p.discount) " +
+            "from latest l where p.id = l.product_id", nativeQuery = true)
+    int applyDue(@Param("ids") Collection<UUID> ids);
+}
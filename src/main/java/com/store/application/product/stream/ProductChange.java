@@ -0,0 +1,5 @@
+package com.store.application.product.stream;
+
+// a committed change and its position in the stream
+record ProductChange(long sequence, ProductChangedEvent event) {
+}
@@ -0,0 +1,150 @@
+package com.store.application.product.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fans committed product changes out to server-sent event subscribers. Each change gets the next sequence number and
+ * is kept in a ring of the last {@code products.stream.retained-events}, so a client reconnecting with
+ * {@code Last-Event-ID} gets what it missed; when that is no longer retained, or the id is from before a restart, it
+ * gets a reset instead. Idle subscribers hold no thread, changes are sent by a virtual thread per busy subscriber.
+ * Only writes made through this instance are streamed.
+ */
+@Component
+@Slf4j
+public class ProductChangeStream {
+    // event ids are <epoch>-<sequence>, the epoch tells sequences of an earlier run apart
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ProductChange[] retained;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final long timeout;
+    private final int bufferSize;
+    private final Counter coalesced;
+    private final Counter overflows;
+    // last assigned, guarded by retained
+    private long sequence;
+
+    public ProductChangeStream(MeterRegistry meterRegistry,
+                               @Value("${products.stream.retained-events:10000}") int retainedEvents,
+                               @Value("${products.stream.buffer-size:256}") int bufferSize,
+                               @Value("${products.stream.timeout:PT30M}") Duration timeout) {
+        this.retained = new ProductChange[retainedEvents];
+        this.bufferSize = bufferSize;
+        this.timeout = timeout.toMillis();
+        this.coalesced = Counter.builder("products.stream.coalesced")
+                .description("Product changes replaced by a newer change of the same product before they were sent")
+                .register(meterRegistry);
+        this.overflows = Counter.builder("products.stream.overflows")
+                .description("Times a subscriber fell a whole buffer behind and was sent a reset instead")
+                .register(meterRegistry);
+        Gauge.builder("products.stream.subscribers", subscribers, Set::size)
+                .description("Open product stream connections")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(ProductStreamFilter filter, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout);
+        Subscriber subscriber = new Subscriber(emitter, filter, bufferSize, epoch);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        synchronized (retained) {
+            // replayed and registered under the lock publishing takes, so no change is missed or sent twice
+            if (lastEventId != null) {
+                long from = resumeAfter(lastEventId);
+                if (from < 0) {
+                    offer(subscriber, new ProductChange(sequence, ProductChangedEvent.reset()));
+                } else {
+                    for (long next = from + 1; next <= sequence; next++) {
+                        offer(subscriber, retained[(int) (next % retained.length)]);
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        }
+        // opens the stream right away, even with nothing to replay
+        subscriber.ping();
+        schedule(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Runs after the publishing transaction commits, or right away without one. Only queues the change, a slow
+     * subscriber never holds up the writer.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (retained) {
+            ProductChange change = new ProductChange(++sequence, event);
+            retained[(int) (change.sequence() % retained.length)] = change;
+            for (Subscriber subscriber : subscribers) {
+                if (offer(subscriber, change) != Subscriber.Offer.SKIPPED) {
+                    schedule(subscriber);
+                }
+            }
+        }
+    }
+
+    // keeps idle connections from being closed by proxies, and finds the ones whose client is gone
+    @Scheduled(fixedDelayString = "${products.stream.heartbeat:PT15S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.ping();
+            schedule(subscriber);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        subscribers.forEach(subscriber -> subscriber.emitter().complete());
+        subscribers.clear();
+        senders.shutdownNow();
+    }
+
+    private Subscriber.Offer offer(Subscriber subscriber, ProductChange change) {
+        Subscriber.Offer offer = subscriber.offer(change);
+        if (offer == Subscriber.Offer.COALESCED) {
+            coalesced.increment();
+        } else if (offer == Subscriber.Offer.OVERFLOWED) {
+            overflows.increment();
+        }
+        return offer;
+    }
+
+    private void schedule(Subscriber subscriber) {
+        subscriber.schedule(senders, () -> {
+            subscribers.remove(subscriber);
+            subscriber.emitter().complete();
+        });
+    }
+
+    // the sequence to replay after, or -1 when the changes since are not all retained
+    private long resumeAfter(String lastEventId) {
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator < 0 || !epoch.equals(lastEventId.substring(0, separator))) {
+            return -1;
+        }
+        try {
+            long last = Long.parseLong(lastEventId.substring(separator + 1));
+            long oldest = Math.max(1, sequence - retained.length + 1);
+            return last <= sequence && last + 1 >= oldest ? last : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.store.application.product.stream;
+
+public enum ProductChangeType {
+    CREATED,
+    UPDATED,
+    DELETED,
+    // many products may have changed, e.g. by a bulk write or repricing, subscribers should fetch what they show again
+    RESET
+}
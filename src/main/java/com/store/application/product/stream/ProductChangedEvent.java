@@ -0,0 +1,21 @@
+package com.store.application.product.stream;
+
+import com.store.application.product.ProductDTO;
+
+import java.util.UUID;
+
+/**
+ * Published by product writes and sent to stream subscribers once the write commits. {@code product} is the state after
+ * the write, or the last state of a deleted product; a {@link ProductChangeType#RESET} carries neither id nor product.
+ * An {@link ProductChangeType#UPDATED} also carries the category and quantity the product had before, which stream
+ * filters select on, so a subscriber hears of a product leaving its filter.
+ */
+public record ProductChangedEvent(ProductChangeType type, UUID id, ProductDTO product, String previousCategory, Integer previousQuantity) {
+    public ProductChangedEvent(ProductChangeType type, UUID id, ProductDTO product) {
+        this(type, id, product, null, null);
+    }
+
+    public static ProductChangedEvent reset() {
+        return new ProductChangedEvent(ProductChangeType.RESET, null, null);
+    }
+}
@@ -0,0 +1,32 @@
+package com.store.application.product.stream;
+
+import com.store.application.product.Category;
+import com.store.application.product.ProductDTO;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * What a stream subscriber wants, the given conditions must all hold. With a {@code lowStock} threshold only products
+ * with at most that quantity are sent. A change is sent when the product matches before or after it, so the change
+ * that takes a product out of the categories or above the threshold is sent too. Resets pass every filter.
+ */
+public record ProductStreamFilter(Set<Category> categories, Set<UUID> ids, Integer lowStock) {
+
+    public boolean selects(ProductChangedEvent event) {
+        if (event.type() == ProductChangeType.RESET) {
+            return true;
+        }
+        if (ids != null && !ids.isEmpty() && !ids.contains(event.id())) {
+            return false;
+        }
+        ProductDTO product = event.product();
+        return (product != null && matches(product.getCategory(), product.getQuantity()))
+                || (event.previousCategory() != null && matches(event.previousCategory(), event.previousQuantity()));
+    }
+
+    private boolean matches(String category, int quantity) {
+        return (categories == null || categories.isEmpty() || categories.stream().anyMatch(selected -> selected.name().equals(category)))
+                && (lowStock == null || quantity <= lowStock);
+    }
+}
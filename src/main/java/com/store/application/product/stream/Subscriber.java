@@ -0,0 +1,120 @@
+package com.store.application.product.stream;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One stream connection and the changes not sent to it yet. They are kept at most one per product: a newer change of
+ * a product replaces the pending one and moves behind the others, so a slow client gets the latest state rather than
+ * every step. When more products are pending than the buffer holds, they are dropped for a single reset.
+ * Offering never blocks, sending happens on one task per subscriber at a time.
+ */
+@Slf4j
+final class Subscriber {
+    enum Offer { SKIPPED, QUEUED, COALESCED, OVERFLOWED }
+
+    private final SseEmitter emitter;
+    private final ProductStreamFilter filter;
+    private final int capacity;
+    private final String epoch;
+    private final LinkedHashMap<UUID, ProductChange> pending = new LinkedHashMap<>();
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private ProductChange reset;
+    private boolean heartbeat;
+
+    Subscriber(SseEmitter emitter, ProductStreamFilter filter, int capacity, String epoch) {
+        this.emitter = emitter;
+        this.filter = filter;
+        this.capacity = capacity;
+        this.epoch = epoch;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    synchronized Offer offer(ProductChange change) {
+        ProductChangedEvent event = change.event();
+        if (event.type() == ProductChangeType.RESET) {
+            pending.clear();
+            reset = change;
+            return Offer.QUEUED;
+        }
+        if (!filter.selects(event)) {
+            return Offer.SKIPPED;
+        }
+        if (pending.remove(event.id()) != null) {
+            pending.put(event.id(), change);
+            return Offer.COALESCED;
+        }
+        if (pending.size() == capacity) {
+            pending.clear();
+            reset = new ProductChange(change.sequence(), ProductChangedEvent.reset());
+            return Offer.OVERFLOWED;
+        }
+        pending.put(event.id(), change);
+        return Offer.QUEUED;
+    }
+
+    synchronized void ping() {
+        heartbeat = true;
+    }
+
+    // starts sending on the executor unless a task already is
+    void schedule(Executor executor, Runnable onFailure) {
+        if (sending.compareAndSet(false, true)) {
+            executor.execute(() -> send(onFailure));
+        }
+    }
+
+    private void send(Runnable onFailure) {
+        while (true) {
+            ProductChange next;
+            boolean ping;
+            synchronized (this) {
+                next = reset != null ? reset : poll();
+                reset = null;
+                ping = next == null && heartbeat;
+                heartbeat = false;
+                if (next == null && !ping) {
+                    // cleared under the lock offers take, an offer after this schedules a new task
+                    sending.set(false);
+                    return;
+                }
+            }
+            try {
+                if (next != null) {
+                    // blocks while the client is not reading, later changes coalesce in the meantime
+                    emitter.send(SseEmitter.event()
+                            .id(epoch + "-" + next.sequence())
+                            .name(next.event().type().name())
+                            .data(next.event(), MediaType.APPLICATION_JSON));
+                } else {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Product stream subscriber went away: {}", e.getMessage());
+                onFailure.run();
+                return;
+            }
+        }
+    }
+
+    private ProductChange poll() {
+        Iterator<ProductChange> iterator = pending.values().iterator();
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        ProductChange first = iterator.next();
+        iterator.remove();
+        return first;
+    }
+}
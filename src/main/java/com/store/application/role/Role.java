@@ -3,11 +3,11 @@ package com.store.application.role;
 import com.fasterxml.jackson.annotation.*;
 import com.store.application.permission.Permission;
 import com.store.application.user.User;
+import com.store.application.utils.ids.UuidV7;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
-import org.hibernate.annotations.UuidGenerator;
 
 import java.util.Collection;
 import java.util.Date;
@@ -27,8 +27,7 @@ import java.util.UUID;
 public class Role {
     @Id
     @Column(name = "id", updatable = false, nullable = false)
-    @GeneratedValue(generator = "UUID", strategy = GenerationType.UUID)
-    @UuidGenerator
+    @UuidV7
     private UUID id;
 
     @Column(unique = true, nullable = false)
@@ -47,16 +46,18 @@ public class Role {
     private Date updatedAt;
 
     @ManyToMany(mappedBy = "roles")
+    @ToString.Exclude
     @JsonIdentityReference(alwaysAsId = true)
     private Collection<User> users;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
             name = "roles_permissions",
             joinColumns = @JoinColumn(
                     name = "role_id", referencedColumnName = "id"),
             inverseJoinColumns = @JoinColumn(
                     name = "permission_id", referencedColumnName = "id"))
+    @ToString.Exclude
     @JsonIdentityReference(alwaysAsId = true)
     private Collection<Permission> permissions;
 }
@@ -4,6 +4,7 @@ import com.store.application.exceptions.PermissionNotFoundException;
 import com.store.application.exceptions.RoleAlreadyExistsException;
 import com.store.application.exceptions.RoleNotFoundException;
 import com.store.application.exceptions.UserNotFoundException;
+import com.store.application.security.RequiresPermission;
 import com.store.application.utils.LogMessages;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -17,7 +18,6 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -40,7 +40,7 @@ public class RoleController {
                     content = {@Content(mediaType = "application/json", schema = @Schema(implementation = RoleDTO.class))}
             )
     })
-    @PreAuthorize("@securityService.hasPermission('READ')")
+    @RequiresPermission("READ")
     @GetMapping
     public ResponseEntity<List<RoleDTO>> getAllRoles() {
         List<RoleDTO> roles = roleService.getAllRoles();
@@ -52,7 +52,7 @@ public class RoleController {
             @ApiResponse(responseCode = "200", description = "Fetched role successfully"),
             @ApiResponse(responseCode = "404", description = "Role not found")
     })
-    @PreAuthorize("@securityService.hasPermission('READ')")
+    @RequiresPermission("READ")
     @GetMapping("/{id}")
     public ResponseEntity<RoleDTO> getRoleById(@Parameter(description = "Role id to get data for", required = true) @PathVariable UUID id) {
         Optional<RoleDTO> role = roleService.getRoleById(id);
@@ -68,7 +68,7 @@ public class RoleController {
             @ApiResponse(responseCode = "200", description = "Fetched roles for user successfully"),
             @ApiResponse(responseCode = "404", description = "User not found")
     })
-    @PreAuthorize("@securityService.hasPermission('READ')")
+    @RequiresPermission("READ")
     @GetMapping("/user/{userId}")
     public ResponseEntity<List<RoleDTO>> getRolesForUserId(@Parameter(description = "User id to get roles for", required = true) @PathVariable UUID userId) {
         try {
@@ -85,7 +85,7 @@ public class RoleController {
             @ApiResponse(responseCode = "409", description = "Role already exists"),
             @ApiResponse(responseCode = "400", description = "Error creating role")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @PostMapping
     public ResponseEntity<RoleDTO> createRole(@Parameter(description = "Role data to create", required = true) @Valid @RequestBody RoleDTO roleDTO) {
         try {
@@ -103,7 +103,7 @@ public class RoleController {
             @ApiResponse(responseCode = "200", description = "Updated role successfully"),
             @ApiResponse(responseCode = "404", description = "Role not found")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @PutMapping
     public ResponseEntity<RoleDTO> updateRole(@Parameter(description = "Role with updated data", required = true) @Valid @RequestBody RoleDTO updatedRoleDTO) {
         try {
@@ -119,7 +119,7 @@ public class RoleController {
             @ApiResponse(responseCode = "204", description = "Deleted role successfully"),
             @ApiResponse(responseCode = "404", description = "Role not found")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteRole(@Parameter(description = "Role id to delete data for", required = true) @PathVariable UUID id) {
         try {
@@ -1,9 +1,23 @@
 package com.store.application.role;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface RoleRepository extends JpaRepository<Role, UUID> {
     Role findByName(RoleEnum name);
+
+    @Query("select distinct r from Role r left join fetch r.permissions")
+    List<Role> findAllWithPermissions();
+
+    @EntityGraph(attributePaths = "permissions")
+    Optional<Role> findWithPermissionsById(UUID id);
+
+    @Query("select distinct r from User u join u.roles r left join fetch r.permissions where u.id = :userId")
+    List<Role> findAllByUserIdWithPermissions(@Param("userId") UUID userId);
 }
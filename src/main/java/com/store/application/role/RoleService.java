@@ -6,14 +6,21 @@ import com.store.application.exceptions.RoleNotFoundException;
 import com.store.application.exceptions.UserNotFoundException;
 import com.store.application.permission.Permission;
 import com.store.application.permission.PermissionRepository;
+import com.store.application.security.RbacChangedEvent;
+import com.store.application.security.RbacRegistry;
+import com.store.application.security.TokenRevocationEvent;
 import com.store.application.user.UserRepository;
 import com.store.application.utils.LogMessages;
+import com.store.application.utils.sql.ConstraintViolations;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,36 +37,51 @@ public class RoleService implements IRoleService {
 
     private RoleMapper roleMapper;
 
+    private RbacRegistry rbacRegistry;
+
+    private ApplicationEventPublisher eventPublisher;
+
     public List<RoleDTO> getAllRoles() {
-        return roleRepository.findAll().stream()
+        return roleRepository.findAllWithPermissions().stream()
                 .map(roleMapper::toDTO)
                 .collect(Collectors.toList());
     }
 
     public Optional<RoleDTO> getRoleById(UUID id) {
-        return roleRepository.findById(id)
+        return roleRepository.findWithPermissionsById(id)
                 .map(roleMapper::toDTO);
     }
 
     public List<RoleDTO> getRolesForUserId(UUID userId) {
-        return userRepository.findById(userId)
-                .map(user -> user.getRoles().stream()
-                        .map(roleMapper::toDTO)
-                        .collect(Collectors.toList()))
-                .orElseThrow(() -> new UserNotFoundException(LogMessages.USER_NOT_FOUND_BY_ID + userId));
+        List<Role> roles = roleRepository.findAllByUserIdWithPermissions(userId);
+        if (roles.isEmpty() && !userRepository.existsById(userId)) {
+            throw new UserNotFoundException(LogMessages.USER_NOT_FOUND_BY_ID + userId);
+        }
+        return roles.stream()
+                .map(roleMapper::toDTO)
+                .collect(Collectors.toList());
     }
 
     @Transactional
     public RoleDTO createRole(RoleDTO roleDTO) {
-        if (roleRepository.findByName(roleDTO.getName()) != null) {
-            throw new RoleAlreadyExistsException(LogMessages.ROLE_ALREADY_EXISTS_MESSAGE + roleDTO.getName());
-        }
         Role role = roleMapper.toEntity(roleDTO);
         role.setPermissions(roleDTO.getPermissions().stream()
-                .map(permissionId -> permissionRepository.findById(permissionId)
-                        .orElseThrow(() -> new PermissionNotFoundException(LogMessages.PERMISSION_NOT_FOUND_MESSAGE + permissionId)))
+                .map(permissionId -> resolvePermission(permissionId,
+                        () -> new PermissionNotFoundException(LogMessages.PERMISSION_NOT_FOUND_MESSAGE + permissionId)))
                 .collect(Collectors.toSet()));
-        return roleMapper.toDTO(roleRepository.save(role));
+        Role savedRole;
+        try {
+            // the id is generated in the application, so this is a single insert that the name constraint can reject
+            savedRole = roleRepository.saveAndFlush(role);
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isUniqueViolation(e)) {
+                throw e;
+            }
+            throw new RoleAlreadyExistsException(LogMessages.ROLE_ALREADY_EXISTS_MESSAGE + roleDTO.getName());
+        }
+        RoleDTO createdRole = roleMapper.toDTO(savedRole);
+        eventPublisher.publishEvent(new RbacChangedEvent());
+        return createdRole;
     }
 
     @Transactional
@@ -70,12 +92,15 @@ public class RoleService implements IRoleService {
 
             // Validate and set permissions
             Set<Permission> permissions = updatedRoleDTO.getPermissions().stream()
-                    .map(permissionId -> permissionRepository.findById(permissionId)
-                            .orElseThrow(() -> new IllegalArgumentException(LogMessages.INVALID_PERMISSION_ID + permissionId)))
+                    .map(permissionId -> resolvePermission(permissionId,
+                            () -> new IllegalArgumentException(LogMessages.INVALID_PERMISSION_ID + permissionId)))
                     .collect(Collectors.toSet());
             role.setPermissions(permissions);
 
-            return roleMapper.toDTO(roleRepository.save(role));
+            RoleDTO savedRole = roleMapper.toDTO(roleRepository.save(role));
+            revokeTokensForRole(role.getId());
+            eventPublisher.publishEvent(new RbacChangedEvent());
+            return savedRole;
         }).orElseThrow(() -> new RoleNotFoundException(LogMessages.ROLE_NOT_FOUND_MESSAGE + updatedRoleDTO.getId()));
     }
 
@@ -84,6 +109,23 @@ public class RoleService implements IRoleService {
         if (!roleRepository.existsById(id)) {
             throw new RoleNotFoundException(LogMessages.ROLE_NOT_FOUND_MESSAGE + id);
         }
+        revokeTokensForRole(id);
         roleRepository.deleteById(id);
+        eventPublisher.publishEvent(new RbacChangedEvent());
+    }
+
+    // existence is checked against the registry, the role only needs a reference to the row
+    private Permission resolvePermission(UUID permissionId, Supplier<? extends RuntimeException> notFound) {
+        if (!rbacRegistry.hasPermission(permissionId)) {
+            throw notFound.get();
+        }
+        return permissionRepository.getReferenceById(permissionId);
+    }
+
+    private void revokeTokensForRole(UUID roleId) {
+        // authorities are baked into issued tokens, so every holder of the role has to get a fresh one
+        userRepository.incrementTokenVersionByRoleId(roleId);
+        userRepository.findTokenStatesByRoleId(roleId).forEach(state -> eventPublisher.publishEvent(
+                new TokenRevocationEvent(state.getEmail(), state.getTokenVersion(), state.isEnabled())));
     }
 }
@@ -0,0 +1,149 @@
+package com.store.application.security;
+
+import com.store.application.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Fixed-window attempt budgets for the /auth endpoints, one per client IP and one per account,
+ * checked before any password is hashed so that a brute force attempt is turned away cheaply.
+ * A successful attempt is given back, so only failures use up the budgets.
+ */
+@Component
+public class AuthAttemptLimiter {
+    private final Map<String, Window> windowsByIp = new ConcurrentHashMap<>();
+    private final Map<String, Window> windowsByAccount = new ConcurrentHashMap<>();
+    private final int attemptsPerIp;
+    private final int attemptsPerAccount;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+    private final Counter rejectedByIp;
+    private final Counter rejectedByAccount;
+
+    @Autowired
+    public AuthAttemptLimiter(@Value("${security.auth.attempts-per-ip:20}") int attemptsPerIp,
+                              @Value("${security.auth.attempts-per-account:5}") int attemptsPerAccount,
+                              @Value("${security.auth.attempts-window:PT1M}") Duration window,
+                              MeterRegistry meterRegistry) {
+        this(attemptsPerIp, attemptsPerAccount, window, meterRegistry, System::nanoTime);
+    }
+
+    AuthAttemptLimiter(int attemptsPerIp, int attemptsPerAccount, Duration window,
+                       MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.attemptsPerIp = attemptsPerIp;
+        this.attemptsPerAccount = attemptsPerAccount;
+        this.windowNanos = window.toNanos();
+        this.nanoClock = nanoClock;
+        this.rejectedByIp = rejectedCounter("ip", meterRegistry);
+        this.rejectedByAccount = rejectedCounter("account", meterRegistry);
+    }
+
+    /**
+     * Spends one attempt from the budget of the client IP and of the account.
+     *
+     * @throws TooManyRequestsException if either budget is exhausted for the current window
+     */
+    public void acquire(String clientIp, String account) {
+        long now = nanoClock.getAsLong();
+        if (clientIp != null) {
+            long retryAfter = tryAcquire(windowsByIp, clientIp, attemptsPerIp, now);
+            if (retryAfter > 0) {
+                rejectedByIp.increment();
+                throw new TooManyRequestsException("Too many authentication attempts from this address", retryAfter);
+            }
+        }
+        if (account != null) {
+            long retryAfter = tryAcquire(windowsByAccount, account.toLowerCase(Locale.ROOT), attemptsPerAccount, now);
+            if (retryAfter > 0) {
+                rejectedByAccount.increment();
+                throw new TooManyRequestsException("Too many authentication attempts for this account", retryAfter);
+            }
+        }
+    }
+
+    /**
+     * Gives back the attempt of a request that succeeded, unless its window has ended since.
+     */
+    public void refund(String clientIp, String account) {
+        long now = nanoClock.getAsLong();
+        if (clientIp != null) {
+            refund(windowsByIp, clientIp, now);
+        }
+        if (account != null) {
+            refund(windowsByAccount, account.toLowerCase(Locale.ROOT), now);
+        }
+    }
+
+    // expired windows would otherwise pile up for every address and account ever seen
+    @Scheduled(fixedDelayString = "${security.auth.attempts-window:PT1M}")
+    public void evictExpired() {
+        long now = nanoClock.getAsLong();
+        windowsByIp.values().removeIf(window -> window.isExpired(now, windowNanos));
+        windowsByAccount.values().removeIf(window -> window.isExpired(now, windowNanos));
+    }
+
+    int trackedKeys() {
+        return windowsByIp.size() + windowsByAccount.size();
+    }
+
+    /**
+     * @return 0 if the attempt was allowed, otherwise the seconds until the window resets
+     */
+    private long tryAcquire(Map<String, Window> windows, String key, int limit, long now) {
+        Window window = windows.computeIfAbsent(key, k -> new Window(now));
+        synchronized (window) {
+            if (window.isExpired(now, windowNanos)) {
+                window.start = now;
+                window.attempts = 0;
+            }
+            if (window.attempts >= limit) {
+                long remaining = window.start + windowNanos - now;
+                return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining));
+            }
+            window.attempts++;
+            return 0;
+        }
+    }
+
+    private void refund(Map<String, Window> windows, String key, long now) {
+        Window window = windows.get(key);
+        if (window != null) {
+            synchronized (window) {
+                if (!window.isExpired(now, windowNanos) && window.attempts > 0) {
+                    window.attempts--;
+                }
+            }
+        }
+    }
+
+    private static Counter rejectedCounter(String scope, MeterRegistry meterRegistry) {
+        return Counter.builder("auth.attempts.rejected")
+                .description("Authentication attempts rejected because the attempt budget was exhausted")
+                .tag("scope", scope)
+                .register(meterRegistry);
+    }
+
+    private static final class Window {
+        private long start;
+        private int attempts;
+
+        private Window(long start) {
+            this.start = start;
+        }
+
+        private boolean isExpired(long now, long windowNanos) {
+            return now - start >= windowNanos;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.store.application.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+/**
+ * Picks the BCrypt strength whose verify time on this host is closest to, without exceeding, a target.
+ * Every extra unit of strength doubles the cost, so a cheap sample at a low strength is enough to extrapolate.
+ */
+@Slf4j
+public final class BCryptCalibrator {
+    public static final int MIN_STRENGTH = 10;
+    public static final int MAX_STRENGTH = 16;
+    private static final int SAMPLE_STRENGTH = 8;
+    private static final int SAMPLES = 5;
+
+    private BCryptCalibrator() {
+    }
+
+    public static int calibrate(Duration targetVerifyTime) {
+        long sampleNanos = measure(SAMPLE_STRENGTH);
+        int strength = strengthFor(targetVerifyTime.toNanos(), sampleNanos, SAMPLE_STRENGTH);
+        log.info("BCrypt calibrated to strength {} for a target verify time of {} ms (strength {} took {} µs)",
+                strength, targetVerifyTime.toMillis(), SAMPLE_STRENGTH, sampleNanos / 1_000);
+        return strength;
+    }
+
+    static int strengthFor(long targetNanos, long sampleNanos, int sampleStrength) {
+        int strength = sampleStrength;
+        long estimatedNanos = Math.max(1, sampleNanos);
+        while (strength < MAX_STRENGTH && estimatedNanos * 2 <= targetNanos) {
+            estimatedNanos *= 2;
+            strength++;
+        }
+        // never weaker than the BCryptPasswordEncoder default the existing hashes were created with
+        return Math.max(MIN_STRENGTH, strength);
+    }
+
+    // minimum of a few runs after a warm up, the noise on a busy host only ever adds time
+    private static long measure(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        String hash = encoder.encode("calibration");
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.matches("calibration", hash);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -1,28 +1,61 @@
 package com.store.application.security;
 
+import com.store.application.permission.Permission;
+import com.store.application.role.Role;
 import com.store.application.user.User;
 import com.store.application.user.UserRepository;
 import com.store.application.utils.LogMessages;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Primary;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
 
 @Service
 @Primary
+@Transactional(readOnly = true)
 @Slf4j
 @AllArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
     private final UserRepository userRepository;
+    private final RbacRegistry rbacRegistry;
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(email)
+        User user = userRepository.findWithRolesByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException(LogMessages.USER_NOT_FOUND_BY_EMAIL + email));
 
-        return new CustomUserDetails(user);
+        return new CustomUserDetails(user, getAuthorities(user.getRoles()));
+    }
+
+    private Collection<? extends GrantedAuthority> getAuthorities(Set<Role> roles) {
+        if (roles.size() == 1) {
+            Role role = roles.iterator().next();
+            Optional<RbacRegistry.RoleEntry> entry = rbacRegistry.findRole(role.getId());
+            if (entry.isPresent()) {
+                return entry.get().authorities();
+            }
+        }
+
+        Set<GrantedAuthority> authorities = new LinkedHashSet<>();
+        for (Role role : roles) {
+            rbacRegistry.findRole(role.getId()).ifPresentOrElse(
+                    entry -> authorities.addAll(entry.authorities()),
+                    () -> {
+                        // the registry has not caught up with a just created role yet
+                        authorities.add(new SimpleGrantedAuthority(RbacRegistry.ROLE_PREFIX + role.getName()));
+                        for (Permission permission : role.getPermissions()) {
+                            authorities.add(new SimpleGrantedAuthority(permission.getName()));
+                        }
+                    });
+        }
+        return authorities;
     }
 }
@@ -0,0 +1,37 @@
+package com.store.application.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Delegates every hash and verification to the {@link PasswordHashingExecutor} pool.
+ */
+@RequiredArgsConstructor
+public class IsolatedPasswordEncoder implements PasswordEncoder {
+    private final PasswordEncoder delegate;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return passwordHashingExecutor.execute(PasswordHashingExecutor.Operation.ENCODE, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return passwordHashingExecutor.execute(PasswordHashingExecutor.Operation.MATCHES, () -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Hashes the password in the background, used where the caller must not wait for the hash.
+     */
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        return passwordHashingExecutor.submit(PasswordHashingExecutor.Operation.ENCODE, () -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+}
@@ -0,0 +1,129 @@
+package com.store.application.security;
+
+import com.store.application.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs password hashing and verification on a small dedicated pool so that a burst of logins
+ * cannot take CPU away from the request threads serving the rest of the API.
+ * The queue is bounded, once it is full callers are rejected right away with a {@link TooManyRequestsException}.
+ */
+@Component
+@Slf4j
+public class PasswordHashingExecutor {
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+    private final Timer encodeQueueTime;
+    private final Timer encodeExecutionTime;
+    private final Timer matchesQueueTime;
+    private final Timer matchesExecutionTime;
+
+    public enum Operation { ENCODE, MATCHES }
+
+    public PasswordHashingExecutor(@Value("${security.password-hashing.threads:0}") int threads,
+                                   @Value("${security.password-hashing.queue-capacity:64}") int queueCapacity,
+                                   MeterRegistry meterRegistry) {
+        // by default leave at least half of the cores to everything else
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.rejected = Counter.builder("password.hash.rejected")
+                .description("Hash operations rejected because the hashing queue was full")
+                .register(meterRegistry);
+        this.encodeQueueTime = queueTimer(Operation.ENCODE, meterRegistry);
+        this.encodeExecutionTime = executionTimer(Operation.ENCODE, meterRegistry);
+        this.matchesQueueTime = queueTimer(Operation.MATCHES, meterRegistry);
+        this.matchesExecutionTime = executionTimer(Operation.MATCHES, meterRegistry);
+        Gauge.builder("password.hash.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Hash operations waiting for a hashing thread")
+                .register(meterRegistry);
+        log.info("Password hashing pool started with {} threads and a queue of {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Runs the hash operation on the hashing pool and waits for its result.
+     *
+     * @throws TooManyRequestsException if the hashing queue is full
+     */
+    public <T> T execute(Operation operation, Supplier<T> task) {
+        CompletableFuture<T> future = submit(operation, task);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Queues the hash operation on the hashing pool without waiting for it.
+     *
+     * @throws TooManyRequestsException if the hashing queue is full
+     */
+    public <T> CompletableFuture<T> submit(Operation operation, Supplier<T> task) {
+        Timer queueTime = operation == Operation.ENCODE ? encodeQueueTime : matchesQueueTime;
+        Timer executionTime = operation == Operation.ENCODE ? encodeExecutionTime : matchesExecutionTime;
+        long submittedAt = System.nanoTime();
+
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long startedAt = System.nanoTime();
+                queueTime.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return task.get();
+                } finally {
+                    executionTime.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new TooManyRequestsException("Too many authentication requests, please retry later");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static Timer queueTimer(Operation operation, MeterRegistry meterRegistry) {
+        return Timer.builder("password.hash.queue.time")
+                .description("Time hash operations wait for a hashing thread")
+                .tag("operation", operation.name().toLowerCase())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Timer executionTimer(Operation operation, MeterRegistry meterRegistry) {
+        return Timer.builder("password.hash.execution.time")
+                .description("Time spent hashing or verifying a password")
+                .tag("operation", operation.name().toLowerCase())
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,114 @@
+package com.store.application.security;
+
+import com.store.application.exceptions.TooManyRequestsException;
+import com.store.application.user.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Moves stored password hashes to the current algorithm and work factor as users log in.
+ * The new hash is computed in the background on the hashing pool and only the hashes are kept in memory,
+ * they are written in batches and only over the hash they replace, so a concurrent password change always wins.
+ */
+@Service
+@Slf4j
+@Transactional(readOnly = true)
+public class PasswordRehashService {
+    private final UserRepository userRepository;
+    private final IsolatedPasswordEncoder passwordEncoder;
+    private final int maxPending;
+    private final int batchSize;
+    private final Map<String, Rehash> pending = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> inFlight = new ConcurrentHashMap<>();
+    private final Counter scheduled;
+    private final Counter written;
+    private final Counter skipped;
+
+    private record Rehash(String storedHash, String newHash) {
+    }
+
+    public PasswordRehashService(UserRepository userRepository,
+                                 IsolatedPasswordEncoder passwordEncoder,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${security.password-hashing.rehash-max-pending:1000}") int maxPending,
+                                 @Value("${security.password-hashing.rehash-batch-size:100}") int batchSize) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        this.scheduled = rehashCounter("scheduled", meterRegistry);
+        this.written = rehashCounter("written", meterRegistry);
+        this.skipped = rehashCounter("skipped", meterRegistry);
+    }
+
+    /**
+     * Starts hashing the password again in the background. Best effort, when the hashing pool or the
+     * pending queue is full the upgrade is simply retried on a later login.
+     */
+    public void schedule(String email, String storedHash, String rawPassword) {
+        if (pending.size() + inFlight.size() >= maxPending || inFlight.putIfAbsent(email, Boolean.TRUE) != null) {
+            skipped.increment();
+            return;
+        }
+        try {
+            passwordEncoder.encodeAsync(rawPassword).whenComplete((newHash, exception) -> {
+                inFlight.remove(email);
+                if (exception != null) {
+                    log.warn("Could not rehash the password of {}: {}", email, exception.getMessage());
+                    skipped.increment();
+                } else {
+                    pending.put(email, new Rehash(storedHash, newHash));
+                }
+            });
+            scheduled.increment();
+        } catch (TooManyRequestsException e) {
+            inFlight.remove(email);
+            skipped.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${security.password-hashing.rehash-flush-interval:PT5S}")
+    @Transactional
+    public void flush() {
+        List<Map.Entry<String, Rehash>> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+        Iterator<Map.Entry<String, Rehash>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            Map.Entry<String, Rehash> entry = iterator.next();
+            iterator.remove();
+            batch.add(entry);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        int updated = 0;
+        for (Map.Entry<String, Rehash> entry : batch) {
+            Rehash rehash = entry.getValue();
+            updated += userRepository.updatePasswordIfUnchanged(entry.getKey(), rehash.storedHash(), rehash.newHash());
+        }
+        written.increment(updated);
+        log.debug("Upgraded {} of {} stale password hashes", updated, batch.size());
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    private static Counter rehashCounter(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("password.rehash")
+                .description("Transparent password hash upgrades on login")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
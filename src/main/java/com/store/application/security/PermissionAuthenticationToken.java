@@ -0,0 +1,40 @@
+package com.store.application.security;
+
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * Authentication built from a verified JWT that exposes the caller's permissions as a bitmask
+ * (see {@link RbacRegistry}) next to the regular authorities.
+ */
+public class PermissionAuthenticationToken extends AbstractAuthenticationToken {
+    private final Object principal;
+    private final long permissionMask;
+
+    public PermissionAuthenticationToken(Object principal, long permissionMask, Collection<? extends GrantedAuthority> authorities) {
+        super(authorities);
+        this.principal = principal;
+        this.permissionMask = permissionMask;
+        setAuthenticated(true);
+    }
+
+    public long getPermissionMask() {
+        return permissionMask;
+    }
+
+    public boolean hasAll(long requiredMask) {
+        return requiredMask != 0 && (permissionMask & requiredMask) == requiredMask;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public Object getPrincipal() {
+        return principal;
+    }
+}
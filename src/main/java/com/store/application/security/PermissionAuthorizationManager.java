@@ -0,0 +1,92 @@
+package com.store.application.security;
+
+import lombok.RequiredArgsConstructor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Authorizes {@link RequiresPermission} methods with a bit test against the caller's permission mask.
+ * The annotation is looked up once per method and its mask is only recomputed when the
+ * {@link RbacRegistry} reloads.
+ */
+@RequiredArgsConstructor
+public class PermissionAuthorizationManager implements AuthorizationManager<MethodInvocation> {
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final Supplier<RbacRegistry> rbacRegistryProvider;
+
+    private final Map<MethodClassKey, CompiledCheck> compiledChecks = new ConcurrentHashMap<>();
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, MethodInvocation invocation) {
+        RbacRegistry rbacRegistry = rbacRegistryProvider.get();
+        long requiredMask = requiredMask(invocation, rbacRegistry);
+
+        Authentication auth = authentication.get();
+        if (auth == null || !auth.isAuthenticated()) {
+            return DENIED;
+        }
+        if (auth instanceof PermissionAuthenticationToken permissionToken) {
+            return permissionToken.hasAll(requiredMask) ? GRANTED : DENIED;
+        }
+        // any other kind of authentication, e.g. during login or in tests, carries plain authorities only
+        long grantedMask = rbacRegistry.maskOfAuthorities(auth.getAuthorities());
+        return requiredMask != 0 && (grantedMask & requiredMask) == requiredMask ? GRANTED : DENIED;
+    }
+
+    private long requiredMask(MethodInvocation invocation, RbacRegistry rbacRegistry) {
+        Class<?> targetClass = invocation.getThis() != null ? AopUtils.getTargetClass(invocation.getThis()) : null;
+        MethodClassKey key = new MethodClassKey(invocation.getMethod(), targetClass);
+        int generation = rbacRegistry.getGeneration();
+
+        CompiledCheck check = compiledChecks.get(key);
+        if (check == null || check.generation() != generation) {
+            String[] permissionNames = check != null ? check.permissionNames() : resolvePermissionNames(invocation.getMethod(), targetClass);
+            check = new CompiledCheck(permissionNames, generation, compile(permissionNames, rbacRegistry));
+            compiledChecks.put(key, check);
+        }
+        return check.mask();
+    }
+
+    private static String[] resolvePermissionNames(Method method, Class<?> targetClass) {
+        Method specificMethod = AopUtils.getMostSpecificMethod(method, targetClass);
+        RequiresPermission annotation = AnnotatedElementUtils.findMergedAnnotation(specificMethod, RequiresPermission.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(specificMethod.getDeclaringClass(), RequiresPermission.class);
+        }
+        if (annotation == null) {
+            throw new IllegalStateException("No @RequiresPermission found on " + method);
+        }
+        return Arrays.stream(annotation.value())
+                .map(action -> action.toUpperCase() + RbacRegistry.PERMISSION_SUFFIX)
+                .toArray(String[]::new);
+    }
+
+    private static long compile(String[] permissionNames, RbacRegistry rbacRegistry) {
+        long mask = 0L;
+        for (String permissionName : permissionNames) {
+            long bit = rbacRegistry.maskOf(permissionName);
+            if (bit == 0L) {
+                // an unknown permission can never be granted
+                return 0L;
+            }
+            mask |= bit;
+        }
+        return mask;
+    }
+
+    private record CompiledCheck(String[] permissionNames, int generation, long mask) {
+    }
+}
@@ -0,0 +1,7 @@
+package com.store.application.security;
+
+/**
+ * Published by role and permission writes, {@link RbacRegistry} reloads once the transaction commits.
+ */
+public record RbacChangedEvent() {
+}
@@ -0,0 +1,176 @@
+package com.store.application.security;
+
+import com.store.application.permission.Permission;
+import com.store.application.permission.PermissionRepository;
+import com.store.application.role.Role;
+import com.store.application.role.RoleEnum;
+import com.store.application.role.RoleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+/**
+ * Immutable in-memory copy of the roles and permissions, which change rarely but are needed on every
+ * login, user write and authorization check.
+ * Each role keeps its precomputed authorities, and every {@link Permission} is mapped to its bit in the
+ * compact permission mask carried by tokens and by {@link PermissionAuthenticationToken}.
+ * Loaded at startup after {@link com.store.application.configs.SetupLoader} and swapped atomically
+ * whenever a role or permission write commits.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RbacRegistry {
+    public static final String PERMISSION_SUFFIX = "_PERM";
+    public static final String ROLE_PREFIX = "ROLE_";
+
+    private final RoleRepository roleRepository;
+    private final PermissionRepository permissionRepository;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    public record RoleEntry(UUID id, RoleEnum name, Set<UUID> permissionIds, List<GrantedAuthority> authorities) {
+    }
+
+    public record PermissionEntry(UUID id, String name, Integer bit) {
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onApplicationEvent() {
+        reload();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRbacChanged(RbacChangedEvent event) {
+        reload();
+    }
+
+    // serialized so that a slow reload can never overwrite a newer one
+    public synchronized void reload() {
+        load(roleRepository.findAllWithPermissions(), permissionRepository.findAll());
+    }
+
+    public void load(Collection<Role> roles, Collection<Permission> permissions) {
+        Map<UUID, PermissionEntry> permissionsById = new HashMap<>();
+        Map<String, Long> bitsByName = new HashMap<>();
+        GrantedAuthority[] authoritiesByBit = new GrantedAuthority[Long.SIZE];
+        for (Permission permission : permissions) {
+            permissionsById.put(permission.getId(), new PermissionEntry(permission.getId(), permission.getName(), permission.getBit()));
+            Integer bit = permission.getBit();
+            if (bit == null) {
+                log.warn("Permission {} has no bit assigned and cannot be granted", permission.getName());
+                continue;
+            }
+            if (bit < 0 || bit >= Long.SIZE) {
+                log.warn("Permission {} has bit {} outside the permission mask and cannot be granted", permission.getName(), bit);
+                continue;
+            }
+            bitsByName.put(permission.getName(), 1L << bit);
+            authoritiesByBit[bit] = new SimpleGrantedAuthority(permission.getName());
+        }
+
+        Map<UUID, RoleEntry> rolesById = new HashMap<>();
+        Map<RoleEnum, RoleEntry> rolesByName = new EnumMap<>(RoleEnum.class);
+        for (Role role : roles) {
+            Set<UUID> permissionIds = new HashSet<>();
+            List<GrantedAuthority> authorities = new ArrayList<>();
+            authorities.add(new SimpleGrantedAuthority(ROLE_PREFIX + role.getName()));
+            for (Permission permission : role.getPermissions()) {
+                permissionIds.add(permission.getId());
+                authorities.add(new SimpleGrantedAuthority(permission.getName()));
+            }
+            RoleEntry entry = new RoleEntry(role.getId(), role.getName(), Set.copyOf(permissionIds), List.copyOf(authorities));
+            rolesById.put(role.getId(), entry);
+            rolesByName.put(role.getName(), entry);
+        }
+
+        snapshot = new Snapshot(Map.copyOf(rolesById), Collections.unmodifiableMap(rolesByName), Map.copyOf(permissionsById),
+                Map.copyOf(bitsByName), authoritiesByBit, snapshot.generation() + 1);
+        log.info("Loaded {} roles and {} permissions into the RBAC registry", rolesById.size(), permissionsById.size());
+    }
+
+    /**
+     * Bumped on every reload, lets callers cache values computed from the registry.
+     */
+    public int getGeneration() {
+        return snapshot.generation();
+    }
+
+    public Optional<RoleEntry> findRole(UUID roleId) {
+        return Optional.ofNullable(snapshot.rolesById().get(roleId));
+    }
+
+    public Optional<RoleEntry> findRoleByName(RoleEnum name) {
+        return Optional.ofNullable(snapshot.rolesByName().get(name));
+    }
+
+    public boolean hasRole(UUID roleId) {
+        return snapshot.rolesById().containsKey(roleId);
+    }
+
+    public boolean hasPermission(UUID permissionId) {
+        return snapshot.permissionsById().containsKey(permissionId);
+    }
+
+    public long maskOf(String permissionName) {
+        return snapshot.bitsByName().getOrDefault(permissionName, 0L);
+    }
+
+    public long maskOfAction(String action) {
+        return maskOf(action.toUpperCase() + PERMISSION_SUFFIX);
+    }
+
+    public long maskOf(Collection<String> authorityNames) {
+        Map<String, Long> bitsByName = snapshot.bitsByName();
+        long mask = 0L;
+        for (String authority : authorityNames) {
+            mask |= bitsByName.getOrDefault(authority, 0L);
+        }
+        return mask;
+    }
+
+    public long maskOfAuthorities(Collection<? extends GrantedAuthority> authorities) {
+        Map<String, Long> bitsByName = snapshot.bitsByName();
+        long mask = 0L;
+        for (GrantedAuthority authority : authorities) {
+            mask |= bitsByName.getOrDefault(authority.getAuthority(), 0L);
+        }
+        return mask;
+    }
+
+    public List<GrantedAuthority> authoritiesOf(long mask) {
+        GrantedAuthority[] authoritiesByBit = snapshot.authoritiesByBit();
+        List<GrantedAuthority> authorities = new ArrayList<>(Long.bitCount(mask));
+        for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+            GrantedAuthority authority = authoritiesByBit[Long.numberOfTrailingZeros(remaining)];
+            if (authority != null) {
+                authorities.add(authority);
+            }
+        }
+        return authorities;
+    }
+
+    public static boolean isPermission(String authority) {
+        return authority.endsWith(PERMISSION_SUFFIX);
+    }
+
+    private record Snapshot(Map<UUID, RoleEntry> rolesById,
+                            Map<RoleEnum, RoleEntry> rolesByName,
+                            Map<UUID, PermissionEntry> permissionsById,
+                            Map<String, Long> bitsByName,
+                            GrantedAuthority[] authoritiesByBit,
+                            int generation) {
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), Map.of(), Map.of(), new GrantedAuthority[Long.SIZE], 0);
+    }
+}
@@ -0,0 +1,26 @@
+package com.store.application.security;
+
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * After a successful login hands stale password hashes to the {@link PasswordRehashService},
+ * unlike {@link DaoAuthenticationProvider#setUserDetailsPasswordService} which rehashes before responding.
+ */
+public class RehashingAuthenticationProvider extends DaoAuthenticationProvider {
+    private final PasswordRehashService passwordRehashService;
+
+    public RehashingAuthenticationProvider(PasswordRehashService passwordRehashService) {
+        this.passwordRehashService = passwordRehashService;
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication, UserDetails user) {
+        String storedHash = user.getPassword();
+        if (storedHash != null && authentication.getCredentials() != null && getPasswordEncoder().upgradeEncoding(storedHash)) {
+            passwordRehashService.schedule(user.getUsername(), storedHash, authentication.getCredentials().toString());
+        }
+        return super.createSuccessAuthentication(principal, authentication, user);
+    }
+}
@@ -0,0 +1,16 @@
+package com.store.application.security;
+
+import java.lang.annotation.*;
+
+/**
+ * Method security for the permission mask: the caller needs every listed action permission,
+ * e.g. {@code @RequiresPermission("READ")} requires {@code READ_PERM}.
+ * Resolved once per method by {@link PermissionAuthorizationManager} instead of evaluating SpEL per call.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface RequiresPermission {
+    String[] value();
+}
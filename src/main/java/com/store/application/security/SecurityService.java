@@ -1,19 +1,25 @@
 package com.store.application.security;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 @Service("securityService")
+@RequiredArgsConstructor
 public class SecurityService {
+    private final RbacRegistry rbacRegistry;
+
     public boolean hasPermission(String action) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
             return false;
         }
 
-        String permission = action.toUpperCase() + "_PERM";
-        return authentication.getAuthorities().stream()
-                .anyMatch(g -> g.getAuthority().equals(permission));
+        long required = rbacRegistry.maskOfAction(action);
+        if (authentication instanceof PermissionAuthenticationToken permissionToken) {
+            return permissionToken.hasAll(required);
+        }
+        return required != 0 && (rbacRegistry.maskOfAuthorities(authentication.getAuthorities()) & required) == required;
     }
 }
@@ -0,0 +1,8 @@
+package com.store.application.security;
+
+/**
+ * Published by user and role writes whenever the tokens already issued to {@code subject} must be re-checked.
+ * Applied to {@link TokenRevocationService} only once the publishing transaction commits.
+ */
+public record TokenRevocationEvent(String subject, int tokenVersion, boolean enabled) {
+}
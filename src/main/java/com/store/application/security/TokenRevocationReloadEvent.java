@@ -0,0 +1,8 @@
+package com.store.application.security;
+
+/**
+ * Published by writes that change the token state of users they cannot name one by one, such as bulk updates.
+ * {@link TokenRevocationService} reads the whole revocation state again once the publishing transaction commits.
+ */
+public record TokenRevocationReloadEvent() {
+}
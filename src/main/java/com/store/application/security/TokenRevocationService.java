@@ -0,0 +1,92 @@
+package com.store.application.security;
+
+import com.store.application.user.UserRepository;
+import com.store.application.user.UserTokenState;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of which issued tokens are no longer acceptable, so that stateless authorization
+ * never has to hit the database. A token is accepted only if its subject is not revoked (disabled or deleted)
+ * and its {@code ver} claim matches the subject's current token version. Deleted subjects are read back from their
+ * {@code deleted_users} rows, so they stay revoked across restarts.
+ * Only subjects with a non-zero version or a revocation are kept; everyone else is implicitly at version 0.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TokenRevocationService implements ApplicationListener<ContextRefreshedEvent> {
+
+    private final UserRepository userRepository;
+
+    private final Map<String, Integer> tokenVersions = new ConcurrentHashMap<>();
+
+    private final Set<String> revokedSubjects = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        tokenVersions.clear();
+        revokedSubjects.clear();
+        reload();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTokenRevocationReload(TokenRevocationReloadEvent event) {
+        reload();
+    }
+
+    private void reload() {
+        Set<String> disabled = new HashSet<>();
+        for (UserTokenState state : userRepository.findRevocationStates()) {
+            apply(state.getEmail(), state.getTokenVersion(), state.isEnabled());
+            if (!state.isEnabled()) {
+                disabled.add(state.getEmail());
+            }
+        }
+        revokedSubjects.addAll(userRepository.findDeletedEmails());
+        // revoked subjects enabled again since, deleted subjects have no row and stay revoked
+        Set<String> candidates = new HashSet<>(revokedSubjects);
+        candidates.removeAll(disabled);
+        if (!candidates.isEmpty()) {
+            userRepository.findEnabledEmails(candidates).forEach(revokedSubjects::remove);
+        }
+        log.info("Loaded token revocation state: {} versioned, {} revoked subjects", tokenVersions.size(), revokedSubjects.size());
+    }
+
+    public boolean isRevoked(String subject, int tokenVersion) {
+        return revokedSubjects.contains(subject) || tokenVersions.getOrDefault(subject, 0) != tokenVersion;
+    }
+
+    public int getTokenVersion(String subject) {
+        return tokenVersions.getOrDefault(subject, 0);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onTokenRevocation(TokenRevocationEvent event) {
+        apply(event.subject(), event.tokenVersion(), event.enabled());
+    }
+
+    private void apply(String subject, int tokenVersion, boolean enabled) {
+        if (!enabled) {
+            // a deleted subject may come back as a new user, starting above its last version
+            tokenVersions.remove(subject);
+            revokedSubjects.add(subject);
+            return;
+        }
+        revokedSubjects.remove(subject);
+        if (tokenVersion > 0) {
+            // commits can be delivered out of order, versions only ever move forward
+            tokenVersions.merge(subject, tokenVersion, Math::max);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.store.application.user;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * The last token version of a deleted user. Its tokens stay revoked across restarts, and a user created again with
+ * the same email starts above this version, see {@link UserRepository#saveDeletedTokenVersion}.
+ */
+@Entity
+@Table(name = "deleted_users")
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeletedUser {
+    @Id
+    @Column(name = "email", nullable = false)
+    private String email;
+
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+}
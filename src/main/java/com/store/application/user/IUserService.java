@@ -1,17 +1,26 @@
 package com.store.application.user;
 
 import com.store.application.utils.CustomResponse;
+import com.store.application.utils.changes.ChangeFeed;
+import com.store.application.utils.filters.BulkRequest;
+import com.store.application.utils.filters.BulkResult;
 import com.store.application.utils.filters.PageFilter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
-import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface IUserService {
-    List<UserDTO> getAllUsers();
+    Page<UserDTO> getAllUsers(Pageable pageable);
     CustomResponse<UserDTO> getAllUsersFilteredAndPaginated(PageFilter pageFilter);
+    CustomResponse<Map<String, Object>> getUserFieldsFilteredAndPaginated(PageFilter pageFilter);
     Optional<UserDTO> getUserById(UUID id);
     UserDTO createUser(UserDTO userDTO);
     UserDTO updateUser(UserDTO updatedUserDTO);
     void deleteUser(UUID id);
+    void revokeTokens(String email);
+    BulkResult bulkUpdate(BulkRequest bulkRequest);
+    ChangeFeed<UserDTO> getChanges(long since, UUID after, int limit);
 }
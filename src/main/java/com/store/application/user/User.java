@@ -2,11 +2,12 @@ package com.store.application.user;
 
 import com.fasterxml.jackson.annotation.*;
 import com.store.application.role.Role;
+import com.store.application.utils.ids.UuidV7;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
-import org.hibernate.annotations.UuidGenerator;
 
 import java.io.Serializable;
 import java.time.OffsetDateTime;
@@ -14,7 +15,8 @@ import java.util.*;
 
 @Entity
 @Table(name = "users", indexes = {
-        @Index(name = "idx_username", columnList = "username")
+        @Index(name = "idx_username", columnList = "username"),
+        @Index(name = "idx_users_change_seq_id", columnList = "change_seq, id")
 })
 @Builder
 @Getter
@@ -28,8 +30,7 @@ import java.util.*;
 public class User implements Serializable {
     @Id
     @Column(name = "id", updatable = false, nullable = false)
-    @GeneratedValue(generator = "UUID", strategy = GenerationType.UUID)
-    @UuidGenerator
+    @UuidV7
     private UUID id;
 
     @Column(nullable = false)
@@ -52,13 +53,22 @@ public class User implements Serializable {
     @Column(name = "enabled")
     private boolean enabled = true;
 
-    @ManyToMany(cascade = {CascadeType.MERGE, CascadeType.REFRESH, CascadeType.DETACH}, fetch = FetchType.EAGER)
+    @Column(name = "token_version", nullable = false)
+    @ColumnDefault("0")
+    private int tokenVersion;
+
+    @ManyToMany(cascade = {CascadeType.MERGE, CascadeType.REFRESH, CascadeType.DETACH}, fetch = FetchType.LAZY)
     @JoinTable(
             name = "users_roles",
             joinColumns = @JoinColumn(
                     name = "user_id", referencedColumnName = "id"),
             inverseJoinColumns = @JoinColumn(
                     name = "role_id", referencedColumnName = "id"))
+    @ToString.Exclude
     @JsonIdentityReference(alwaysAsId = true)
     private Set<Role> roles = new HashSet<>();
+
+    // stamped by the database on every write, see ChangeSequence
+    @Column(name = "change_seq", insertable = false, updatable = false)
+    private Long changeSeq;
 }
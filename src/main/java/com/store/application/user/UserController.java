@@ -3,8 +3,13 @@ package com.store.application.user;
 import com.store.application.exceptions.RoleNotFoundException;
 import com.store.application.exceptions.UserAlreadyExistsException;
 import com.store.application.exceptions.UserNotFoundException;
+import com.store.application.security.RequiresPermission;
 import com.store.application.utils.CustomResponse;
+import com.store.application.utils.changes.ChangeFeed;
+import com.store.application.utils.filters.BulkRequest;
+import com.store.application.utils.filters.BulkResult;
 import com.store.application.utils.filters.PageFilter;
+import com.store.application.utils.filters.SparseFields;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,12 +20,12 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -36,14 +41,15 @@ public class UserController {
     @Operation(summary = "Fetching all users", tags = { "users", "get" })
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200",
-                    description = "Successfully fetched all users",
+                    description = "Successfully fetched a page of users",
                     content = {@Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class))}
             )
     })
-    @PreAuthorize("@securityService.hasPermission('READ')")
+    @RequiresPermission("READ")
     @GetMapping
-    public ResponseEntity<List<UserDTO>> getAllUsers() {
-        List<UserDTO> users = userService.getAllUsers();
+    public ResponseEntity<Page<UserDTO>> getAllUsers(@RequestParam("page") int pageIndex,
+                                                     @RequestParam("size") int pageSize) {
+        Page<UserDTO> users = userService.getAllUsers(PageRequest.of(pageIndex, pageSize));
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
@@ -54,11 +60,13 @@ public class UserController {
                     content = {@Content(mediaType = "application/json", schema = @Schema(implementation = UserDTO.class))}
             )
     })
-    @PreAuthorize("@securityService.hasPermission('READ')")
+    @RequiresPermission("READ")
     @PostMapping("/get-filtered")
-    public ResponseEntity<CustomResponse<UserDTO>> getAllUsersFilteredAndPaginated(
+    public ResponseEntity<CustomResponse<?>> getAllUsersFilteredAndPaginated(
             @Parameter(description = "Filter & Pageable query", required = true) @Valid @RequestBody PageFilter pageFilter) {
-        CustomResponse<UserDTO> users = userService.getAllUsersFilteredAndPaginated(pageFilter);
+        CustomResponse<?> users = SparseFields.requested(pageFilter)
+                ? userService.getUserFieldsFilteredAndPaginated(pageFilter)
+                : userService.getAllUsersFilteredAndPaginated(pageFilter);
         return new ResponseEntity<>(users, HttpStatus.OK);
     }
 
@@ -67,7 +75,7 @@ public class UserController {
             @ApiResponse(responseCode = "200", description = "Successfully fetched user"),
             @ApiResponse(responseCode = "404", description = "User not found")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @GetMapping("/{id}")
     public ResponseEntity<UserDTO> getUserById(@Parameter(description = "User id to get data for", required = true) @PathVariable UUID id) {
         Optional<UserDTO> user = userService.getUserById(id);
@@ -81,7 +89,7 @@ public class UserController {
             @ApiResponse(responseCode = "409", description = "User already exists"),
             @ApiResponse(responseCode = "400", description = "Error creating user")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @PostMapping
     public ResponseEntity<UserDTO> createUser(@Parameter(description = "User data to create", required = true) @Valid @RequestBody UserDTO user) {
         try {
@@ -100,7 +108,7 @@ public class UserController {
             @ApiResponse(responseCode = "409", description = "User already exists"),
             @ApiResponse(responseCode = "404", description = "User not found")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @PutMapping
     public ResponseEntity<UserDTO> updateUser(@Parameter(description = "User with updated data", required = true) @Valid @RequestBody UserDTO updatedUser) {
         try {
@@ -120,7 +128,7 @@ public class UserController {
             @ApiResponse(responseCode = "204", description = "Successfully deleted user"),
             @ApiResponse(responseCode = "404", description = "User not found")
     })
-    @PreAuthorize("@securityService.hasPermission('WRITE')")
+    @RequiresPermission("WRITE")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(@Parameter(description = "User id to delete data for", required = true) @PathVariable UUID id) {
         try {
@@ -130,4 +138,31 @@ public class UserController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Updating all users matching a filter", tags = { "users", "patch" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully updated the matching users"),
+            @ApiResponse(responseCode = "400", description = "Invalid filter or assignment")
+    })
+    @RequiresPermission("WRITE")
+    @PatchMapping("/bulk")
+    public ResponseEntity<BulkResult> bulkUpdateUsers(
+            @Parameter(description = "Filter and field assignments, e.g. enabled SET false", required = true) @Valid @RequestBody BulkRequest bulkRequest) {
+        BulkResult result = userService.bulkUpdate(bulkRequest);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @Operation(summary = "Fetching the users changed after a sequence", tags = { "users", "get" })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully fetched the changes")
+    })
+    @RequiresPermission("READ")
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeFeed<UserDTO>> getChanges(
+            @Parameter(description = "Sequence to read after, 0 or the next of the previous call") @RequestParam(defaultValue = "0") long since,
+            @Parameter(description = "Id to read after within the since sequence, the after of the previous call") @RequestParam(required = false) UUID after,
+            @Parameter(description = "Most changes returned") @RequestParam(defaultValue = "1000") int limit) {
+        ChangeFeed<UserDTO> changes = userService.getChanges(since, after, limit);
+        return new ResponseEntity<>(changes, HttpStatus.OK);
+    }
+}
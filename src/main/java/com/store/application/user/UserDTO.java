@@ -31,6 +31,7 @@ public class UserDTO implements Serializable {
     private String email;
     @NotBlank(message = "Must set a password")
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    @ToString.Exclude
     private String password;
     @NotNull
     private Collection<UUID> roles;
@@ -3,6 +3,7 @@ package com.store.application.user;
 import com.store.application.role.Role;
 import org.springframework.stereotype.Component;
 
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Component
@@ -16,6 +17,25 @@ public class UserMapper {
                 .build();
     }
 
+    /**
+     * Folds the rows of {@link UserRoleRow} queries into one DTO per user, in the order the users first appear.
+     */
+    public List<UserDTO> toDTOs(List<UserRoleRow> rows) {
+        Map<UUID, UserDTO> users = new LinkedHashMap<>();
+        for (UserRoleRow row : rows) {
+            UserDTO user = users.computeIfAbsent(row.id(), id -> UserDTO.builder()
+                    .id(id)
+                    .username(row.username())
+                    .email(row.email())
+                    .roles(new HashSet<>())
+                    .build());
+            if (row.roleId() != null) {
+                user.getRoles().add(row.roleId());
+            }
+        }
+        return new ArrayList<>(users.values());
+    }
+
     public User toEntity(UserDTO userDTO) {
         return User.builder()
                 .id(userDTO.getId())
@@ -1,11 +1,80 @@
 package com.store.application.user;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID>, JpaSpecificationExecutor<User> {
     Optional<User> findByEmail(String email);
+
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesByEmail(String email);
+
+    // the page is cut in the subquery, so the role join cannot split a user across pages
+    @Query("select new com.store.application.user.UserRoleRow(u.id, u.username, u.email, r.id) from User u left join u.roles r " +
+            "where u.id in (select p.id from User p order by p.username, p.id limit :limit offset :offset) " +
+            "order by u.username, u.id")
+    List<UserRoleRow> findPageRows(@Param("offset") long offset, @Param("limit") int limit);
+
+    @Query("select new com.store.application.user.UserRoleRow(u.id, u.username, u.email, r.id) from User u left join u.roles r " +
+            "where u.id = :id")
+    List<UserRoleRow> findRowsById(@Param("id") UUID id);
+
+    @Query("select new com.store.application.user.UserRoleRow(u.id, u.username, u.email, r.id) from User u left join u.roles r " +
+            "where u.id in :ids")
+    List<UserRoleRow> findRowsByIds(@Param("ids") Collection<UUID> ids);
+
+    @Query("select u.email as email, u.tokenVersion as tokenVersion, u.enabled as enabled from User u " +
+            "where u.tokenVersion > 0 or u.enabled = false")
+    List<UserTokenState> findRevocationStates();
+
+    @Query("select u.email from User u where u.enabled = true and u.email in :emails")
+    List<String> findEnabledEmails(@Param("emails") Collection<String> emails);
+
+    @Query("select u.email as email, u.tokenVersion as tokenVersion, u.enabled as enabled from User u " +
+            "join u.roles r where r.id = :roleId")
+    List<UserTokenState> findTokenStatesByRoleId(@Param("roleId") UUID roleId);
+
+    // the user's role rows are deleted by the same statement, the returned state is needed to revoke their tokens
+    @Query(value = "with deleted_roles as (delete from users_roles where user_id = :id) " +
+            "delete from users where id = :id returning email, token_version as \"tokenVersion\", enabled", nativeQuery = true)
+    Optional<UserTokenState> deleteReturningTokenState(@Param("id") UUID id);
+
+    // versions only move forward, deleting a user created again with the same email keeps the higher one
+    @Modifying
+    @Query(value = "insert into deleted_users (email, token_version) values (:email, :tokenVersion) " +
+            "on conflict (email) do update set token_version = greatest(deleted_users.token_version, excluded.token_version)",
+            nativeQuery = true)
+    void saveDeletedTokenVersion(@Param("email") String email, @Param("tokenVersion") int tokenVersion);
+
+    // taken by the user created with the email, which starts above it
+    @Query(value = "delete from deleted_users where email = :email returning token_version", nativeQuery = true)
+    Optional<Integer> removeDeletedTokenVersion(@Param("email") String email);
+
+    @Query("select d.email from DeletedUser d")
+    List<String> findDeletedEmails();
+
+    @Modifying
+    @Query("update User u set u.tokenVersion = u.tokenVersion + 1 " +
+            "where u.id in (select ur.id from User ur join ur.roles r where r.id = :roleId)")
+    int incrementTokenVersionByRoleId(@Param("roleId") UUID roleId);
+
+    @Modifying
+    @Query("update User u set u.tokenVersion = u.tokenVersion + 1 " +
+            "where u.id in (select ur.id from User ur join ur.roles r join r.permissions p where p.id = :permissionId)")
+    int incrementTokenVersionByPermissionId(@Param("permissionId") UUID permissionId);
+
+    @Modifying
+    @Query("update User u set u.password = :newPassword where u.email = :email and u.password = :storedPassword")
+    int updatePasswordIfUnchanged(@Param("email") String email,
+                                  @Param("storedPassword") String storedPassword,
+                                  @Param("newPassword") String newPassword);
 }
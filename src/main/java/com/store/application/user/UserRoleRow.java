@@ -0,0 +1,10 @@
+package com.store.application.user;
+
+import java.util.UUID;
+
+/**
+ * One row per user and role, read by the {@link UserRepository} listing queries without loading entities.
+ * A user without roles has a single row with a {@code null} role id.
+ */
+public record UserRoleRow(UUID id, String username, String email, UUID roleId) {
+}
@@ -5,24 +5,37 @@ import com.store.application.exceptions.UserAlreadyExistsException;
 import com.store.application.exceptions.UserNotFoundException;
 import com.store.application.role.Role;
 import com.store.application.role.RoleRepository;
+import com.store.application.security.RbacRegistry;
+import com.store.application.security.TokenRevocationEvent;
+import com.store.application.security.TokenRevocationReloadEvent;
 import com.store.application.utils.CustomResponse;
 import com.store.application.utils.LogMessages;
-import com.store.application.utils.filters.ObjectSpecification;
+import com.store.application.utils.changes.ChangeFeed;
+import com.store.application.utils.changes.ChangeFeedReader;
+import com.store.application.utils.filters.BulkRequest;
+import com.store.application.utils.filters.BulkResult;
+import com.store.application.utils.filters.BulkWriter;
+import com.store.application.utils.filters.FilteredPage;
+import com.store.application.utils.filters.FilteredPageReader;
 import com.store.application.utils.filters.PageFilter;
+import com.store.application.utils.filters.SparseFields;
+import com.store.application.utils.sql.ConstraintViolations;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,6 +43,13 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 @AllArgsConstructor
 public class UserService implements IUserService {
+    private static final String ID = "id";
+    private static final String ROLES = "roles";
+    private static final String ENABLED = "enabled";
+    private static final String CACHE = "users";
+    private static final String TABLE = "users";
+    // the email is unique and the password is hashed per user, neither can be assigned in bulk
+    private static final Set<String> BULK_UPDATABLE = Set.of("username", ENABLED);
 
     private UserRepository userRepository;
 
@@ -39,79 +59,145 @@ public class UserService implements IUserService {
 
     private UserMapper userMapper;
 
+    private RbacRegistry rbacRegistry;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private FilteredPageReader filteredPageReader;
+
+    private BulkWriter bulkWriter;
+
+    private ChangeFeedReader changeFeedReader;
+
     @Cacheable(cacheNames = "users", unless = "#result == null")
-    public List<UserDTO> getAllUsers() {
-        return userRepository.findAll().stream().map(userMapper::toDTO).collect(Collectors.toList());
+    public Page<UserDTO> getAllUsers(Pageable pageable) {
+        List<UserDTO> users = userMapper.toDTOs(userRepository.findPageRows(pageable.getOffset(), pageable.getPageSize()));
+        return PageableExecutionUtils.getPage(users, pageable, userRepository::count);
     }
 
     @Cacheable(cacheNames = "users", unless = "#result == null")
     public CustomResponse<UserDTO> getAllUsersFilteredAndPaginated(PageFilter pageFilter) {
-        ObjectSpecification<User> specification = new ObjectSpecification<>(pageFilter.getFilters());
-        Pageable pageable = PageRequest.of(pageFilter.getPage(), pageFilter.getSize(), Sort.Direction.fromString(pageFilter.getOrder()), pageFilter.getSort());
-        Page<UserDTO> usersPage = userRepository.findAll(specification, pageable).map(userMapper::toDTO);
-
-        List<UserDTO> userDTOList = usersPage.getContent();
-
-        return CustomResponse.<UserDTO>builder()
-                .content(userDTOList)
-                .page(usersPage.getNumber() + 1)
-                .size(usersPage.getSize())
-                .total(usersPage.getTotalElements())
-                .totalPages(usersPage.getTotalPages())
-                .last(usersPage.isLast())
-                .build();
+        FilteredPage<User> page = filteredPageReader.read(User.class, pageFilter);
+        // roles are lazy, their ids for the whole page come from a single query
+        Map<UUID, UserDTO> usersById = userMapper.toDTOs(userRepository.findRowsByIds(page.content().stream().map(User::getId).toList())).stream()
+                .collect(Collectors.toMap(UserDTO::getId, Function.identity()));
+        return page.toResponse(page.content().stream().map(user -> usersById.get(user.getId())).toList());
+    }
+
+    @Cacheable(cacheNames = "users", key = "{'fields', #pageFilter}", unless = "#result == null")
+    public CustomResponse<Map<String, Object>> getUserFieldsFilteredAndPaginated(PageFilter pageFilter) {
+        List<String> fields = SparseFields.validate(UserDTO.class, pageFilter.getFields());
+        if (!fields.contains(ROLES)) {
+            FilteredPage<Map<String, Object>> page = filteredPageReader.read(User.class, pageFilter, fields);
+            return page.toResponse(page.content());
+        }
+        // roles are not a column, the page is read with its ids and their role ids come from a single query
+        List<String> columns = new ArrayList<>(List.of(ID));
+        fields.stream().filter(field -> !field.equals(ID) && !field.equals(ROLES)).forEach(columns::add);
+        FilteredPage<Map<String, Object>> page = filteredPageReader.read(User.class, pageFilter, columns);
+        Map<UUID, Collection<UUID>> rolesById = userMapper.toDTOs(userRepository.findRowsByIds(page.content().stream().map(row -> (UUID) row.get(ID)).toList())).stream()
+                .collect(Collectors.toMap(UserDTO::getId, UserDTO::getRoles));
+        return page.toResponse(page.content().stream().map(row -> {
+            Map<String, Object> user = new LinkedHashMap<>();
+            fields.forEach(field -> user.put(field, field.equals(ROLES) ? rolesById.get((UUID) row.get(ID)) : row.get(field)));
+            return user;
+        }).toList());
     }
 
     @Cacheable(cacheNames = "users", key = "#id", unless = "#result == null")
     public Optional<UserDTO> getUserById(UUID id) {
-        return userRepository.findById(id)
-                .map(userMapper::toDTO);
+        return userMapper.toDTOs(userRepository.findRowsById(id)).stream().findFirst();
     }
 
     @Transactional
-    @CacheEvict(cacheNames = "users", allEntries = true)
+    @CacheEvict(cacheNames = {"users", FilteredPageReader.COUNT_CACHE}, allEntries = true)
     public UserDTO createUser(UserDTO userDTO) {
-        if (userRepository.findByEmail(userDTO.getEmail()) != null) {
-            throw new UserAlreadyExistsException(String.format(LogMessages.USERNAME_ALREADY_EXISTS, userDTO.getUsername()));
-        }
         String encodedPassword = passwordEncoder.encode(userDTO.getPassword());
         User user = userMapper.toEntity(userDTO);
         user.setPassword(encodedPassword);
         user.setEnabled(true);
-        user.setRoles(userDTO.getRoles().stream()
-                .map(roleId -> roleRepository.findById(roleId)
-                        .orElseThrow(() -> new RoleNotFoundException(LogMessages.ROLE_NOT_FOUND + roleId)))
-                .collect(Collectors.toSet()));
-        return userMapper.toDTO(userRepository.save(user));
+        user.setRoles(resolveRoles(userDTO.getRoles()));
+        // tokens of a deleted user with this email must not become valid again
+        user.setTokenVersion(userRepository.removeDeletedTokenVersion(user.getEmail()).map(version -> version + 1).orElse(0));
+        User savedUser;
+        try {
+            // the id is generated in the application, so this is a single insert that the email constraint can reject
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isUniqueViolation(e)) {
+                throw e;
+            }
+            throw new UserAlreadyExistsException(String.format(LogMessages.USERNAME_ALREADY_EXISTS, userDTO.getUsername()));
+        }
+        publishTokenState(savedUser);
+        return userMapper.toDTO(savedUser);
     }
 
     @Transactional
-    @CacheEvict(cacheNames = "users", allEntries = true)
+    @CacheEvict(cacheNames = {"users", FilteredPageReader.COUNT_CACHE}, allEntries = true)
     public UserDTO updateUser(UserDTO updatedUserDTO) {
+        // the email is not updated, so no other user can conflict with it
         return userRepository.findById(updatedUserDTO.getId()).map(user -> {
-            User userWithSameUsername = userRepository.findByEmail(updatedUserDTO.getUsername())
-                    .orElseThrow(() -> new UsernameNotFoundException(LogMessages.USER_NOT_FOUND_BY_EMAIL + updatedUserDTO.getUsername()));
-            if (!userWithSameUsername.getId().equals(updatedUserDTO.getId())) {
-                throw new UserAlreadyExistsException(String.format(LogMessages.USERNAME_ALREADY_EXISTS, updatedUserDTO.getUsername()));
-            }
-
             user.setUsername(updatedUserDTO.getUsername());
             user.setPassword(passwordEncoder.encode(updatedUserDTO.getPassword()));
-            Set<Role> roles = updatedUserDTO.getRoles().stream()
-                    .map(roleId -> roleRepository.findById(roleId).orElseThrow(() -> new RoleNotFoundException(LogMessages.ROLE_NOT_FOUND + roleId)))
-                    .collect(Collectors.toSet());
-            user.setRoles(roles);
-            return userMapper.toDTO(userRepository.save(user));
+            user.setRoles(resolveRoles(updatedUserDTO.getRoles()));
+            // password and roles may have changed, tokens issued before this update are no longer valid
+            user.setTokenVersion(user.getTokenVersion() + 1);
+            User savedUser = userRepository.save(user);
+            publishTokenState(savedUser);
+            return userMapper.toDTO(savedUser);
         }).orElseThrow(() -> new UserNotFoundException(LogMessages.USER_NOT_FOUND_BY_ID + updatedUserDTO.getId()));
     }
 
     @Transactional
-    @CacheEvict(cacheNames = "users", allEntries = true)
+    @CacheEvict(cacheNames = {"users", FilteredPageReader.COUNT_CACHE}, allEntries = true)
     public void deleteUser(UUID id) {
-        if (!userRepository.existsById(id)) {
+        UserTokenState deleted = userRepository.deleteReturningTokenState(id).orElseThrow(() -> {
             log.error(LogMessages.USER_NOT_FOUND_BY_ID + "{}", id);
-            throw new UserNotFoundException(LogMessages.USER_NOT_FOUND_BY_ID + id);
+            return new UserNotFoundException(LogMessages.USER_NOT_FOUND_BY_ID + id);
+        });
+        userRepository.saveDeletedTokenVersion(deleted.getEmail(), deleted.getTokenVersion());
+        eventPublisher.publishEvent(new TokenRevocationEvent(deleted.getEmail(), deleted.getTokenVersion(), false));
+    }
+
+    @Transactional
+    public void revokeTokens(String email) {
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UserNotFoundException(LogMessages.USER_NOT_FOUND_BY_EMAIL + email));
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        publishTokenState(userRepository.save(user));
+    }
+
+    // the writer commits on its own, in chunks if requested, and evicts only what it changed
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkResult bulkUpdate(BulkRequest bulkRequest) {
+        BulkResult result = bulkWriter.update(User.class, CACHE, bulkRequest, BULK_UPDATABLE);
+        if (result.affected() > 0 && bulkRequest.getAssignments().stream().anyMatch(assignment -> ENABLED.equals(assignment.getField()))) {
+            // the affected users are not known one by one, the revocation state is read again
+            eventPublisher.publishEvent(new TokenRevocationReloadEvent());
         }
-        userRepository.deleteById(id);
+        return result;
+    }
+
+    // not cached, every call reads up to the current watermark; roles come with the users in a single query
+    public ChangeFeed<UserDTO> getChanges(long since, UUID after, int limit) {
+        return changeFeedReader.read(TABLE, since, after, limit, ids -> userMapper.toDTOs(userRepository.findRowsByIds(ids)).stream()
+                .collect(Collectors.toMap(UserDTO::getId, Function.identity())));
+    }
+
+    // existence is checked against the registry, the user only needs references to the role rows
+    private Set<Role> resolveRoles(Collection<UUID> roleIds) {
+        return roleIds.stream()
+                .map(roleId -> {
+                    if (!rbacRegistry.hasRole(roleId)) {
+                        throw new RoleNotFoundException(LogMessages.ROLE_NOT_FOUND + roleId);
+                    }
+                    return roleRepository.getReferenceById(roleId);
+                })
+                .collect(Collectors.toSet());
+    }
+
+    private void publishTokenState(User user) {
+        eventPublisher.publishEvent(new TokenRevocationEvent(user.getEmail(), user.getTokenVersion(), user.isEnabled()));
     }
 }
@@ -0,0 +1,10 @@
+package com.store.application.user;
+
+/**
+ * Projection of the {@link User} columns needed to decide whether an issued token is still valid
+ */
+public interface UserTokenState {
+    String getEmail();
+    int getTokenVersion();
+    boolean isEnabled();
+}
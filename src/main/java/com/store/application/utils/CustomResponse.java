@@ -1,5 +1,6 @@
 package com.store.application.utils;
 
+import com.store.application.utils.filters.CountStrategy;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -14,8 +15,11 @@ import java.util.List;
 public class CustomResponse<T> {
     private int page;
     private int size;
-    private long total;
-    private int totalPages;
+    // null when the page was read without counting
+    private Long total;
+    private Integer totalPages;
     private List<T> content;
     private boolean last;
+    // how total was computed, ESTIMATED totals are approximate
+    private CountStrategy countStrategy;
 }
@@ -1,55 +1,147 @@
 package com.store.application.utils;
 
-import lombok.AllArgsConstructor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestTemplate;
 
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Probes the database, the catalog and the external service on a background schedule, each with its own timeout,
+ * and serves the last result so that {@code /actuator/health} never waits on a dependency.
+ */
 @Component
-@AllArgsConstructor
+@Slf4j
 public class GeneralHealthIndicator implements HealthIndicator {
-    private RestTemplate restTemplate;
-    private JdbcTemplate jdbcTemplate;
+    // planner estimate, maintained by ANALYZE/autovacuum, -1 when the table was never analyzed
+    private static final String CATALOG_ESTIMATE_SQL = "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass('products')";
+    private static final String CATALOG_NOT_EMPTY_SQL = "SELECT EXISTS (SELECT 1 FROM products)";
+
+    private final RestTemplate restTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final String externalServiceUrl;
+    private final Duration timeout;
+    private final Duration staleAfter;
+    private final Map<String, Supplier<Health>> checks = new LinkedHashMap<>();
+    private final ExecutorService executor;
+
+    private volatile ProbeResult lastResult;
+
+    private record ProbeResult(Health health, long checkedAtNanos) {
+    }
+
+    public GeneralHealthIndicator(RestTemplate restTemplate, DataSource dataSource,
+                                  @Value("${health.external-service.url:}") String externalServiceUrl,
+                                  @Value("${health.probe.timeout:2s}") Duration timeout,
+                                  @Value("${health.probe.interval:PT15S}") Duration interval) {
+        this.restTemplate = restTemplate;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setQueryTimeout((int) Math.max(1, timeout.toSeconds()));
+        this.externalServiceUrl = externalServiceUrl;
+        this.timeout = timeout;
+        this.staleAfter = interval.multipliedBy(3);
+
+        checks.put("database", this::checkDatabase);
+        checks.put("catalog", this::checkCatalog);
+        if (StringUtils.hasText(externalServiceUrl)) {
+            checks.put("externalService", this::checkExternalService);
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(checks.size(), runnable -> {
+            Thread thread = new Thread(runnable, "health-probe-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     @Override
     public Health health() {
-        try {
-            if (!isDatabaseHealthy() || !isTableHealthy() || !isExternalServiceHealthy()) {
-                return Health.down().withDetail("Store", "Something is wrong").build();
-            }
-            return Health.up().withDetail("Store", "All is well").build();
-        } catch (Exception e) {
-            return Health.down(e).withDetail("Store", "Error").build();
+        ProbeResult result = lastResult;
+        if (result == null) {
+            return Health.unknown().withDetail("Store", "Waiting for the first probe").build();
+        }
+        if (System.nanoTime() - result.checkedAtNanos() > staleAfter.toNanos()) {
+            return Health.down().withDetail("Store", "Health probes are not running").withDetails(result.health().getDetails()).build();
         }
+        return result.health();
     }
 
-    private boolean isDatabaseHealthy() {
-        try {
-            jdbcTemplate.execute("SELECT 1");
-            return true;
-        } catch (Exception e) {
-            return false;
+    @Scheduled(fixedDelayString = "${health.probe.interval:PT15S}")
+    public void refresh() {
+        Map<String, CompletableFuture<Health>> running = new LinkedHashMap<>();
+        checks.forEach((name, check) -> running.put(name, CompletableFuture.supplyAsync(check, executor)));
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        boolean healthy = true;
+        Health.Builder builder = Health.up();
+        for (Map.Entry<String, CompletableFuture<Health>> entry : running.entrySet()) {
+            Health health = await(entry.getValue(), deadline);
+            healthy &= Status.UP.equals(health.getStatus());
+            builder.withDetail(entry.getKey(), health);
+        }
+
+        Health health = builder.status(healthy ? Status.UP : Status.DOWN)
+                .withDetail("Store", healthy ? "All is well" : "Something is wrong")
+                .withDetail("checkedAt", Instant.now().toString())
+                .build();
+        if (!healthy) {
+            log.warn("Health probe failed: {}", health.getDetails());
         }
+        lastResult = new ProbeResult(health, System.nanoTime());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
     }
 
-    private boolean isTableHealthy() {
+    private Health await(CompletableFuture<Health> future, long deadline) {
         try {
-            Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM products", Integer.class);
-            return count != null && count > 0;
-        } catch (Exception e) {
-            return false;
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return Health.down().withDetail("error", "Timed out after " + timeout.toMillis() + " ms").build();
+        } catch (ExecutionException e) {
+            return Health.down().withDetail("error", String.valueOf(e.getCause().getMessage())).build();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Health.unknown().build();
         }
     }
 
-    private boolean isExternalServiceHealthy() {
-        try {
-            String url = "http://external-service-url/api/health";
-            String response = restTemplate.getForObject(url, String.class);
-            return response != null && response.contains("UP");
-        } catch (Exception e) {
-            return false;
+    private Health checkDatabase() {
+        long start = System.nanoTime();
+        jdbcTemplate.execute("SELECT 1");
+        return Health.up().withDetail("latencyMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).build();
+    }
+
+    private Health checkCatalog() {
+        Long estimatedProducts = jdbcTemplate.queryForObject(CATALOG_ESTIMATE_SQL, Long.class);
+        if (estimatedProducts != null && estimatedProducts > 0) {
+            return Health.up().withDetail("estimatedProducts", estimatedProducts).build();
         }
+        // no statistics yet, fall back to a probe that stops at the first row
+        boolean hasProducts = Boolean.TRUE.equals(jdbcTemplate.queryForObject(CATALOG_NOT_EMPTY_SQL, Boolean.class));
+        return (hasProducts ? Health.up() : Health.down()).withDetail("estimatedProducts", "unknown").build();
+    }
+
+    private Health checkExternalService() {
+        String response = restTemplate.getForObject(externalServiceUrl, String.class);
+        return (response != null && response.contains("UP") ? Health.up() : Health.down()).build();
     }
 }
@@ -36,6 +36,7 @@ public class LogMessages {
     public static final String PERMISSION_NOT_FOUND = "Permission not found with id: ";
     public static final String UPDATED_PERMISSION = "Updated permission: ";
     public static final String PERMISSION_NOT_FOUND_MESSAGE = "Permission not found with id: ";
+    public static final String PERMISSION_LIMIT_EXCEEDED = "No permission bit left, at most %d permissions can exist";
 
 //    PRODUCT
     public static final String UPDATING_PRODUCT = "Updating product with id: ";
@@ -50,4 +51,11 @@ public class LogMessages {
     public static final String CHANGING_PRICE = "Changing price to product with id: ";
     public static final String CHANGING_QUANTITY = "Changing quantity to product with id: ";
     public static final String ERROR_CREATING_PRODUCT = "Error creating product: ";
+    public static final String INVALID_PRICING_RULE = "Invalid pricing rule: %s";
+    public static final String PRICE_CHANGE_NOT_FOUND = "Pending price change not found with id: ";
+
+//    FILTERS
+    public static final String INVALID_FIELDS = "Unknown fields %s, expected any of %s";
+    public static final String NO_ASSIGNMENTS = "At least one field assignment is required";
+    public static final String INVALID_ASSIGNMENT = "Invalid assignment: %s %s %s";
 }
@@ -0,0 +1,74 @@
+package com.store.application.utils.aop;
+
+import com.store.application.utils.CustomResponse;
+import com.store.application.utils.changes.ChangeFeed;
+import org.springframework.data.domain.Page;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Size-capped rendering of method arguments and results for {@link LoggingAspect}.
+ * Collections, pages and the responses holding them are summarized instead of printing their content,
+ * a {@code toString} of a whole page would be built in full only to be cut off.
+ */
+final class LogArguments {
+    private static final String ELLIPSIS = "...";
+
+    private LogArguments() {
+    }
+
+    static String renderAll(Object[] args, int maxLength) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(render(args[i], maxLength));
+        }
+        return builder.append(']').toString();
+    }
+
+    static String render(Object value, int maxLength) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Page<?> page) {
+            return "Page[number=" + page.getNumber() + ", size=" + page.getNumberOfElements()
+                    + ", total=" + page.getTotalElements() + "]";
+        }
+        if (value instanceof CustomResponse<?> response) {
+            return "CustomResponse[page=" + response.getPage() + ", size=" + sizeOf(response.getContent())
+                    + ", total=" + response.getTotal() + "]";
+        }
+        if (value instanceof ChangeFeed<?> feed) {
+            return "ChangeFeed[changes=" + sizeOf(feed.changes()) + ", next=" + feed.next() + ", more=" + feed.more() + "]";
+        }
+        if (value instanceof Collection<?> collection) {
+            return value.getClass().getSimpleName() + "[size=" + collection.size() + "]";
+        }
+        if (value instanceof Map<?, ?> map) {
+            return value.getClass().getSimpleName() + "[size=" + map.size() + "]";
+        }
+        if (value instanceof ResponseEntity<?> response) {
+            return "ResponseEntity[status=" + response.getStatusCode().value()
+                    + ", body=" + render(response.getBody(), maxLength) + "]";
+        }
+        if (value.getClass().isArray()) {
+            return value.getClass().getComponentType().getSimpleName() + "[" + java.lang.reflect.Array.getLength(value) + "]";
+        }
+        return truncate(String.valueOf(value), maxLength);
+    }
+
+    private static int sizeOf(Collection<?> collection) {
+        return collection == null ? 0 : collection.size();
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, Math.max(0, maxLength - ELLIPSIS.length())) + ELLIPSIS;
+    }
+}
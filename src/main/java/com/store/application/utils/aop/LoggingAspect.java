@@ -1,45 +1,126 @@
 package com.store.application.utils.aop;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Logs a sample of controller and service calls as structured key/value events.
+ * Whether a call is logged is decided before anything is rendered, and arguments and results are only
+ * rendered, capped in size, for sampled calls. Failures are always logged.
+ */
 @Aspect
 @Order(1)
 @Slf4j
 @Component
 public class LoggingAspect {
+    private final Layer controller;
+    private final Layer service;
+    private final int maxArgumentLength;
+
+    public LoggingAspect(@Value("${logging.aspect.controller-sample-rate:1.0}") double controllerSampleRate,
+                         @Value("${logging.aspect.service-sample-rate:0.1}") double serviceSampleRate,
+                         @Value("${logging.aspect.max-argument-length:200}") int maxArgumentLength,
+                         MeterRegistry meterRegistry) {
+        this.controller = new Layer("controller", controllerSampleRate, meterRegistry);
+        this.service = new Layer("service", serviceSampleRate, meterRegistry);
+        this.maxArgumentLength = maxArgumentLength;
+    }
+
     @Around("com.store.application.utils.aop.PointcutDeclarations.controllerMethods()")
     public Object logAroundController(ProceedingJoinPoint joinPoint) throws Throwable {
-        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        log.info("Entering Controller Method: {} with arguments: {}", signature.getMethod().getName(), Arrays.toString(joinPoint.getArgs()));
-        try {
-            Object result = joinPoint.proceed();
-            log.info("Exiting Controller Method: {} with result: {}", signature.getMethod().getName(), result);
-            return result;
-        } catch (Throwable throwable) {
-            log.error("Exception in Controller Method: {} with message: {}", signature.getMethod().getName(), throwable.getMessage());
-            throw throwable;
-        }
+        return logAround(joinPoint, controller);
     }
 
     @Around("com.store.application.utils.aop.PointcutDeclarations.serviceMethods()")
     public Object logAroundService(ProceedingJoinPoint joinPoint) throws Throwable {
-        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        log.info("Entering Service Method: {} with arguments: {}", signature.getMethod().getName(), Arrays.toString(joinPoint.getArgs()));
+        return logAround(joinPoint, service);
+    }
+
+    private Object logAround(ProceedingJoinPoint joinPoint, Layer layer) throws Throwable {
+        if (!layer.sample()) {
+            try {
+                return joinPoint.proceed();
+            } catch (Throwable throwable) {
+                logFailure(joinPoint, layer, throwable);
+                throw throwable;
+            }
+        }
+
+        long overheadStart = System.nanoTime();
+        log.atInfo()
+                .addKeyValue("layer", layer.name)
+                .addKeyValue("method", () -> methodName(joinPoint))
+                .addKeyValue("args", () -> LogArguments.renderAll(joinPoint.getArgs(), maxArgumentLength))
+                .log("enter");
+        long start = System.nanoTime();
+        long overhead = start - overheadStart;
+
+        Object result;
         try {
-            Object result = joinPoint.proceed();
-            log.info("Exiting Service Method: {} with result: {}", signature.getMethod().getName(), result);
-            return result;
+            result = joinPoint.proceed();
         } catch (Throwable throwable) {
-            log.error("Exception in Service Method: {} with message: {}", signature.getMethod().getName(), throwable.getMessage());
+            logFailure(joinPoint, layer, throwable);
             throw throwable;
         }
+
+        long end = System.nanoTime();
+        log.atInfo()
+                .addKeyValue("layer", layer.name)
+                .addKeyValue("method", () -> methodName(joinPoint))
+                .addKeyValue("durationMs", TimeUnit.NANOSECONDS.toMillis(end - start))
+                .addKeyValue("result", () -> LogArguments.render(result, maxArgumentLength))
+                .log("exit");
+        layer.overhead.record(overhead + System.nanoTime() - end, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private void logFailure(ProceedingJoinPoint joinPoint, Layer layer, Throwable throwable) {
+        log.atError()
+                .addKeyValue("layer", layer.name)
+                .addKeyValue("method", () -> methodName(joinPoint))
+                .addKeyValue("exception", throwable.getClass().getSimpleName())
+                .log("failed: {}", throwable.getMessage());
+    }
+
+    private static String methodName(ProceedingJoinPoint joinPoint) {
+        return joinPoint.getSignature().getDeclaringType().getSimpleName() + "." + joinPoint.getSignature().getName();
+    }
+
+    private static final class Layer {
+        private final String name;
+        private final double sampleRate;
+        private final Counter sampled;
+        private final Counter skipped;
+        private final Timer overhead;
+
+        private Layer(String name, double sampleRate, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.sampleRate = sampleRate;
+            this.sampled = Counter.builder("logging.aspect.calls").tag("layer", name).tag("sampled", "true")
+                    .description("Calls seen by the logging aspect").register(meterRegistry);
+            this.skipped = Counter.builder("logging.aspect.calls").tag("layer", name).tag("sampled", "false")
+                    .description("Calls seen by the logging aspect").register(meterRegistry);
+            this.overhead = Timer.builder("logging.aspect.overhead").tag("layer", name)
+                    .description("Time spent rendering and enqueueing the log events of a sampled call")
+                    .register(meterRegistry);
+        }
+
+        private boolean sample() {
+            boolean logged = log.isInfoEnabled()
+                    && (sampleRate >= 1.0 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate));
+            (logged ? sampled : skipped).increment();
+            return logged;
+        }
     }
 }
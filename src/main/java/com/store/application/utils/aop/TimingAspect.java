@@ -0,0 +1,116 @@
+package com.store.application.utils.aop;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records a {@code method.duration} timer per controller and service method, tagged by outcome.
+ * Runs inside {@link LoggingAspect} so logging is not part of the measured time. Timers are built once per method
+ * and exception type, so a call only costs a map lookup and a record.
+ */
+@Aspect
+@Order(2)
+@Component
+public class TimingAspect {
+    public static final String METRIC_NAME = "method.duration";
+    public static final String SUCCESS = "success";
+
+    private final MeterRegistry meterRegistry;
+    private final double[] percentiles;
+    private final boolean percentileHistogram;
+    private final Duration[] serviceLevelObjectives;
+    private final Map<Method, MethodTimers> timersByMethod = new ConcurrentHashMap<>();
+
+    public TimingAspect(MeterRegistry meterRegistry,
+                        @Value("${metrics.timing.percentiles:}") double[] percentiles,
+                        @Value("${metrics.timing.percentile-histogram:true}") boolean percentileHistogram,
+                        @Value("${metrics.timing.slo:}") Duration[] serviceLevelObjectives) {
+        this.meterRegistry = meterRegistry;
+        this.percentiles = percentiles;
+        this.percentileHistogram = percentileHistogram;
+        this.serviceLevelObjectives = serviceLevelObjectives;
+    }
+
+    @Around("com.store.application.utils.aop.PointcutDeclarations.controllerMethods()")
+    public Object timeController(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "controller");
+    }
+
+    @Around("com.store.application.utils.aop.PointcutDeclarations.serviceMethods()")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "service");
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String layer) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        MethodTimers timers = timersByMethod.get(method);
+        if (timers == null) {
+            timers = timersByMethod.computeIfAbsent(method, m -> new MethodTimers(layer, className(joinPoint, m), m.getName()));
+        }
+
+        long start = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            timers.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable throwable) {
+            timers.failure(throwable.getClass()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw throwable;
+        }
+    }
+
+    private static String className(ProceedingJoinPoint joinPoint, Method method) {
+        Object target = joinPoint.getTarget();
+        return target != null ? ClassUtils.getUserClass(target).getSimpleName() : method.getDeclaringClass().getSimpleName();
+    }
+
+    private final class MethodTimers {
+        private final String layer;
+        private final String className;
+        private final String methodName;
+        private final Timer success;
+        private final Map<Class<?>, Timer> failures = new ConcurrentHashMap<>();
+
+        private MethodTimers(String layer, String className, String methodName) {
+            this.layer = layer;
+            this.className = className;
+            this.methodName = methodName;
+            this.success = register(SUCCESS);
+        }
+
+        private Timer failure(Class<? extends Throwable> exceptionType) {
+            return failures.computeIfAbsent(exceptionType, type -> register(type.getSimpleName()));
+        }
+
+        private Timer register(String outcome) {
+            Timer.Builder builder = Timer.builder(METRIC_NAME)
+                    .description("Time spent in controller and service methods")
+                    .tag("layer", layer)
+                    .tag("class", className)
+                    .tag("method", methodName)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram(percentileHistogram);
+            if (percentiles.length > 0) {
+                builder.publishPercentiles(percentiles);
+            }
+            if (serviceLevelObjectives.length > 0) {
+                builder.serviceLevelObjectives(serviceLevelObjectives);
+            }
+            return builder.register(meterRegistry);
+        }
+    }
+}
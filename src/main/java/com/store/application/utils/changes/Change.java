@@ -0,0 +1,9 @@
+package com.store.application.utils.changes;
+
+import java.util.UUID;
+
+/**
+ * A row as of its latest change, {@code value} is null for a deleted row.
+ */
+public record Change<T>(long seq, UUID id, boolean deleted, T value) {
+}
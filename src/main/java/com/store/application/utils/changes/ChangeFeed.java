@@ -0,0 +1,12 @@
+package com.store.application.utils.changes;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Changes after a sequence, in sequence and then id order. {@code next} is the {@code since} of the following call, and
+ * {@code after} its {@code after} when the page ended inside a run of changes sharing a sequence, null otherwise;
+ * with {@code more} false the client is caught up to them.
+ */
+public record ChangeFeed<T>(List<Change<T>> changes, long next, UUID after, boolean more) {
+}
@@ -0,0 +1,115 @@
+package com.store.application.utils.changes;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Reads what changed in a tracked table after a sequence: a range scan of its {@code (change_seq, id)} index and one of
+ * the tombstones, up to the watermark below which no transaction is still running (see {@link ChangeSequence}).
+ * Changes sharing a sequence are ordered by id, so a page can end inside such a run and the next one resumes after
+ * its last id. The rows are then loaded by id, so a row changed again since is returned as it is now.
+ */
+@Component
+public class ChangeFeedReader {
+    private final EntityManager entityManager;
+    private final int maxLimit;
+
+    public ChangeFeedReader(EntityManager entityManager, @Value("${changes.max-limit:10000}") int maxLimit) {
+        this.entityManager = entityManager;
+        this.maxLimit = maxLimit;
+    }
+
+    record Entry(UUID id, long seq, boolean deleted) {
+    }
+
+    // by sequence, then id in the unsigned byte order PostgreSQL compares uuids in
+    static final Comparator<Entry> ORDER = Comparator.comparingLong(Entry::seq)
+            .thenComparing(Entry::id, (a, b) -> {
+                int high = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+                return high != 0 ? high : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+            });
+
+    // tied when the entry after the page has the same sequence as its last one
+    record Page(List<Entry> entries, boolean more, boolean tied) {
+    }
+
+    /**
+     * @param after the id to resume after within the {@code since} sequence, null to start after the whole sequence
+     * @param loader the current values of live rows by id, rows missing from it were deleted since and are skipped
+     */
+    public <T> ChangeFeed<T> read(String table, long since, UUID after, int limit, Function<Collection<UUID>, Map<UUID, T>> loader) {
+        int size = Math.max(1, Math.min(limit, maxLimit));
+        long until = watermark();
+        Page page = page(scan(table, since, after, until, size + 1), scanTombstones(table, since, after, until, size + 1), size);
+        List<Entry> entries = page.entries();
+        Map<UUID, T> values = loader.apply(entries.stream().filter(entry -> !entry.deleted()).map(Entry::id).toList());
+        List<Change<T>> changes = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            T value = entry.deleted() ? null : values.get(entry.id());
+            if (entry.deleted() || value != null) {
+                changes.add(new Change<>(entry.seq(), entry.id(), entry.deleted(), value));
+            }
+        }
+        if (!page.more()) {
+            // nothing below the watermark is left to read, a later call can start from it
+            return new ChangeFeed<>(changes, Math.max(since, until - 1), null, false);
+        }
+        Entry last = entries.getLast();
+        return new ChangeFeed<>(changes, last.seq(), page.tied() ? last.id() : null, true);
+    }
+
+    // the first changes of both scans, in sequence order, and whether there are more than fit
+    static Page page(List<Entry> rows, List<Entry> tombstones, int size) {
+        List<Entry> merged = new ArrayList<>(rows.size() + tombstones.size());
+        merged.addAll(rows);
+        merged.addAll(tombstones);
+        merged.sort(ORDER);
+        if (merged.size() <= size) {
+            return new Page(merged, false, false);
+        }
+        return new Page(List.copyOf(merged.subList(0, size)), true, merged.get(size).seq() == merged.get(size - 1).seq());
+    }
+
+    private long watermark() {
+        return ((Number) entityManager.createNativeQuery("select pg_snapshot_xmin(pg_current_snapshot())::text::bigint << "
+                + ChangeSequence.ROW_BITS).getSingleResult()).longValue();
+    }
+
+    private List<Entry> scan(String table, long since, UUID after, long until, int limit) {
+        return scan(entityManager.createNativeQuery("select id, change_seq from " + table + " where " + keyset(after)),
+                since, after, until, limit, false);
+    }
+
+    private List<Entry> scanTombstones(String table, long since, UUID after, long until, int limit) {
+        return scan(entityManager.createNativeQuery("select id, change_seq from change_tombstones where table_name = :table and " + keyset(after))
+                .setParameter("table", table), since, after, until, limit, true);
+    }
+
+    // a range of the (change_seq, id) order, ids only compared within the since sequence
+    private static String keyset(UUID after) {
+        return (after == null ? "change_seq > :since" : "(change_seq, id) > (:since, :after)") +
+                " and change_seq < :until order by change_seq, id limit :limit";
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Entry> scan(Query query, long since, UUID after, long until, int limit, boolean deleted) {
+        query.setParameter("since", since)
+                .setParameter("until", until)
+                .setParameter("limit", limit);
+        if (after != null) {
+            query.setParameter("after", after);
+        }
+        List<Object[]> rows = query.getResultList();
+        return rows.stream().map(row -> new Entry((UUID) row[0], ((Number) row[1]).longValue(), deleted)).toList();
+    }
+}
@@ -0,0 +1,107 @@
+package com.store.application.utils.changes;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Installs the triggers that stamp every insert and update of the tracked tables with a change sequence in their
+ * {@code change_seq} column, and record deleted rows as tombstones in {@code change_tombstones}.
+ * A sequence is the writing transaction's id shifted left by {@link #ROW_BITS}, plus the row's position within the
+ * transaction. A transaction that commits later than another started has a higher id, so rows written by transactions
+ * older than the oldest one still running are final: the feed is read up to that watermark, and no commit can land
+ * below a sequence already handed out. Past 2^20 rows in one transaction the rest share the last sequence, which the
+ * feed pages through by id.
+ */
+@Component
+@Slf4j
+public class ChangeSequence {
+    public static final int ROW_BITS = 20;
+    public static final List<String> TRACKED_TABLES = List.of("products", "users");
+    // serializes the installation when several nodes start together
+    private static final long INSTALL_LOCK_KEY = 7236824;
+    private static final int BACKFILL_CHUNK = 100_000;
+
+    private static final String NEXT_CHANGE_SEQ = """
+            create or replace function next_change_seq() returns bigint language plpgsql as $$
+            declare
+                row_position bigint := coalesce(nullif(current_setting('store.change_position', true), ''), '0')::bigint;
+            begin
+                if row_position < %d then
+                    row_position := row_position + 1;
+                    perform set_config('store.change_position', row_position::text, true);
+                end if;
+                return (pg_current_xact_id()::text::bigint << %d) | row_position;
+            end $$""".formatted((1 << ROW_BITS) - 1, ROW_BITS);
+    private static final String STAMP_CHANGE_SEQ = """
+            create or replace function stamp_change_seq() returns trigger language plpgsql as $$
+            begin
+                new.change_seq := next_change_seq();
+                return new;
+            end $$""";
+    // once per statement, a bulk delete inserts its tombstones in one go
+    private static final String RECORD_TOMBSTONES = """
+            create or replace function record_tombstones() returns trigger language plpgsql as $$
+            begin
+                insert into change_tombstones (table_name, id, change_seq)
+                select tg_table_name, deleted.id, next_change_seq() from deleted
+                on conflict (table_name, id) do update set change_seq = excluded.change_seq, deleted_at = now();
+                return null;
+            end $$""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // the factory is built first, so that the schema update has added the change_seq columns
+    public ChangeSequence(DataSource dataSource, PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void install() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("select pg_advisory_xact_lock(" + INSTALL_LOCK_KEY + ")");
+            jdbcTemplate.execute("create table if not exists change_tombstones (table_name text not null, id uuid not null, " +
+                    "change_seq bigint not null, deleted_at timestamptz not null default now(), primary key (table_name, id))");
+            // replaced by indexes that also order by id, the feed pages through rows sharing a sequence with them
+            jdbcTemplate.execute("drop index if exists idx_change_tombstones_seq");
+            jdbcTemplate.execute("create index if not exists idx_change_tombstones_seq_id on change_tombstones (table_name, change_seq, id)");
+            jdbcTemplate.execute(NEXT_CHANGE_SEQ);
+            jdbcTemplate.execute(STAMP_CHANGE_SEQ);
+            jdbcTemplate.execute(RECORD_TOMBSTONES);
+            for (String table : TRACKED_TABLES) {
+                jdbcTemplate.execute("drop index if exists idx_" + table + "_change_seq");
+                jdbcTemplate.execute("drop trigger if exists " + table + "_change_seq on " + table);
+                jdbcTemplate.execute("create trigger " + table + "_change_seq before insert or update on " + table +
+                        " for each row execute function stamp_change_seq()");
+                jdbcTemplate.execute("drop trigger if exists " + table + "_tombstones on " + table);
+                jdbcTemplate.execute("create trigger " + table + "_tombstones after delete on " + table +
+                        " referencing old table as deleted for each statement execute function record_tombstones()");
+            }
+        });
+        TRACKED_TABLES.forEach(this::backfill);
+    }
+
+    // rows written before the triggers existed, stamped by touching them, in chunks so each gets distinct sequences
+    private void backfill(String table) {
+        long stamped = 0;
+        int updated;
+        do {
+            updated = Objects.requireNonNull(transactionTemplate.execute(status -> jdbcTemplate.update("update " + table +
+                    " set change_seq = 0 where id in (select id from " + table + " where change_seq is null limit ?)", BACKFILL_CHUNK)));
+            stamped += updated;
+        } while (updated == BACKFILL_CHUNK);
+        if (stamped > 0) {
+            log.info("Stamped {} existing rows of {} with a change sequence", stamped, table);
+        }
+    }
+}
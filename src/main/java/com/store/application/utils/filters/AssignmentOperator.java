@@ -0,0 +1,8 @@
+package com.store.application.utils.filters;
+
+public enum AssignmentOperator {
+    SET,
+    // relative to the current value, numeric fields only
+    ADD,
+    MULTIPLY
+}
@@ -0,0 +1,17 @@
+package com.store.application.utils.filters;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkRequest {
+    @NotEmpty(message = "At least one filter is required")
+    private List<@Valid FilterCriteria> filters;
+    // ignored by bulk deletes
+    private List<@Valid FieldAssignment> assignments;
+    // bulk.chunk-size rows per statement and transaction, keyed on the id, instead of a single statement
+    private boolean chunked;
+}
@@ -0,0 +1,4 @@
+package com.store.application.utils.filters;
+
+public record BulkResult(long affected) {
+}
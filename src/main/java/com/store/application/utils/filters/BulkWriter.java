@@ -0,0 +1,249 @@
+package com.store.application.utils.filters;
+
+import com.store.application.exceptions.InvalidFieldsException;
+import com.store.application.utils.LogMessages;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.*;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.SingularAttribute;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+
+/**
+ * Updates or deletes every row matching a filter with set-based statements: a single statement, or for large sets
+ * chunks of {@code bulk.chunk-size} rows taken in id order, each committed on its own.
+ * Only what the write can have changed is evicted: the entity's listings and cached counts, and the by-id entries
+ * of rows that matched. Callers must not run inside a transaction, so that chunks really commit separately.
+ */
+@Component
+@Slf4j
+public class BulkWriter {
+    // bind parameters per IN list, well below the driver's limit
+    private static final int MAX_IN_LIST = 1000;
+
+    private final EntityManager entityManager;
+    private final CacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public BulkWriter(EntityManager entityManager,
+                      CacheManager cacheManager,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${bulk.chunk-size:1000}") int chunkSize) {
+        this.entityManager = entityManager;
+        this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public <T> BulkResult update(Class<T> type, String cacheName, BulkRequest request, Set<String> updatableFields) {
+        EntityType<T> entityType = entityManager.getMetamodel().entity(type);
+        List<Assignment> assignments = assignments(entityType, request.getAssignments(), updatableFields);
+        return write(entityType, cacheName, request, (cb, where) -> {
+            CriteriaUpdate<T> update = cb.createCriteriaUpdate(type);
+            Root<T> root = update.from(type);
+            assignments.forEach(assignment -> assignment.apply(update, root, cb));
+            touchUpdateTimestamps(entityType, update, root);
+            update.where(where.apply(root, update));
+            return entityManager.createQuery(update).executeUpdate();
+        });
+    }
+
+    public <T> BulkResult delete(Class<T> type, String cacheName, BulkRequest request) {
+        EntityType<T> entityType = entityManager.getMetamodel().entity(type);
+        return write(entityType, cacheName, request, (cb, where) -> {
+            CriteriaDelete<T> delete = cb.createCriteriaDelete(type);
+            Root<T> root = delete.from(type);
+            delete.where(where.apply(root, delete));
+            return entityManager.createQuery(delete).executeUpdate();
+        });
+    }
+
+    // runs one update or delete, restricted by the given where clause
+    private interface Statement<T> {
+        int execute(CriteriaBuilder cb, BiFunction<Root<T>, CommonAbstractCriteria, Predicate> where);
+    }
+
+    private record Chunk(List<Object> ids, int affected) {
+    }
+
+    private <T> BulkResult write(EntityType<T> entityType, String cacheName, BulkRequest request, Statement<T> statement) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        SingularAttribute<? super T, ?> id = entityType.getId(entityType.getIdType().getJavaType());
+        List<FilterCriteria> filters = request.getFilters();
+        FilterPlan plan = FilterPlan.of(entityType, filters);
+        Cache cache = Objects.requireNonNull(cacheManager.getCache(cacheName));
+        Set<Object> cachedIds = cachedIds(cache, id.getJavaType());
+
+        if (!request.isChunked()) {
+            List<Object> matched = new ArrayList<>();
+            int affected = Objects.requireNonNull(transactionTemplate.execute(status -> {
+                // looked up before the write, which may change whether they match
+                List<Object> among = new ArrayList<>(cachedIds);
+                for (int from = 0; from < among.size(); from += MAX_IN_LIST) {
+                    matched.addAll(selectIds(entityType, id, plan, filters, null,
+                            among.subList(from, Math.min(from + MAX_IN_LIST, among.size())), Integer.MAX_VALUE));
+                }
+                return statement.execute(cb, (root, criteria) -> filter(entityType, id, plan, filters, root, criteria));
+            }));
+            evict(cache, entityType, affected, matched);
+            return new BulkResult(affected);
+        }
+
+        long affected = 0;
+        Object last = null;
+        Chunk chunk;
+        do {
+            Object after = last;
+            chunk = Objects.requireNonNull(transactionTemplate.execute(status -> {
+                List<Object> ids = selectIds(entityType, id, plan, filters, after, null, chunkSize);
+                return new Chunk(ids, ids.isEmpty() ? 0 : statement.execute(cb, (root, criteria) -> root.get(id).in(ids)));
+            }));
+            affected += chunk.affected();
+            evict(cache, entityType, chunk.affected(), chunk.ids().stream().filter(cachedIds::contains).toList());
+            if (!chunk.ids().isEmpty()) {
+                last = chunk.ids().getLast();
+            }
+        } while (chunk.ids().size() == chunkSize);
+        log.info("Bulk write on {} affected {} rows in chunks of {}", entityType.getName(), affected, chunkSize);
+        return new BulkResult(affected);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <T> Predicate filter(EntityType<T> entityType, SingularAttribute<? super T, ?> id, FilterPlan plan,
+                                 List<FilterCriteria> filters, Root<T> root, CommonAbstractCriteria statement) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        if (plan.joinCount() == 0) {
+            return plan.apply(root, null, cb, filters);
+        }
+        // update and delete statements cannot join, rows matched through an association are selected by id
+        Subquery subquery = statement.subquery(id.getJavaType());
+        Root<T> matching = subquery.from(entityType);
+        subquery.select(matching.get(id)).where(plan.apply(matching, subquery, cb, filters));
+        return root.get(id).in(subquery);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <T> List<Object> selectIds(EntityType<T> entityType, SingularAttribute<? super T, ?> id, FilterPlan plan,
+                                       List<FilterCriteria> filters, Object after, Collection<Object> among, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object> query = cb.createQuery(Object.class);
+        Root<T> root = query.from(entityType);
+        Path idPath = root.get(id);
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(plan.apply(root, query, cb, filters));
+        if (after != null) {
+            predicates.add(cb.greaterThan(idPath, (Comparable) after));
+        }
+        if (among != null) {
+            predicates.add(idPath.in(among));
+        }
+        query.select(idPath).where(predicates.toArray(new Predicate[0])).orderBy(cb.asc(idPath));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private <T> List<Assignment> assignments(EntityType<T> entityType, List<FieldAssignment> requested, Set<String> updatableFields) {
+        if (requested == null || requested.isEmpty()) {
+            throw new InvalidFieldsException(LogMessages.NO_ASSIGNMENTS);
+        }
+        List<String> unknown = requested.stream().map(FieldAssignment::getField).filter(field -> !updatableFields.contains(field)).toList();
+        if (!unknown.isEmpty()) {
+            throw new InvalidFieldsException(String.format(LogMessages.INVALID_FIELDS, unknown, updatableFields));
+        }
+        Set<String> assigned = new HashSet<>();
+        List<Assignment> assignments = new ArrayList<>(requested.size());
+        for (FieldAssignment assignment : requested) {
+            if (!assigned.add(assignment.getField())) {
+                throw new InvalidFieldsException(String.format(LogMessages.INVALID_ASSIGNMENT, assignment.getField(), assignment.getOperator(), assignment.getValue()));
+            }
+            Class<?> javaType = entityType.getAttribute(assignment.getField()).getJavaType();
+            boolean relative = assignment.getOperator() != AssignmentOperator.SET;
+            boolean numeric = Number.class.isAssignableFrom(ClassUtils.resolvePrimitiveIfNecessary(javaType));
+            if ((relative && !numeric) || (assignment.getValue() == null && (relative || javaType.isPrimitive()))) {
+                throw new InvalidFieldsException(String.format(LogMessages.INVALID_ASSIGNMENT, assignment.getField(), assignment.getOperator(), assignment.getValue()));
+            }
+            try {
+                Object value = FilterPlan.converterFor(javaType).apply(assignment.getValue());
+                assignments.add(new Assignment(assignment.getField(), assignment.getOperator(), value));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidFieldsException(String.format(LogMessages.INVALID_ASSIGNMENT, assignment.getField(), assignment.getOperator(), assignment.getValue()));
+            }
+        }
+        return assignments;
+    }
+
+    private record Assignment(String attribute, AssignmentOperator operator, Object value) {
+        @SuppressWarnings("unchecked")
+        void apply(CriteriaUpdate<?> update, Root<?> root, CriteriaBuilder cb) {
+            Path<Object> path = root.get(attribute);
+            Path<Number> number = root.get(attribute);
+            switch (operator) {
+                case SET -> update.set(path, value);
+                case ADD -> update.set(number, cb.sum(number, (Number) value));
+                case MULTIPLY -> update.set(number, cb.prod(number, (Number) value));
+            }
+        }
+    }
+
+    // bulk statements bypass Hibernate's generators, @UpdateTimestamp columns are set here instead
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <T> void touchUpdateTimestamps(EntityType<T> entityType, CriteriaUpdate<T> update, Root<T> root) {
+        for (Attribute<? super T, ?> attribute : entityType.getAttributes()) {
+            if (attribute.getJavaMember() instanceof Field field && field.isAnnotationPresent(UpdateTimestamp.class)) {
+                Object now = switch (field.getType().getSimpleName()) {
+                    case "OffsetDateTime" -> OffsetDateTime.now();
+                    case "Instant" -> Instant.now();
+                    case "Date" -> new Date();
+                    default -> null;
+                };
+                if (now != null) {
+                    update.set((Path) root.get(attribute.getName()), now);
+                }
+            }
+        }
+    }
+
+    private static Set<Object> cachedIds(Cache cache, Class<?> idType) {
+        Set<Object> ids = new HashSet<>();
+        if (cache.getNativeCache() instanceof ConcurrentMap<?, ?> entries) {
+            entries.keySet().stream().filter(idType::isInstance).forEach(ids::add);
+        }
+        return ids;
+    }
+
+    private void evict(Cache cache, EntityType<?> entityType, long affected, Collection<Object> ids) {
+        if (affected == 0) {
+            return;
+        }
+        if (cache.getNativeCache() instanceof ConcurrentMap<?, ?> entries) {
+            // the by-id entries of rows that did not match are still current
+            Class<?> idType = entityType.getIdType().getJavaType();
+            entries.keySet().removeIf(key -> !idType.isInstance(key));
+            ids.forEach(cache::evict);
+        } else {
+            cache.clear();
+        }
+        Cache counts = cacheManager.getCache(FilteredPageReader.COUNT_CACHE);
+        if (counts != null && counts.getNativeCache() instanceof ConcurrentMap<?, ?> entries) {
+            String typeName = entityType.getJavaType().getName();
+            entries.keySet().removeIf(key -> key instanceof List<?> list && typeName.equals(list.getFirst()));
+        } else if (counts != null) {
+            counts.clear();
+        }
+    }
+}
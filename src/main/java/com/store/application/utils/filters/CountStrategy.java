@@ -0,0 +1,15 @@
+package com.store.application.utils.filters;
+
+/**
+ * How the total of a filtered page is computed.
+ */
+public enum CountStrategy {
+    // COUNT(*) with the filter's joins on every request
+    EXACT,
+    // exact count kept per filter and values, evicted on writes
+    CACHED,
+    // PostgreSQL planner row estimate, exact below pagination.exact-count-below
+    ESTIMATED,
+    // no total, only whether a next page exists
+    NONE
+}
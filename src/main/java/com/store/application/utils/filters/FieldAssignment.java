@@ -0,0 +1,19 @@
+package com.store.application.utils.filters;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FieldAssignment {
+    @NotBlank(message = "Assignment field must not be blank")
+    private String field;
+    @NotNull(message = "Assignment operator must not be null")
+    private AssignmentOperator operator;
+    // null with SET clears the field
+    private String value;
+}
@@ -0,0 +1,253 @@
+package com.store.application.utils.filters;
+
+import jakarta.persistence.criteria.*;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.ManagedType;
+import jakarta.persistence.metamodel.PluralAttribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import jakarta.persistence.metamodel.Type;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The shape of a filter, its keys and operators without the values, compiled once against the JPA metamodel.
+ * Paths are resolved, joins shared between criteria on the same association and value converters chosen
+ * at compile time, so a request only creates its joins and converts its values.
+ */
+final class FilterPlan {
+    // shapes are chosen by clients, past this many plans new shapes are compiled per request instead of cached
+    static final int MAX_CACHED_PLANS = 1024;
+    private static final Map<PlanKey, FilterPlan> CACHE = new ConcurrentHashMap<>();
+    private static final String NOT_ASSIGNED = "Not Assigned";
+    private static final int ROOT = -1;
+    private static final char LIKE_ESCAPE = '\\';
+
+    record Shape(String key, FilterOperator operator) {
+    }
+
+    private record PlanKey(Class<?> entityType, List<Shape> shapes) {
+    }
+
+    private record JoinStep(int parent, String attribute) {
+    }
+
+    private record Step(int from, String attribute, FilterOperator operator, Function<String, Object> converter) {
+    }
+
+    private final List<JoinStep> joins;
+    private final List<Step> steps;
+    private final boolean distinct;
+
+    private FilterPlan(List<JoinStep> joins, List<Step> steps, boolean distinct) {
+        this.joins = joins;
+        this.steps = steps;
+        this.distinct = distinct;
+    }
+
+    static FilterPlan of(ManagedType<?> entityType, List<FilterCriteria> criteria) {
+        List<Shape> shapes = new ArrayList<>(criteria.size());
+        for (FilterCriteria criterion : criteria) {
+            shapes.add(new Shape(criterion.getKey(), criterion.getOperator()));
+        }
+        PlanKey key = new PlanKey(entityType.getJavaType(), shapes);
+        FilterPlan plan = CACHE.get(key);
+        if (plan != null) {
+            return plan;
+        }
+        plan = compile(entityType, shapes);
+        if (CACHE.size() < MAX_CACHED_PLANS) {
+            CACHE.putIfAbsent(key, plan);
+        }
+        return plan;
+    }
+
+    static FilterPlan compile(ManagedType<?> entityType, List<Shape> shapes) {
+        List<JoinStep> joins = new ArrayList<>();
+        Map<String, Integer> joinsByPath = new HashMap<>();
+        List<Step> steps = new ArrayList<>(shapes.size());
+        boolean distinct = false;
+
+        for (Shape shape : shapes) {
+            String[] parts = StringUtils.delimitedListToStringArray(shape.key(), ".");
+            ManagedType<?> type = entityType;
+            int from = ROOT;
+            for (int i = 0; i < parts.length - 1; i++) {
+                Attribute<?, ?> attribute = type.getAttribute(parts[i]);
+                String path = String.join(".", Arrays.copyOfRange(parts, 0, i + 1));
+                int parent = from;
+                from = joinsByPath.computeIfAbsent(path, p -> {
+                    joins.add(new JoinStep(parent, attribute.getName()));
+                    return joins.size() - 1;
+                });
+                distinct |= attribute.isCollection();
+                type = managedTypeOf(attribute, shape.key());
+            }
+            Attribute<?, ?> leaf = type.getAttribute(parts[parts.length - 1]);
+            Class<?> javaType = ClassUtils.resolvePrimitiveIfNecessary(leaf.getJavaType());
+            checkOperator(shape, javaType);
+            steps.add(new Step(from, leaf.getName(), shape.operator(), converterFor(javaType)));
+        }
+        return new FilterPlan(List.copyOf(joins), List.copyOf(steps), distinct);
+    }
+
+    Predicate apply(Root<?> root, AbstractQuery<?> query, CriteriaBuilder cb, List<FilterCriteria> criteria) {
+        From<?, ?>[] froms = new From<?, ?>[joins.size()];
+        for (int i = 0; i < froms.length; i++) {
+            JoinStep join = joins.get(i);
+            From<?, ?> parent = join.parent() == ROOT ? root : froms[join.parent()];
+            froms[i] = parent.join(join.attribute(), JoinType.LEFT);
+        }
+        if (distinct) {
+            // a to-many join repeats the root once per matching element
+            query.distinct(true);
+        }
+
+        List<Predicate> predicates = new ArrayList<>(steps.size());
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            Path<?> path = (step.from() == ROOT ? root : froms[step.from()]).get(step.attribute());
+            addPredicate(predicates, step, path, criteria.get(i).getValues(), cb);
+        }
+        return cb.and(predicates.toArray(new Predicate[0]));
+    }
+
+    int joinCount() {
+        return joins.size();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void addPredicate(List<Predicate> predicates, Step step, Path<?> path, List<String> values, CriteriaBuilder cb) {
+        Expression<Comparable> comparable = (Expression<Comparable>) path;
+        Function<String, Object> converter = step.converter();
+        switch (step.operator()) {
+            case EQUALS -> predicates.add(cb.equal(path, converter.apply(values.getFirst())));
+            case NOT_EQUALS -> predicates.add(cb.notEqual(path, converter.apply(values.getFirst())));
+            case GREATER_THAN -> predicates.add(cb.greaterThan(comparable, (Comparable) converter.apply(values.getFirst())));
+            case GREATER_THAN_OR_EQUALS -> predicates.add(cb.greaterThanOrEqualTo(comparable, (Comparable) converter.apply(values.getFirst())));
+            case LESS_THAN -> predicates.add(cb.lessThan(comparable, (Comparable) converter.apply(values.getFirst())));
+            case LESS_THAN_OR_EQUALS -> predicates.add(cb.lessThanOrEqualTo(comparable, (Comparable) converter.apply(values.getFirst())));
+            case IN -> {
+                CriteriaBuilder.In<Object> in = cb.in(path);
+                for (String value : values) {
+                    in.value(NOT_ASSIGNED.equals(value) ? null : converter.apply(value));
+                }
+                predicates.add(in);
+            }
+            case NOT_IN -> {
+                CriteriaBuilder.In<Object> in = cb.in(path);
+                for (String value : values) {
+                    in.value(converter.apply(value));
+                }
+                predicates.add(cb.not(in));
+            }
+            case LIKE -> {
+                // no cast on text columns, so lower(column) can use a trigram index
+                Expression<String> text = String.class.equals(path.getJavaType()) ? (Expression<String>) path : path.as(String.class);
+                for (String value : values) {
+                    if (StringUtils.hasText(value)) {
+                        predicates.add(cb.like(cb.lower(text), "%" + value.toLowerCase() + "%"));
+                    }
+                }
+            }
+            case CONTAINS, CONTAINS_IGNORE_CASE, STARTS_WITH, ENDS_WITH -> {
+                Expression<String> text = String.class.equals(path.getJavaType()) ? (Expression<String>) path : path.as(String.class);
+                boolean ignoreCase = step.operator() == FilterOperator.CONTAINS_IGNORE_CASE;
+                for (String value : values) {
+                    if (StringUtils.hasText(value)) {
+                        String pattern = likePattern(step.operator(), ignoreCase ? value.toLowerCase() : value);
+                        predicates.add(cb.like(ignoreCase ? cb.lower(text) : text, pattern, LIKE_ESCAPE));
+                    }
+                }
+            }
+            case BETWEEN -> {
+                if (values.size() != 2) {
+                    throw new IllegalArgumentException("BETWEEN operation supports only 2 values");
+                }
+                predicates.add(cb.between(comparable, (Comparable) converter.apply(values.get(0)), (Comparable) converter.apply(values.get(1))));
+            }
+            case IS_NULL -> predicates.add(cb.isNull(path));
+            case IS_NOT_NULL -> predicates.add(cb.isNotNull(path));
+            default -> throw new UnsupportedOperationException("Operation not supported: " + step.operator());
+        }
+    }
+
+    // the value is matched literally, unlike LIKE where % and _ are left to the client
+    private static String likePattern(FilterOperator operator, String value) {
+        String escaped = value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return switch (operator) {
+            case STARTS_WITH -> escaped + "%";
+            case ENDS_WITH -> "%" + escaped;
+            default -> "%" + escaped + "%";
+        };
+    }
+
+    private static void checkOperator(Shape shape, Class<?> javaType) {
+        switch (shape.operator()) {
+            case EQUALS, NOT_EQUALS, IN, NOT_IN, LIKE, IS_NULL, IS_NOT_NULL,
+                 CONTAINS, CONTAINS_IGNORE_CASE, STARTS_WITH, ENDS_WITH -> {
+            }
+            case GREATER_THAN, GREATER_THAN_OR_EQUALS, LESS_THAN, LESS_THAN_OR_EQUALS, BETWEEN -> {
+                if (!Comparable.class.isAssignableFrom(javaType)) {
+                    throw new IllegalArgumentException("Operation " + shape.operator() + " is not supported for " + shape.key());
+                }
+            }
+            default -> throw new UnsupportedOperationException("Operation not supported: " + shape.operator());
+        }
+    }
+
+    private static ManagedType<?> managedTypeOf(Attribute<?, ?> attribute, String key) {
+        Type<?> type = attribute instanceof PluralAttribute<?, ?, ?> plural ? plural.getElementType()
+                : ((SingularAttribute<?, ?>) attribute).getType();
+        if (type instanceof ManagedType<?> managedType) {
+            return managedType;
+        }
+        throw new IllegalArgumentException("Cannot join on " + attribute.getName() + " in " + key);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Function<String, Object> converterFor(Class<?> javaType) {
+        // primitive attributes such as int quantity convert like their wrappers
+        Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(javaType);
+        Function<String, Object> converter;
+        if (type.equals(UUID.class)) {
+            converter = UUID::fromString;
+        } else if (type.equals(Boolean.class)) {
+            converter = Boolean::parseBoolean;
+        } else if (type.equals(Long.class)) {
+            converter = Long::parseLong;
+        } else if (type.equals(Integer.class)) {
+            converter = Integer::parseInt;
+        } else if (type.equals(Double.class)) {
+            converter = Double::parseDouble;
+        } else if (type.equals(Float.class)) {
+            converter = Float::parseFloat;
+        } else if (type.equals(BigDecimal.class)) {
+            converter = BigDecimal::new;
+        } else if (type.isEnum()) {
+            converter = value -> Enum.valueOf((Class<? extends Enum>) type, value);
+        } else if (type.equals(OffsetDateTime.class)) {
+            converter = FilterPlan::parseDate;
+        } else if (type.equals(Date.class)) {
+            converter = value -> Date.from(parseDate(value).toInstant());
+        } else {
+            converter = value -> value;
+        }
+        return value -> value == null ? null : converter.apply(value);
+    }
+
+    private static OffsetDateTime parseDate(String dateStr) {
+        try {
+            return OffsetDateTime.parse(dateStr, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date format: " + dateStr + ". Expected yyyy-MM-dd'T'HH:mm:ss.SSSXXX", e);
+        }
+    }
+}
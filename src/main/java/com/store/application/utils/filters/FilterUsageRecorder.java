@@ -0,0 +1,70 @@
+package com.store.application.utils.filters;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often each filter shape (entity, filter keys and operators, sort field) is queried and how long
+ * its reads take, as the input of {@link IndexAdvisor}. Values are not recorded.
+ */
+@Component
+public class FilterUsageRecorder {
+    private final Map<UsageKey, Stats> usages = new ConcurrentHashMap<>();
+    private final int maxShapes;
+
+    public FilterUsageRecorder(@Value("${filters.usage.max-shapes:500}") int maxShapes) {
+        this.maxShapes = maxShapes;
+    }
+
+    record UsageKey(Class<?> entityType, List<FilterPlan.Shape> filters, String sort) {
+    }
+
+    record Usage(UsageKey key, long calls, long totalNanos, long maxNanos) {
+    }
+
+    private static final class Stats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    }
+
+    public void record(Class<?> entityType, List<FilterCriteria> filters, String sort, long nanos) {
+        // the order of the criteria does not matter to an index
+        SortedSet<FilterPlan.Shape> shapes = new TreeSet<>(Comparator.comparing(FilterPlan.Shape::key)
+                .thenComparing(FilterPlan.Shape::operator));
+        for (FilterCriteria filter : filters) {
+            shapes.add(new FilterPlan.Shape(filter.getKey(), filter.getOperator()));
+        }
+        UsageKey key = new UsageKey(entityType, List.copyOf(shapes), sort);
+        Stats stats = usages.get(key);
+        if (stats == null) {
+            if (usages.size() >= maxShapes) {
+                return;
+            }
+            stats = usages.computeIfAbsent(key, k -> new Stats());
+        }
+        stats.calls.increment();
+        stats.totalNanos.add(nanos);
+        stats.maxNanos.accumulate(nanos);
+    }
+
+    List<Usage> snapshot() {
+        List<Usage> snapshot = new ArrayList<>(usages.size());
+        usages.forEach((key, stats) -> {
+            long calls = stats.calls.sum();
+            if (calls > 0) {
+                snapshot.add(new Usage(key, calls, stats.totalNanos.sum(), stats.maxNanos.get()));
+            }
+        });
+        return snapshot;
+    }
+
+    public void reset() {
+        usages.clear();
+    }
+}
@@ -0,0 +1,23 @@
+package com.store.application.utils.filters;
+
+import com.store.application.utils.CustomResponse;
+
+import java.util.List;
+
+/**
+ * A page read by {@link FilteredPageReader}; {@code total} is null when it was read without counting.
+ */
+public record FilteredPage<T>(List<T> content, int page, int size, Long total, CountStrategy countStrategy, boolean last) {
+
+    public <R> CustomResponse<R> toResponse(List<R> mappedContent) {
+        return CustomResponse.<R>builder()
+                .content(mappedContent)
+                .page(page + 1)
+                .size(size)
+                .total(total)
+                .totalPages(total == null ? null : (int) ((total + size - 1) / size))
+                .last(last)
+                .countStrategy(countStrategy)
+                .build();
+    }
+}
@@ -0,0 +1,245 @@
+package com.store.application.utils.filters;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.store.application.utils.sql.ExplainRewriter;
+import com.store.application.utils.sql.SlowQueryRecorder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import jakarta.persistence.metamodel.EntityType;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Reads a filtered page with size + 1 rows, so whether it is the last page is known without counting,
+ * and computes the total with the page filter's {@link CountStrategy}.
+ * The last page, or any page shorter than its size, gets an exact total from its own rows.
+ */
+@Component
+@Slf4j
+public class FilteredPageReader {
+    public static final String COUNT_CACHE = "counts";
+    private static final String EXPLAIN = "explain (format json) ";
+
+    private final EntityManager entityManager;
+    private final Cache countCache;
+    private final ObjectMapper objectMapper;
+    private final FilterUsageRecorder usageRecorder;
+    private final CountStrategy defaultStrategy;
+    private final long exactCountBelow;
+    private volatile Boolean estimatesSupported;
+
+    public FilteredPageReader(EntityManager entityManager,
+                              CacheManager cacheManager,
+                              ObjectMapper objectMapper,
+                              FilterUsageRecorder usageRecorder,
+                              @Value("${pagination.count-strategy:ESTIMATED}") CountStrategy defaultStrategy,
+                              @Value("${pagination.exact-count-below:1000}") long exactCountBelow) {
+        this.entityManager = entityManager;
+        this.countCache = cacheManager.getCache(COUNT_CACHE);
+        this.objectMapper = objectMapper;
+        this.usageRecorder = usageRecorder;
+        this.defaultStrategy = defaultStrategy;
+        this.exactCountBelow = exactCountBelow;
+    }
+
+    public <T> FilteredPage<T> read(Class<T> type, PageFilter pageFilter) {
+        return read(type, pageFilter, (specification, pageable) -> fetch(type, specification, pageable));
+    }
+
+    /**
+     * Reads only the given singular attributes of the entity, each row is a map from attribute name to value
+     * in the given order.
+     */
+    public <T> FilteredPage<Map<String, Object>> read(Class<T> type, PageFilter pageFilter, List<String> attributes) {
+        EntityType<T> entityType = entityManager.getMetamodel().entity(type);
+        for (String attribute : attributes) {
+            if (entityType.getAttribute(attribute).isCollection()) {
+                throw new IllegalArgumentException("Cannot select collection " + attribute + " of " + entityType.getName());
+            }
+        }
+        return read(type, pageFilter, (specification, pageable) -> fetch(entityType, specification, pageable, attributes));
+    }
+
+    private <T, R> FilteredPage<R> read(Class<T> type, PageFilter pageFilter, BiFunction<Specification<T>, Pageable, List<R>> fetcher) {
+        List<FilterCriteria> filters = pageFilter.getFilters() == null ? List.of() : pageFilter.getFilters();
+        SlowQueryRecorder.setContext(pageFilter);
+        long start = System.nanoTime();
+        FilteredPage<R> page = read(type, pageFilter, filters, fetcher);
+        usageRecorder.record(type, filters, pageFilter.getSort(), System.nanoTime() - start);
+        return page;
+    }
+
+    private <T, R> FilteredPage<R> read(Class<T> type, PageFilter pageFilter, List<FilterCriteria> filters,
+                                        BiFunction<Specification<T>, Pageable, List<R>> fetcher) {
+        Specification<T> specification = new ObjectSpecification<>(filters);
+        Pageable pageable = PageRequest.of(pageFilter.getPage(), pageFilter.getSize(),
+                Sort.Direction.fromString(pageFilter.getOrder()), pageFilter.getSort());
+
+        List<R> rows = fetcher.apply(specification, pageable);
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<R> content = hasNext ? rows.subList(0, pageable.getPageSize()) : rows;
+        long seen = pageable.getOffset() + content.size();
+
+        if (!hasNext && (!content.isEmpty() || pageable.getOffset() == 0)) {
+            return page(content, pageable, seen, CountStrategy.EXACT, true);
+        }
+
+        CountStrategy strategy = pageFilter.getCountStrategy() == null ? defaultStrategy : pageFilter.getCountStrategy();
+        return switch (strategy) {
+            case EXACT -> page(content, pageable, count(type, specification), CountStrategy.EXACT, !hasNext);
+            case CACHED -> page(content, pageable,
+                    countCache.get(List.of(type.getName(), filters), () -> count(type, specification)), CountStrategy.CACHED, !hasNext);
+            case ESTIMATED -> {
+                if (!estimatesSupported()) {
+                    yield page(content, pageable, count(type, specification), CountStrategy.EXACT, !hasNext);
+                }
+                long estimate = estimate(type, specification);
+                if (estimate < exactCountBelow) {
+                    yield page(content, pageable, count(type, specification), CountStrategy.EXACT, !hasNext);
+                }
+                // never report fewer rows than were already read
+                yield page(content, pageable, Math.max(estimate, hasNext ? seen + 1 : seen), CountStrategy.ESTIMATED, !hasNext);
+            }
+            case NONE -> page(content, pageable, null, CountStrategy.NONE, !hasNext);
+        };
+    }
+
+    private <R> FilteredPage<R> page(List<R> content, Pageable pageable, Long total, CountStrategy strategy, boolean last) {
+        return new FilteredPage<>(content, pageable.getPageNumber(), pageable.getPageSize(), total, strategy, last);
+    }
+
+    private <T> List<T> fetch(Class<T> type, Specification<T> specification, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(root).orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        return entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+    }
+
+    private <T> List<Map<String, Object>> fetch(EntityType<T> entityType, Specification<T> specification, Pageable pageable,
+                                                List<String> attributes) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entityType);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        List<Order> orders = QueryUtils.toOrders(pageable.getSort(), root, cb);
+        List<Selection<?>> selections = new ArrayList<>();
+        Set<Selection<?>> selected = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String attribute : attributes) {
+            select(selections, selected, root.get(attribute), attribute);
+        }
+        // a distinct select has to contain its order expressions, and the id keeps rows with equal values apart
+        select(selections, selected, root.get(entityType.getId(entityType.getIdType().getJavaType())), "_id");
+        for (int i = 0; i < orders.size(); i++) {
+            select(selections, selected, orders.get(i).getExpression(), "_order" + i);
+        }
+        query.multiselect(selections).orderBy(orders);
+
+        List<Tuple> tuples = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String attribute : attributes) {
+                row.put(attribute, tuple.get(attribute));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // paths are shared per attribute and carry their alias, so each one is selected once
+    private static void select(List<Selection<?>> selections, Set<Selection<?>> selected, Selection<?> selection, String alias) {
+        if (selected.add(selection)) {
+            selections.add(selection.alias(alias));
+        }
+    }
+
+    private <T> long count(Class<T> type, Specification<T> specification) {
+        return countQuery(type, specification, Long.class).getSingleResult();
+    }
+
+    // the count statement run under EXPLAIN, its single column is read as the JSON plan
+    private <T> long estimate(Class<T> type, Specification<T> specification) {
+        String plan = ExplainRewriter.explain(EXPLAIN, () -> countQuery(type, specification, String.class).getSingleResult());
+        try {
+            return planRows(objectMapper.readTree(plan));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable query plan: " + plan, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T, R> TypedQuery<R> countQuery(Class<T> type, Specification<T> specification, Class<R> resultType) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<R> query = cb.createQuery(resultType);
+        Root<T> root = query.from(type);
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        Expression<Long> count = query.isDistinct() ? cb.countDistinct(root) : cb.count(root);
+        query.select(resultType == Long.class ? (Expression<R>) count : count.as(resultType));
+        return entityManager.createQuery(query);
+    }
+
+    private boolean estimatesSupported() {
+        if (estimatesSupported == null) {
+            estimatesSupported = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                    .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
+            if (!estimatesSupported) {
+                log.warn("Row estimates need PostgreSQL, ESTIMATED pages are counted exactly");
+            }
+        }
+        return estimatesSupported;
+    }
+
+    /**
+     * Rows the planner expects the count to aggregate, from {@code EXPLAIN (FORMAT JSON)} output.
+     * Below a Gather node the estimate is per worker, scaled back up with the planner's parallel divisor.
+     */
+    static long planRows(JsonNode explain) {
+        JsonNode node = explain.path(0).path("Plan");
+        double divisor = 1;
+        while (node.path("Plans").has(0)) {
+            String nodeType = node.path("Node Type").asText();
+            if (nodeType.startsWith("Gather")) {
+                int workers = node.path("Workers Planned").asInt();
+                divisor = workers + Math.max(0, 1 - 0.3 * workers);
+            } else if (!nodeType.equals("Aggregate")) {
+                break;
+            }
+            node = node.path("Plans").path(0);
+        }
+        return Math.round(node.path("Plan Rows").asDouble() * divisor);
+    }
+}
@@ -0,0 +1,176 @@
+package com.store.application.utils.filters;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.SingularAttribute;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns the filter shapes seen by {@link FilterUsageRecorder} into PostgreSQL index recommendations:
+ * a B-tree with equality columns first, then the range or sort column; a partial index when a shape always
+ * filters on IS NULL / IS NOT NULL; a pg_trgm GIN index for substring (LIKE, CONTAINS, ...) filters.
+ * Indexes declared on the entity, its primary key and unique columns are taken as existing, and shapes with an
+ * equality on a unique column need no other index.
+ * Only attributes of the filtered entity itself are considered, filters through joins are left out.
+ */
+@Component
+@RequiredArgsConstructor
+public class IndexAdvisor {
+    static final String BTREE = "btree";
+    static final String GIN_TRGM = "gin_trgm";
+
+    private final FilterUsageRecorder usageRecorder;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Map<Class<?>, EntityTable> tables = new ConcurrentHashMap<>();
+
+    record EntityTable(String name, Map<String, String> columnsByAttribute, List<List<String>> indexes, Set<String> uniqueColumns) {
+    }
+
+    record Candidate(String table, String method, List<String> columns, String where, String reason) {
+    }
+
+    public List<IndexRecommendation> recommend(boolean withDdl) {
+        List<FilterUsageRecorder.Usage> usages = usageRecorder.snapshot();
+        double totalNanos = Math.max(1, usages.stream().mapToLong(FilterUsageRecorder.Usage::totalNanos).sum());
+
+        Map<Candidate, long[]> served = new LinkedHashMap<>();
+        for (FilterUsageRecorder.Usage usage : usages) {
+            EntityTable table = tables.computeIfAbsent(usage.key().entityType(), this::describe);
+            for (Candidate candidate : candidates(table, usage.key().filters(), usage.key().sort())) {
+                long[] totals = served.computeIfAbsent(candidate, c -> new long[2]);
+                totals[0] += usage.calls();
+                totals[1] += usage.totalNanos();
+            }
+        }
+
+        List<IndexRecommendation> recommendations = new ArrayList<>(served.size());
+        served.forEach((candidate, totals) -> recommendations.add(new IndexRecommendation(
+                candidate.table(), candidate.method(), candidate.columns(), candidate.where(), candidate.reason(),
+                totals[0], totals[1] / 1e6 / totals[0], totals[1] / totalNanos,
+                withDdl ? ddl(candidate) : null)));
+        recommendations.sort(Comparator.comparingDouble(IndexRecommendation::share).reversed());
+        return recommendations;
+    }
+
+    static List<Candidate> candidates(EntityTable table, List<FilterPlan.Shape> filters, String sort) {
+        SortedSet<String> equalities = new TreeSet<>();
+        String range = null;
+        List<String> conditions = new ArrayList<>();
+        List<Candidate> candidates = new ArrayList<>();
+
+        for (FilterPlan.Shape filter : filters) {
+            String column = table.columnsByAttribute().get(filter.key());
+            if (column == null) {
+                continue;
+            }
+            switch (filter.operator()) {
+                case EQUALS, IN -> equalities.add(column);
+                case GREATER_THAN, GREATER_THAN_OR_EQUALS, LESS_THAN, LESS_THAN_OR_EQUALS, BETWEEN -> {
+                    if (range == null) {
+                        range = column;
+                    }
+                }
+                case IS_NULL -> conditions.add(column + " is null");
+                case IS_NOT_NULL -> conditions.add(column + " is not null");
+                case LIKE, CONTAINS_IGNORE_CASE -> candidates.add(new Candidate(table.name(), GIN_TRGM, List.of("lower(" + column + ")"), null,
+                        "case-insensitive substring search on " + column));
+                case CONTAINS, STARTS_WITH, ENDS_WITH -> candidates.add(new Candidate(table.name(), GIN_TRGM, List.of(column), null,
+                        "substring search on " + column));
+                default -> {
+                    // negations cannot use an index
+                }
+            }
+        }
+
+        List<String> columns = new ArrayList<>(equalities);
+        String last = range != null ? range : sort == null ? null : table.columnsByAttribute().get(sort);
+        if (last != null && !columns.contains(last)) {
+            columns.add(last);
+        }
+        String where = conditions.isEmpty() ? null : String.join(" and ", conditions);
+        // equality on a unique column already finds at most one row
+        boolean unique = equalities.stream().anyMatch(table.uniqueColumns()::contains);
+        if (!columns.isEmpty() && !unique && (where != null || !isCovered(table, columns))) {
+            String reason = (equalities.isEmpty() ? "" : "equality on " + String.join(", ", equalities) + ", ")
+                    + (range != null ? "range on " + range : last != null ? "order by " + last : "")
+                    + (where != null ? " where " + where : "");
+            candidates.add(new Candidate(table.name(), BTREE, List.copyOf(columns), where, reason.replaceAll(", $", "")));
+        }
+        return candidates;
+    }
+
+    private static boolean isCovered(EntityTable table, List<String> columns) {
+        for (List<String> index : table.indexes()) {
+            if (index.size() >= columns.size() && index.subList(0, columns.size()).equals(columns)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String ddl(Candidate candidate) {
+        String name = ("idx_" + candidate.table() + "_" + String.join("_", candidate.columns())).replaceAll("\\W+", "_").replaceAll("_$", "")
+                + (GIN_TRGM.equals(candidate.method()) ? "_trgm" : candidate.where() != null ? "_partial" : "");
+        if (GIN_TRGM.equals(candidate.method())) {
+            // the expression matches the one FilterPlan filters on, lower(column) for case-insensitive operators
+            return "create extension if not exists pg_trgm;\n"
+                    + "create index concurrently if not exists " + name + " on " + candidate.table()
+                    + " using gin (" + candidate.columns().getFirst() + " gin_trgm_ops);";
+        }
+        return "create index concurrently if not exists " + name + " on " + candidate.table()
+                + " (" + String.join(", ", candidate.columns()) + ")"
+                + (candidate.where() != null ? " where " + candidate.where() : "") + ";";
+    }
+
+    private EntityTable describe(Class<?> entityType) {
+        AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel().getEntityDescriptor(entityType);
+
+        Map<String, String> columnsByAttribute = new HashMap<>();
+        for (SingularAttribute<?, ?> attribute : entityManagerFactory.getMetamodel().entity(entityType).getSingularAttributes()) {
+            if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC) {
+                String[] columns = attribute.isId() ? persister.getIdentifierColumnNames() : persister.getPropertyColumnNames(attribute.getName());
+                if (columns.length == 1) {
+                    columnsByAttribute.put(attribute.getName(), columns[0]);
+                }
+            }
+        }
+
+        List<List<String>> indexes = new ArrayList<>();
+        Set<String> uniqueColumns = new HashSet<>(List.of(persister.getIdentifierColumnNames()));
+        indexes.add(List.of(persister.getIdentifierColumnNames()));
+        Table table = entityType.getAnnotation(Table.class);
+        if (table != null) {
+            for (Index index : table.indexes()) {
+                indexes.add(Arrays.stream(index.columnList().split(","))
+                        .map(column -> column.trim().split("\\s+")[0])
+                        .toList());
+            }
+            for (UniqueConstraint constraint : table.uniqueConstraints()) {
+                indexes.add(List.of(constraint.columnNames()));
+                if (constraint.columnNames().length == 1) {
+                    uniqueColumns.add(constraint.columnNames()[0]);
+                }
+            }
+        }
+        ReflectionUtils.doWithFields(entityType, field -> {
+            Column column = field.getAnnotation(Column.class);
+            if (column != null && column.unique() && columnsByAttribute.containsKey(field.getName())) {
+                indexes.add(List.of(columnsByAttribute.get(field.getName())));
+                uniqueColumns.add(columnsByAttribute.get(field.getName()));
+            }
+        });
+        return new EntityTable(persister.getRootTableName(), Map.copyOf(columnsByAttribute), List.copyOf(indexes), Set.copyOf(uniqueColumns));
+    }
+}
@@ -0,0 +1,49 @@
+package com.store.application.utils.filters;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@code GET /actuator/indexadvisor} lists the observed filter shapes and the recommended indexes,
+ * {@code ?ddl=true} adds the migration statements; {@code DELETE} starts a new observation window.
+ */
+@Component
+@Endpoint(id = "indexadvisor")
+@RequiredArgsConstructor
+public class IndexAdvisorEndpoint {
+    private final FilterUsageRecorder usageRecorder;
+    private final IndexAdvisor indexAdvisor;
+
+    public record ObservedShape(String entity, List<String> filters, String sort, long calls, double meanMillis, double maxMillis) {
+    }
+
+    public record Report(List<ObservedShape> observed, List<IndexRecommendation> recommendations) {
+    }
+
+    @ReadOperation
+    public Report report(@Nullable Boolean ddl) {
+        List<ObservedShape> observed = usageRecorder.snapshot().stream()
+                .map(usage -> new ObservedShape(
+                        usage.key().entityType().getSimpleName(),
+                        usage.key().filters().stream().map(shape -> shape.key() + " " + shape.operator()).toList(),
+                        usage.key().sort(),
+                        usage.calls(),
+                        usage.totalNanos() / 1e6 / usage.calls(),
+                        usage.maxNanos() / 1e6))
+                .sorted(Comparator.comparingDouble((ObservedShape shape) -> shape.calls() * shape.meanMillis()).reversed())
+                .toList();
+        return new Report(observed, indexAdvisor.recommend(Boolean.TRUE.equals(ddl)));
+    }
+
+    @DeleteOperation
+    public void reset() {
+        usageRecorder.reset();
+    }
+}
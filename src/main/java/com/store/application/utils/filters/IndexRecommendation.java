@@ -0,0 +1,19 @@
+package com.store.application.utils.filters;
+
+import java.util.List;
+
+/**
+ * An index {@link IndexAdvisor} expects to serve some of the observed filter shapes.
+ * {@code share} is the part of all recorded filter time spent in those shapes, an upper bound on what the index can save;
+ * {@code ddl} is only filled when requested.
+ */
+public record IndexRecommendation(String table,
+                                  String method,
+                                  List<String> columns,
+                                  String where,
+                                  String reason,
+                                  long servedCalls,
+                                  double meanMillis,
+                                  double share,
+                                  String ddl) {
+}
@@ -11,4 +11,8 @@ public class PageFilter {
     private String sort;
     private String order;
     private List<FilterCriteria> filters;
+    // pagination.count-strategy when not set
+    private CountStrategy countStrategy;
+    // DTO properties to return, all of them when empty
+    private List<String> fields;
 }
@@ -0,0 +1,62 @@
+package com.store.application.utils.filters;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.store.application.exceptions.InvalidFieldsException;
+import com.store.application.utils.LogMessages;
+
+import java.beans.Introspector;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Validates the {@link PageFilter#getFields() fields} of a page filter against the properties a DTO serializes.
+ * Besides its fields, these are the read-only getters annotated with {@link JsonProperty}, which are not columns and
+ * have to be computed by the caller.
+ */
+public final class SparseFields {
+    private static final Map<Class<?>, Set<String>> PROPERTIES = new ConcurrentHashMap<>();
+
+    private SparseFields() {
+    }
+
+    public static boolean requested(PageFilter pageFilter) {
+        return pageFilter.getFields() != null && !pageFilter.getFields().isEmpty();
+    }
+
+    /**
+     * The requested fields without duplicates, in request order.
+     *
+     * @throws InvalidFieldsException if a field is not a readable property of the DTO
+     */
+    public static List<String> validate(Class<?> dtoType, List<String> fields) {
+        Set<String> properties = PROPERTIES.computeIfAbsent(dtoType, SparseFields::properties);
+        List<String> unknown = fields.stream().filter(field -> !properties.contains(field)).toList();
+        if (!unknown.isEmpty()) {
+            throw new InvalidFieldsException(String.format(LogMessages.INVALID_FIELDS, unknown, properties));
+        }
+        return fields.stream().distinct().toList();
+    }
+
+    // write-only properties such as passwords are never returned, so they cannot be selected either
+    private static Set<String> properties(Class<?> dtoType) {
+        Set<String> properties = new LinkedHashSet<>();
+        for (Field field : dtoType.getDeclaredFields()) {
+            JsonProperty property = field.getAnnotation(JsonProperty.class);
+            if (!Modifier.isStatic(field.getModifiers())
+                    && (property == null || property.access() != JsonProperty.Access.WRITE_ONLY)) {
+                properties.add(field.getName());
+            }
+        }
+        for (Method method : dtoType.getDeclaredMethods()) {
+            JsonProperty property = method.getAnnotation(JsonProperty.class);
+            if (property != null && property.access() == JsonProperty.Access.READ_ONLY
+                    && method.getName().startsWith("get") && method.getParameterCount() == 0) {
+                properties.add(Introspector.decapitalize(method.getName().substring(3)));
+            }
+        }
+        return Collections.unmodifiableSet(properties);
+    }
+}
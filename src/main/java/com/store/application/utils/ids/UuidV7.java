@@ -0,0 +1,20 @@
+package com.store.application.utils.ids;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Generates the annotated id as a time-ordered UUIDv7, so new rows are appended to the right edge of the primary key
+ * index instead of random pages. Ids of other versions already stored stay valid, the column is still a plain uuid.
+ */
+@IdGeneratorType(UuidV7Generator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface UuidV7 {
+}
@@ -0,0 +1,45 @@
+package com.store.application.utils.ids;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * RFC 9562 UUIDv7: 48 bits of Unix epoch milliseconds, 12 bits of sub-millisecond time (method 3 of the RFC)
+ * and 62 random bits. Nothing is shared between threads: ids from one thread are ordered to the clock's precision,
+ * and ids generated within the same fraction of a millisecond are told apart by their random bits.
+ */
+public class UuidV7Generator implements BeforeExecutionGenerator {
+    private static final Clock CLOCK = Clock.systemUTC();
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000_0000_0000_0000L;
+
+    public static UUID next() {
+        return at(CLOCK.instant(), ThreadLocalRandom.current().nextLong());
+    }
+
+    static UUID at(Instant instant, long random) {
+        long subMilli = (instant.getNano() % NANOS_PER_MILLI) * 4096 / NANOS_PER_MILLI;
+        long msb = (instant.toEpochMilli() << 16) | VERSION | subMilli;
+        long lsb = VARIANT | (random >>> 2);
+        return new UUID(msb, lsb);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return next();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
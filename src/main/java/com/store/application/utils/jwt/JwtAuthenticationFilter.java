@@ -1,5 +1,9 @@
 package com.store.application.utils.jwt;
 
+import com.store.application.security.PermissionAuthenticationToken;
+import com.store.application.security.RbacRegistry;
+import com.store.application.security.TokenRevocationService;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -7,7 +11,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -19,8 +23,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -28,6 +32,12 @@ import java.util.stream.Collectors;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtTokenUtil jwtTokenUtil;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+    private final RbacRegistry rbacRegistry;
+
+    // when enabled, the Authentication is built from the verified claims alone, without loading the user
+    @Value("${security.jwt.stateless-auth:false}")
+    private boolean statelessAuth;
 
     @Override
     protected void doFilterInternal(
@@ -43,31 +53,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         try {
             final String jwt = authHeader.substring(7);
-            final String email = jwtTokenUtil.extractEmail(jwt);
-            final List<String> roles = jwtTokenUtil.extractRoles(jwt);
+            final Claims claims = jwtTokenUtil.extractAllClaims(jwt);
+            final String email = claims.getSubject();
 
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
             if (email != null && authentication == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(email);
-
-                if (jwtTokenUtil.isTokenValid(jwt, userDetails)) {
-                    List<GrantedAuthority> authorities =
-                            roles.stream()
-                            .map(SimpleGrantedAuthority::new)
-                            .collect(Collectors.toList());
-
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            authorities
-                    );
-
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-
-                    String newToken = jwtTokenUtil.generateToken(userDetails);
-                    response.setHeader("Authorization", "Bearer " + newToken);
+                if (statelessAuth) {
+                    authenticateFromClaims(request, response, email, claims);
+                } else {
+                    authenticateFromUserDetails(request, response, email, claims);
                 }
             }
 
@@ -78,4 +73,58 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             response.getWriter().write(exception.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    private void authenticateFromClaims(HttpServletRequest request, HttpServletResponse response,
+                                        String email, Claims claims) {
+        if (tokenRevocationService.isRevoked(email, jwtTokenUtil.extractTokenVersion(claims))) {
+            log.debug("Rejected revoked token for subject: {}", email);
+            return;
+        }
+
+        setAuthentication(request, email, claims);
+
+        if (jwtTokenUtil.shouldRenew(claims)) {
+            String newToken = jwtTokenUtil.refreshToken(claims);
+            response.setHeader("Authorization", "Bearer " + newToken);
+        }
+    }
+
+    private void authenticateFromUserDetails(HttpServletRequest request, HttpServletResponse response,
+                                             String email, Claims claims) {
+        UserDetails userDetails = this.userDetailsService.loadUserByUsername(email);
+
+        if (!jwtTokenUtil.isTokenValid(claims, userDetails)) {
+            log.debug("Rejected revoked token for subject: {}", email);
+            return;
+        }
+
+        setAuthentication(request, userDetails, claims);
+
+        if (jwtTokenUtil.shouldRenew(claims)) {
+            String newToken = jwtTokenUtil.generateToken(userDetails);
+            response.setHeader("Authorization", "Bearer " + newToken);
+        }
+    }
+
+    private void setAuthentication(HttpServletRequest request, Object principal, Claims claims) {
+        List<String> roles = jwtTokenUtil.extractRoles(claims);
+        long permissionMask = jwtTokenUtil.extractPermissionMask(claims);
+
+        List<GrantedAuthority> authorities = new ArrayList<>(roles.size() + Long.bitCount(permissionMask));
+        for (String role : roles) {
+            if (!RbacRegistry.isPermission(role)) {
+                authorities.add(new SimpleGrantedAuthority(role));
+            }
+        }
+        authorities.addAll(rbacRegistry.authoritiesOf(permissionMask));
+
+        PermissionAuthenticationToken authToken = new PermissionAuthenticationToken(
+                principal,
+                permissionMask,
+                authorities
+        );
+
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
+}
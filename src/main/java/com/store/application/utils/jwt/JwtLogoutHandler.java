@@ -0,0 +1,37 @@
+package com.store.application.utils.jwt;
+
+import com.store.application.user.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.logout.LogoutHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * Revokes every token issued to the caller by bumping their token version.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JwtLogoutHandler implements LogoutHandler {
+    private final JwtTokenUtil jwtTokenUtil;
+    private final UserService userService;
+
+    @Override
+    public void logout(HttpServletRequest request, HttpServletResponse response, Authentication authentication) {
+        final String authHeader = request.getHeader("Authorization");
+
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return;
+        }
+
+        try {
+            final String email = jwtTokenUtil.extractEmail(authHeader.substring(7));
+            userService.revokeTokens(email);
+        } catch (Exception exception) {
+            log.error("Error revoking JWT token on logout: {}", exception.getMessage());
+        }
+    }
+}
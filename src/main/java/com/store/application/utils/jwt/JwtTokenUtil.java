@@ -1,10 +1,16 @@
 package com.store.application.utils.jwt;
 
+import com.store.application.security.CustomUserDetails;
+import com.store.application.security.RbacRegistry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -18,12 +24,54 @@ import java.util.stream.Collectors;
 
 @Service
 public class JwtTokenUtil {
+    public static final String ROLES_CLAIM = "roles";
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+    public static final String PERMISSIONS_CLAIM = "perms";
+
     @Value("${security.jwt.secret-key}")
     private String secretKey;
 
     @Value("${security.jwt.expiration-time}")
     private long jwtExpiration;
 
+    // fraction of a token's lifetime after which requests get a renewed token, 0 renews on every request
+    @Value("${security.jwt.renewal-threshold:0.5}")
+    private double renewalThreshold;
+
+    private Key signInKey;
+    private JwtParser jwtParser;
+
+    private final RbacRegistry rbacRegistry;
+
+    private final Counter issuedTokens;
+    private final Counter refreshedTokens;
+    private final Counter skippedRenewals;
+
+    public JwtTokenUtil(RbacRegistry rbacRegistry, MeterRegistry meterRegistry) {
+        this.rbacRegistry = rbacRegistry;
+        this.issuedTokens = Counter.builder("jwt.tokens.issued")
+                .description("Tokens signed from the user's current authorities")
+                .tag("type", "new")
+                .register(meterRegistry);
+        this.refreshedTokens = Counter.builder("jwt.tokens.issued")
+                .description("Tokens re-signed from already verified claims")
+                .tag("type", "refresh")
+                .register(meterRegistry);
+        this.skippedRenewals = Counter.builder("jwt.tokens.renewals.skipped")
+                .description("Authenticated requests whose token was still fresh enough to keep")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        if (renewalThreshold < 0 || renewalThreshold > 1) {
+            throw new IllegalStateException("security.jwt.renewal-threshold must be between 0 and 1, got " + renewalThreshold);
+        }
+        // decoding the key and building the parser is not free, do it once instead of per token
+        signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        jwtParser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+    }
+
     public String extractEmail(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -34,8 +82,26 @@ public class JwtTokenUtil {
     }
 
     public List<String> extractRoles(String token) {
-        Claims claims = extractAllClaims(token);
-        return claims.get("roles", List.class);
+        return extractRoles(extractAllClaims(token));
+    }
+
+    public List<String> extractRoles(Claims claims) {
+        return claims.get(ROLES_CLAIM, List.class);
+    }
+
+    /**
+     * Permission mask of the token, see {@link RbacRegistry}.
+     * Tokens issued before the mask existed carry the permission names in their roles claim instead.
+     */
+    public long extractPermissionMask(Claims claims) {
+        Long mask = claims.get(PERMISSIONS_CLAIM, Long.class);
+        return mask != null ? mask : rbacRegistry.maskOf(extractRoles(claims));
+    }
+
+    public int extractTokenVersion(Claims claims) {
+        // tokens issued before versioning was introduced carry no claim and count as version 0
+        Integer version = claims.get(TOKEN_VERSION_CLAIM, Integer.class);
+        return version == null ? 0 : version;
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -51,18 +117,46 @@ public class JwtTokenUtil {
             extraClaims.put("isAdmin", false);
         }
 
-        extraClaims.put("roles", roles.stream()
+        // permissions travel as a compact mask, only the role names are spelled out
+        extraClaims.put(ROLES_CLAIM, roles.stream()
                 .map(GrantedAuthority::getAuthority)
+                .filter(authority -> !RbacRegistry.isPermission(authority))
                 .collect(Collectors.toList()));
+        extraClaims.put(PERMISSIONS_CLAIM, rbacRegistry.maskOfAuthorities(roles));
+
+        if (userDetails instanceof CustomUserDetails customUserDetails) {
+            extraClaims.put(TOKEN_VERSION_CLAIM, customUserDetails.getTokenVersion());
+        }
 
         return buildToken(extraClaims, userDetails, getExpirationTime());
     }
 
+    /**
+     * Whether a request authenticated with these verified claims should be handed a renewed token,
+     * i.e. whether the token has already used up the configured fraction of its lifetime.
+     */
+    public boolean shouldRenew(Claims claims) {
+        long issuedAt = claims.getIssuedAt().getTime();
+        long lifetime = claims.getExpiration().getTime() - issuedAt;
+        if (System.currentTimeMillis() - issuedAt >= lifetime * renewalThreshold) {
+            return true;
+        }
+        skippedRenewals.increment();
+        return false;
+    }
+
     public String refreshToken(String token) {
-        Claims claims = extractAllClaims(token);
+        return refreshToken(extractAllClaims(token));
+    }
+
+    /**
+     * Re-signs already verified claims with a new expiration, without going back to the user store.
+     */
+    public String refreshToken(Claims claims) {
         claims.setIssuedAt(new Date(System.currentTimeMillis()));
         claims.setExpiration(new Date(System.currentTimeMillis() + getExpirationTime()));
 
+        refreshedTokens.increment();
         return Jwts.builder()
                 .setClaims(claims)
                 .signWith(getSignInKey(), SignatureAlgorithm.HS256)
@@ -78,6 +172,7 @@ public class JwtTokenUtil {
             UserDetails userDetails,
             long expiration
     ) {
+        issuedTokens.increment();
         return Jwts
                 .builder()
                 .setClaims(extraClaims)
@@ -89,29 +184,34 @@ public class JwtTokenUtil {
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String email = extractEmail(token);
-        return (email.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return isTokenValid(extractAllClaims(token), userDetails);
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    /**
+     * Whether verified claims still hold for the loaded user: same subject, the user is enabled
+     * and the token was issued for the user's current token version, i.e. not revoked by a logout or update since.
+     */
+    public boolean isTokenValid(Claims claims, UserDetails userDetails) {
+        if (!claims.getSubject().equals(userDetails.getUsername()) || !userDetails.isEnabled()) {
+            return false;
+        }
+        if (userDetails instanceof CustomUserDetails customUserDetails
+                && customUserDetails.getTokenVersion() != extractTokenVersion(claims)) {
+            return false;
+        }
+        return !claims.getExpiration().before(new Date());
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
+    /**
+     * Parses the token, verifying its signature and expiration.
+     */
+    public Claims extractAllClaims(String token) {
+        return jwtParser
                 .parseClaimsJws(token)
                 .getBody();
     }
 
     private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+        return signInKey;
     }
 }
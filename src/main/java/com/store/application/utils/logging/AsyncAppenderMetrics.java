@@ -0,0 +1,42 @@
+package com.store.application.utils.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.NonNull;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+/**
+ * Exposes the queue depth and dropped events of every {@link DroppingAsyncAppender} attached to the root logger.
+ */
+@Component
+public class AsyncAppenderMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        Iterator<Appender<ILoggingEvent>> appenders = context.getLogger(Logger.ROOT_LOGGER_NAME).iteratorForAppenders();
+        while (appenders.hasNext()) {
+            if (appenders.next() instanceof DroppingAsyncAppender appender) {
+                FunctionCounter.builder("logging.async.dropped", appender, DroppingAsyncAppender::getDroppedCount)
+                        .description("Log events dropped by the async appender")
+                        .tag("appender", appender.getName())
+                        .register(registry);
+                Gauge.builder("logging.async.queue.depth", appender, DroppingAsyncAppender::getNumberOfElementsInQueue)
+                        .description("Log events waiting to be written")
+                        .tag("appender", appender.getName())
+                        .register(registry);
+            }
+        }
+    }
+}
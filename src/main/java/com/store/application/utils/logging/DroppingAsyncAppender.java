@@ -0,0 +1,35 @@
+package com.store.application.utils.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logback {@link AsyncAppender} that counts the events it drops, either below the discarding threshold
+ * or, with {@code neverBlock}, once the queue is full. The latter is approximate under contention.
+ */
+public class DroppingAsyncAppender extends AsyncAppender {
+    private final LongAdder dropped = new LongAdder();
+
+    @Override
+    protected boolean isDiscardable(ILoggingEvent event) {
+        boolean discardable = super.isDiscardable(event);
+        if (discardable) {
+            dropped.increment();
+        }
+        return discardable;
+    }
+
+    @Override
+    protected void preprocess(ILoggingEvent event) {
+        super.preprocess(event);
+        if (isNeverBlock() && getRemainingCapacity() == 0) {
+            dropped.increment();
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,39 @@
+package com.store.application.utils.sql;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+/**
+ * Tells unique and foreign key violations apart from other integrity failures, for writes that rely on the database's
+ * constraints instead of looking for a conflicting or referenced row first.
+ */
+public final class ConstraintViolations {
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final String FOREIGN_KEY_VIOLATION = "23503";
+
+    private ConstraintViolations() {
+    }
+
+    public static boolean isUniqueViolation(DataIntegrityViolationException ex) {
+        return is(ex, ConstraintViolationException.ConstraintKind.UNIQUE, UNIQUE_VIOLATION);
+    }
+
+    public static boolean isForeignKeyViolation(DataIntegrityViolationException ex) {
+        // Hibernate has no constraint kind for foreign keys, only the SQL state tells
+        return is(ex, null, FOREIGN_KEY_VIOLATION);
+    }
+
+    private static boolean is(DataIntegrityViolationException ex, ConstraintViolationException.ConstraintKind kind, String sqlState) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (kind != null && cause instanceof ConstraintViolationException violation && violation.getKind() == kind) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && sqlState.equals(sqlException.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,32 @@
+package com.store.application.utils.sql;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.function.Supplier;
+
+/**
+ * Prefixes the next select Hibernate prepares on the current thread, so a criteria query can be run as
+ * {@code EXPLAIN} with its parameters bound as usual. Only one statement is rewritten per {@link #explain} call.
+ */
+public class ExplainRewriter implements StatementInspector {
+    private static final ThreadLocal<String> PREFIX = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        String prefix = PREFIX.get();
+        if (prefix == null || !sql.regionMatches(true, 0, "select", 0, 6)) {
+            return sql;
+        }
+        PREFIX.remove();
+        return prefix + sql;
+    }
+
+    public static <T> T explain(String prefix, Supplier<T> query) {
+        PREFIX.set(prefix);
+        try {
+            return query.get();
+        } finally {
+            PREFIX.remove();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.store.application.utils.sql;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary. Reads stay on the primary
+ * while the replica lags and, for a short window, for users who just committed a write.
+ * Has to sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so the
+ * connection is only taken once the transaction's read-only flag is set.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    public enum Target {PRIMARY, REPLICA}
+
+    private final ReadYourWritesTracker readYourWrites;
+    private final ReplicaLagMonitor lagMonitor;
+    private final Counter writes;
+    private final Counter reads;
+    private final Counter stickyReads;
+    private final Counter laggingReads;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReadYourWritesTracker readYourWrites,
+                                      ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        this.readYourWrites = readYourWrites;
+        this.lagMonitor = lagMonitor;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.writes = counter(meterRegistry, Target.PRIMARY, "write");
+        this.stickyReads = counter(meterRegistry, Target.PRIMARY, "read-your-writes");
+        this.laggingReads = counter(meterRegistry, Target.PRIMARY, "replica-lag");
+        this.reads = counter(meterRegistry, Target.REPLICA, "read");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String user = ReadYourWritesTracker.currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (user != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        readYourWrites.recordWrite(user);
+                    }
+                });
+            }
+            writes.increment();
+            return Target.PRIMARY;
+        }
+        if (user != null && readYourWrites.wroteRecently(user)) {
+            stickyReads.increment();
+            return Target.PRIMARY;
+        }
+        if (!lagMonitor.isUsable()) {
+            laggingReads.increment();
+            return Target.PRIMARY;
+        }
+        reads.increment();
+        return Target.REPLICA;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, Target target, String reason) {
+        return Counter.builder("datasource.routing")
+                .description("Connections routed to the primary or the replica")
+                .tag("target", target.name().toLowerCase())
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,56 @@
+package com.store.application.utils.sql;
+
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers when each user last committed a write, so their reads stay on the primary until the replica
+ * has had {@code window} to catch up with it.
+ */
+public class ReadYourWritesTracker {
+    // past this many users the expired entries are dropped on the next write
+    private static final int PRUNE_THRESHOLD = 10_000;
+
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final long windowNanos;
+    private final LongSupplier clock;
+
+    public ReadYourWritesTracker(Duration window) {
+        this(window, System::nanoTime);
+    }
+
+    ReadYourWritesTracker(Duration window, LongSupplier clock) {
+        this.windowNanos = window.toNanos();
+        this.clock = clock;
+    }
+
+    public void recordWrite(String user) {
+        long now = clock.getAsLong();
+        if (lastWrites.size() >= PRUNE_THRESHOLD) {
+            lastWrites.values().removeIf(writtenAt -> now - writtenAt >= windowNanos);
+        }
+        lastWrites.put(user, now);
+    }
+
+    public boolean wroteRecently(String user) {
+        Long writtenAt = lastWrites.get(user);
+        return writtenAt != null && clock.getAsLong() - writtenAt < windowNanos;
+    }
+
+    /**
+     * The authenticated user of the current request, null for anonymous calls and background work.
+     */
+    public static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,50 @@
+package com.store.application.utils.sql;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Measures the replica's replay lag in the background; reads go to the primary while the lag is above
+ * the limit or cannot be measured.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+    private final JdbcTemplate jdbcTemplate;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, Duration maxLag, Duration timeout, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new JdbcTemplate(replica);
+        this.jdbcTemplate.setQueryTimeout((int) Math.max(1, timeout.toSeconds()));
+        this.lagQuery = lagQuery;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        Gauge.builder("datasource.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Replay lag of the read replica, NaN when it cannot be measured")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${datasource.routing.lag-check-interval:PT5S}")
+    public void refresh() {
+        try {
+            Double lag = jdbcTemplate.queryForObject(lagQuery, Double.class);
+            lagSeconds = lag == null ? 0 : lag;
+        } catch (RuntimeException e) {
+            if (!Double.isNaN(lagSeconds)) {
+                log.warn("Could not measure the replica lag, reads go to the primary: {}", e.getMessage());
+            }
+            lagSeconds = Double.NaN;
+        }
+    }
+
+    public boolean isUsable() {
+        return lagSeconds <= maxLagSeconds;
+    }
+}
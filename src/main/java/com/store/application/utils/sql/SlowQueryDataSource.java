@@ -0,0 +1,108 @@
+package com.store.application.utils.sql;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Times every statement executed through its connections and hands those above the threshold to
+ * {@link SlowQueryRecorder}, with the parameters they were bound with.
+ */
+public class SlowQueryDataSource extends DelegatingDataSource {
+    private final Supplier<SlowQueryRecorder> recorder;
+
+    public SlowQueryDataSource(DataSource target, Supplier<SlowQueryRecorder> recorder) {
+        super(target);
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "prepareStatement" -> wrap(connection, (Statement) invoke(connection, method, args),
+                            PreparedStatement.class, (String) args[0]);
+                    case "createStatement" -> wrap(connection, (Statement) invoke(connection, method, args),
+                            Statement.class, null);
+                    default -> invoke(connection, method, args);
+                });
+    }
+
+    private Object wrap(Connection connection, Statement statement, Class<? extends Statement> type, String sql) {
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                new StatementHandler(connection, statement, sql));
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Connection connection;
+        private final Statement target;
+        private final String sql;
+        // statements are used by one thread at a time
+        private final Map<Integer, SqlParameters.Binding> bindings = new TreeMap<>();
+
+        private StatementHandler(Connection connection, Statement target, String sql) {
+            this.connection = connection;
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (sql != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                bindings.put(index, new SqlParameters.Binding(method, args.clone()));
+            } else if (name.equals("clearParameters")) {
+                bindings.clear();
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            if (!name.startsWith("execute")) {
+                return SlowQueryDataSource.invoke(target, method, args);
+            }
+
+            long start = System.nanoTime();
+            try {
+                return SlowQueryDataSource.invoke(target, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                SlowQueryRecorder slowQueryRecorder = recorder.get();
+                if (slowQueryRecorder != null && slowQueryRecorder.isSlow(elapsed)) {
+                    String executed = args != null && args.length > 0 && args[0] instanceof String statementSql ? statementSql : sql;
+                    slowQueryRecorder.record(connection, executed == null ? name : executed, Map.copyOf(bindings), elapsed);
+                }
+            }
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.store.application.utils.sql;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the data sources in {@link SlowQueryDataSource}. The recorder is looked up on first use,
+ * as post processors are created before the beans it depends on.
+ */
+@Component
+@ConditionalOnProperty(name = "sql.slow-query.enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryDataSourcePostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<SlowQueryRecorder> recorder;
+
+    public SlowQueryDataSourcePostProcessor(ObjectProvider<SlowQueryRecorder> recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        // only the pools are wrapped, data sources delegating to them would record every statement twice
+        if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource) && !(bean instanceof AbstractRoutingDataSource)) {
+            return new SlowQueryDataSource(dataSource, recorder::getIfAvailable);
+        }
+        return bean;
+    }
+}
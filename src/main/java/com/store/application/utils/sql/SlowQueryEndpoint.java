@@ -0,0 +1,29 @@
+package com.store.application.utils.sql;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/slowqueries} lists the recorded slow statements, newest first; {@code DELETE} clears them.
+ */
+@Component
+@Endpoint(id = "slowqueries")
+@RequiredArgsConstructor
+public class SlowQueryEndpoint {
+    private final SlowQueryRecorder slowQueryRecorder;
+
+    @ReadOperation
+    public List<SlowQueryRecorder.SlowQuery> entries() {
+        return slowQueryRecorder.entries();
+    }
+
+    @DeleteOperation
+    public void clear() {
+        slowQueryRecorder.clear();
+    }
+}
@@ -0,0 +1,186 @@
+package com.store.application.utils.sql;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.lang.reflect.InvocationTargetException;
+import java.sql.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the last statements slower than {@code sql.slow-query.threshold} in a ring buffer, with their parameters,
+ * the endpoint and query context (such as the {@code PageFilter}) they ran for and, for a sample of selects on
+ * PostgreSQL, their {@code EXPLAIN (ANALYZE, BUFFERS)} plan. Selects that lock rows, call functions or run outside a
+ * transaction get a plain {@code EXPLAIN} instead, so they are never executed a second time.
+ * Every slow statement is also recorded in the {@code sql.slow.queries} timer per endpoint.
+ */
+@Component
+@Slf4j
+public class SlowQueryRecorder {
+    private static final String CONTEXT_ATTRIBUTE = SlowQueryRecorder.class.getName() + ".CONTEXT";
+    private static final String EXPLAIN_ANALYZE = "explain (analyze, buffers) ";
+    private static final String EXPLAIN = "explain ";
+    // locks and sequence or function side effects are not all undone by rolling back to a savepoint
+    private static final Pattern SIDE_EFFECTS = Pattern.compile(
+            "\\bfor\\s+(update|no\\s+key\\s+update|share|key\\s+share)\\b|\\b(pg_\\w+|nextval|setval)\\s*\\(",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern FROM = Pattern.compile("\\bfrom\\b", Pattern.CASE_INSENSITIVE);
+    private static final String NO_ENDPOINT = "none";
+    // unmatched requests share a tag, their raw URIs would make one timer each
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+    private final long thresholdNanos;
+    private final double explainSampleRate;
+    private final Set<SqlParameters.RedactedColumn> redactedColumns;
+    private final AtomicReferenceArray<SlowQuery> entries;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public record SlowQuery(long id, Instant at, String endpoint, String context, String sql,
+                            List<String> parameters, double millis, String plan) {
+    }
+
+    public SlowQueryRecorder(MeterRegistry meterRegistry,
+                             @Value("${sql.slow-query.threshold:500ms}") Duration threshold,
+                             @Value("${sql.slow-query.capacity:100}") int capacity,
+                             @Value("${sql.slow-query.explain-sample-rate:0.1}") double explainSampleRate,
+                             @Value("${sql.slow-query.redacted-columns:users.password}") List<String> redactedColumns) {
+        this.meterRegistry = meterRegistry;
+        this.thresholdNanos = threshold.toNanos();
+        this.explainSampleRate = explainSampleRate;
+        this.redactedColumns = redactedColumns.stream().map(SqlParameters.RedactedColumn::parse).collect(Collectors.toUnmodifiableSet());
+        this.entries = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Attaches a description of what the current request is querying to the slow statements it issues.
+     */
+    public static void setContext(Object context) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(CONTEXT_ATTRIBUTE, context, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    boolean isSlow(long nanos) {
+        return nanos >= thresholdNanos;
+    }
+
+    // connection is the unwrapped one, so the EXPLAIN is neither timed nor recorded itself
+    void record(Connection connection, String sql, Map<Integer, SqlParameters.Binding> bindings, long nanos) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        String endpoint = endpointOf(attributes);
+        Object context = attributes == null ? null : attributes.getAttribute(CONTEXT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        String plan = shouldExplain(sql) ? explain(connection, sql, bindings) : null;
+
+        long id = sequence.getAndIncrement();
+        entries.set((int) (id % entries.length()), new SlowQuery(id, Instant.now(), endpoint,
+                context == null ? null : context.toString(), sql,
+                SqlParameters.render(sql, bindings, redactedColumns), nanos / 1e6, plan));
+        timer(endpoint).record(nanos, TimeUnit.NANOSECONDS);
+        log.warn("Slow SQL statement ({} ms) for {}: {}", nanos / 1_000_000, endpoint, sql);
+    }
+
+    /**
+     * The recorded statements, newest first.
+     */
+    public List<SlowQuery> entries() {
+        List<SlowQuery> recent = new ArrayList<>();
+        long last = sequence.get() - 1;
+        for (long id = last; id >= 0 && id > last - entries.length(); id--) {
+            SlowQuery entry = entries.get((int) (id % entries.length()));
+            // skips slots already overwritten by a newer statement
+            if (entry != null && entry.id() == id) {
+                recent.add(entry);
+            }
+        }
+        return recent;
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+
+    private boolean shouldExplain(String sql) {
+        return explainSampleRate > 0
+                && sql.stripLeading().regionMatches(true, 0, "select", 0, 6)
+                && ThreadLocalRandom.current().nextDouble() < explainSampleRate;
+    }
+
+    /**
+     * ANALYZE executes the select again, which is only done for plain table reads inside a transaction,
+     * where everything it did is rolled back afterwards.
+     */
+    static String explainPrefix(String sql, boolean autoCommit) {
+        return !autoCommit && FROM.matcher(sql).find() && !SIDE_EFFECTS.matcher(sql).find() ? EXPLAIN_ANALYZE : EXPLAIN;
+    }
+
+    // inside a savepoint that is always rolled back, so the caller's transaction neither keeps its effects nor aborts
+    private String explain(Connection connection, String sql, Map<Integer, SqlParameters.Binding> bindings) {
+        try {
+            if (!"PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())) {
+                return null;
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            Savepoint savepoint = autoCommit ? null : connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(explainPrefix(sql, autoCommit) + sql)) {
+                for (SqlParameters.Binding binding : bindings.values()) {
+                    binding.method().invoke(statement, binding.args());
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.append(resultSet.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            } finally {
+                if (savepoint != null) {
+                    connection.rollback(savepoint);
+                    connection.releaseSavepoint(savepoint);
+                }
+            }
+        } catch (Throwable e) {
+            log.debug("Could not explain slow SQL statement: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static String endpointOf(RequestAttributes attributes) {
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            return request.getMethod() + " " + (pattern instanceof String uri ? uri : UNKNOWN_URI);
+        }
+        return NO_ENDPOINT;
+    }
+
+    private Timer timer(String endpoint) {
+        return timers.computeIfAbsent(endpoint, key -> Timer.builder("sql.slow.queries")
+                .description("SQL statements slower than sql.slow-query.threshold")
+                .tag("endpoint", key)
+                .register(meterRegistry));
+    }
+}
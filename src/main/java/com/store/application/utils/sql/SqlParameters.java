@@ -0,0 +1,112 @@
+package com.store.application.utils.sql;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders the parameters a statement was bound with, replacing the values of redacted columns.
+ * The column of each {@code ?} is read from the SQL: the insert column list, or the column it is compared with.
+ * On a statement touching a table with redacted columns, parameters whose column cannot be told are redacted as well.
+ */
+final class SqlParameters {
+    static final String REDACTED = "<redacted>";
+    private static final int MAX_VALUE_LENGTH = 100;
+    private static final Pattern INSERT = Pattern.compile("^\\s*insert\\s+into\\s+([\\w.]+)\\s*\\(([^)]*)\\)\\s*values\\s*\\(", Pattern.CASE_INSENSITIVE);
+    private static final Pattern COMPARED_COLUMN = Pattern.compile("([a-z_][\\w.]*)\\s*(?:=|<>|!=|<=|>=|<|>|\\blike|\\bin\\s*\\(|\\bbetween)\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PAGING = Pattern.compile("\\b(?:offset|limit|fetch\\s+(?:first|next))\\s*$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern CONTINUATION = Pattern.compile("(?:,|\\band)\\s*$", Pattern.CASE_INSENSITIVE);
+
+    record RedactedColumn(String table, String column) {
+        static RedactedColumn parse(String qualified) {
+            int dot = qualified.lastIndexOf('.');
+            return new RedactedColumn(qualified.substring(0, dot).trim().toLowerCase(), qualified.substring(dot + 1).trim().toLowerCase());
+        }
+    }
+
+    // a setter call on a PreparedStatement, replayed to run EXPLAIN with the same values
+    record Binding(Method method, Object[] args) {
+        Object value() {
+            return method.getName().equals("setNull") ? null : args[1];
+        }
+    }
+
+    private SqlParameters() {
+    }
+
+    static List<String> render(String sql, Map<Integer, Binding> bindings, Set<RedactedColumn> redactedColumns) {
+        if (bindings.isEmpty()) {
+            return List.of();
+        }
+        String lowerSql = sql.toLowerCase();
+        Set<String> redacted = new HashSet<>();
+        boolean touchesRedactedTable = false;
+        for (RedactedColumn column : redactedColumns) {
+            if (Pattern.compile("\\b" + Pattern.quote(column.table()) + "\\b").matcher(lowerSql).find()) {
+                redacted.add(column.column());
+                touchesRedactedTable = true;
+            }
+        }
+
+        List<String> columns = touchesRedactedTable ? columnsOf(lowerSql) : List.of();
+        int parameterCount = bindings.keySet().stream().max(Integer::compare).orElse(0);
+        List<String> rendered = new ArrayList<>(parameterCount);
+        for (int index = 1; index <= parameterCount; index++) {
+            Binding binding = bindings.get(index);
+            String column = index <= columns.size() ? columns.get(index - 1) : null;
+            if (touchesRedactedTable && (column == null || redacted.contains(column))) {
+                rendered.add(REDACTED);
+            } else {
+                rendered.add(binding == null ? "?" : render(binding.value()));
+            }
+        }
+        return rendered;
+    }
+
+    // the column of every ? in order, empty for paging values and null where it cannot be told
+    static List<String> columnsOf(String sql) {
+        Matcher insert = INSERT.matcher(sql);
+        if (insert.find()) {
+            List<String> columns = new ArrayList<>();
+            for (String column : insert.group(2).split(",")) {
+                columns.add(unqualified(column.trim()));
+            }
+            return columns;
+        }
+
+        List<String> columns = new ArrayList<>();
+        String previous = null;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                String before = sql.substring(Math.max(0, i - 200), i);
+                Matcher compared = COMPARED_COLUMN.matcher(before);
+                String column = compared.find() ? unqualified(compared.group(1))
+                        : PAGING.matcher(before).find() ? ""
+                        : CONTINUATION.matcher(before).find() ? previous : null;
+                columns.add(column);
+                previous = column;
+            }
+        }
+        return columns;
+    }
+
+    private static String unqualified(String column) {
+        return column.substring(column.lastIndexOf('.') + 1).toLowerCase();
+    }
+
+    private static String render(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof byte[] bytes) {
+            return "<" + bytes.length + " bytes>";
+        }
+        String text = String.valueOf(value);
+        return text.length() <= MAX_VALUE_LENGTH ? text : text.substring(0, MAX_VALUE_LENGTH) + "...";
+    }
+}
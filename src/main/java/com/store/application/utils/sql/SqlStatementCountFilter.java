@@ -0,0 +1,119 @@
+package com.store.application.utils.sql;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how many SQL statements each request issues, per endpoint, and warns about requests above a threshold,
+ * which is usually an N+1. In development the count can also be returned in a response header;
+ * responses streamed asynchronously, such as server-sent events, are passed through without it.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@Slf4j
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+    public static final String HEADER = "X-SQL-Statement-Count";
+    private static final String UNKNOWN_URI = "UNKNOWN";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean headerEnabled;
+    private final int warnThreshold;
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public SqlStatementCountFilter(MeterRegistry meterRegistry,
+                                   @Value("${sql.statements.header-enabled:false}") boolean headerEnabled,
+                                   @Value("${sql.statements.warn-threshold:20}") int warnThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.headerEnabled = headerEnabled;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+        // the header has to be set after the handler ran, so the body is held back until then
+        CountHeaderResponseWrapper wrapper = headerEnabled ? new CountHeaderResponseWrapper(request, response) : null;
+        int count;
+        try (SqlStatementCounter.Scope scope = SqlStatementCounter.open()) {
+            filterChain.doFilter(request, wrapper != null ? wrapper : response);
+            count = scope.getCount();
+        }
+
+        String uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String pattern ? pattern : UNKNOWN_URI;
+        summary(request.getMethod(), uri).record(count);
+        if (count > warnThreshold) {
+            log.warn("{} {} issued {} SQL statements, check for N+1 queries", request.getMethod(), uri, count);
+        }
+        if (wrapper != null && !request.isAsyncStarted()) {
+            wrapper.setHeader(HEADER, String.valueOf(count));
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private DistributionSummary summary(String method, String uri) {
+        return summaries.computeIfAbsent(method + " " + uri, key -> DistributionSummary.builder("http.server.sql.statements")
+                .description("SQL statements issued per request")
+                .tag("method", method)
+                .tag("uri", uri)
+                .serviceLevelObjectives(1, 2, 5, 10, 20, 50, 100)
+                .register(meterRegistry));
+    }
+
+    /**
+     * Holds the body back until the header is set, except once the request went async: the body is then written by
+     * other threads after this filter returned, so it goes straight to the response.
+     */
+    private static final class CountHeaderResponseWrapper extends ContentCachingResponseWrapper {
+        private final HttpServletRequest request;
+
+        CountHeaderResponseWrapper(HttpServletRequest request, HttpServletResponse response) {
+            super(response);
+            this.request = request;
+        }
+
+        private boolean isStreaming() {
+            return request.isAsyncStarted() || request.getDispatcherType() == DispatcherType.ASYNC;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            return isStreaming() ? getResponse().getOutputStream() : super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            return isStreaming() ? getResponse().getWriter() : super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (isStreaming()) {
+                getResponse().flushBuffer();
+            } else {
+                super.flushBuffer();
+            }
+        }
+    }
+}
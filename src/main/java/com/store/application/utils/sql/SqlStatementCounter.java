@@ -0,0 +1,54 @@
+package com.store.application.utils.sql;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a {@link Scope} is open.
+ * Scopes nest, the statements of an inner scope are also counted by the outer one.
+ */
+public class SqlStatementCounter implements StatementInspector {
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.count++;
+        }
+        return sql;
+    }
+
+    public static Scope open() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    public static final class Scope implements AutoCloseable {
+        private final Scope parent;
+        private int count;
+        private boolean closed;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                parent.count += count;
+                CURRENT.set(parent);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.store.application.utils.timing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Hierarchical timing wheel: level n has {@code wheelSize} buckets spanning {@code tick * wheelSize^n} each, and levels
+ * are added as far-out timers need them. Adding or cancelling a timer is O(1) however many are pending, and advancing
+ * only touches buckets that came due, whose timers either expire or move down a level.
+ * Timers expire at the end of their tick, so never before their deadline and at most one tick after it.
+ * Not thread-safe on its own, callers serialize access.
+ */
+public class TimingWheel<T> {
+    private final long tick;
+    private final int wheelSize;
+    // buckets with timers, by when they come due, lower levels first so their slots are free before a cascade refills them
+    private final PriorityQueue<Bucket<T>> due = new PriorityQueue<>(Comparator.<Bucket<T>>comparingLong(bucket -> bucket.expiration)
+            .thenComparingInt(bucket -> bucket.level));
+    private final List<Level<T>> levels = new ArrayList<>();
+    private final List<Timeout<T>> expired = new ArrayList<>();
+    private long clock;
+    private int size;
+
+    public TimingWheel(long tick, int wheelSize, long startTime) {
+        if (tick <= 0 || wheelSize < 2) {
+            throw new IllegalArgumentException("The tick must be positive and the wheel hold at least 2 buckets");
+        }
+        this.tick = tick;
+        this.wheelSize = wheelSize;
+        this.clock = startTime;
+        this.levels.add(new Level<>(0, tick, wheelSize));
+    }
+
+    /**
+     * Adds a timer, one whose deadline has already passed is returned by the next {@link #advance(long)}.
+     */
+    public Timeout<T> add(T item, long deadline) {
+        Timeout<T> timeout = new Timeout<>(item, deadline);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Moves the clock to {@code now} and returns the items of the timers that expired, by deadline.
+     */
+    public List<T> advance(long now) {
+        Bucket<T> bucket;
+        while ((bucket = due.peek()) != null && bucket.expiration <= now) {
+            due.poll();
+            // buckets are flushed in order, so none that is still due can share a slot with a timer placed now
+            clock = Math.max(clock, bucket.expiration);
+            List<Timeout<T>> timeouts = bucket.timeouts;
+            bucket.timeouts = new ArrayList<>();
+            bucket.expiration = -1;
+            timeouts.forEach(this::place);
+        }
+        clock = Math.max(clock, now);
+        expired.sort(Comparator.comparingLong(Timeout::deadline));
+        List<T> result = expired.stream().map(timeout -> timeout.item).toList();
+        expired.clear();
+        size -= result.size();
+        return result;
+    }
+
+    /**
+     * Timers added and not yet returned by {@link #advance(long)}, cancelled ones included until they come due.
+     */
+    public int size() {
+        return size;
+    }
+
+    private void place(Timeout<T> timeout) {
+        if (timeout.cancelled) {
+            size--;
+            return;
+        }
+        if (timeout.deadline <= clock) {
+            expired.add(timeout);
+            return;
+        }
+        for (int index = 0; ; index++) {
+            if (index == levels.size()) {
+                levels.add(new Level<>(index, levels.getLast().interval, wheelSize));
+            }
+            Level<T> level = levels.get(index);
+            long start = clock - clock % level.tick;
+            if (timeout.deadline < start + level.interval) {
+                long slot = timeout.deadline / level.tick;
+                Bucket<T> bucket = level.buckets[(int) (slot % wheelSize)];
+                bucket.timeouts.add(timeout);
+                // the lowest level expires a bucket once its whole tick has passed, higher ones as it starts to cascade it
+                long expiration = index == 0 ? (slot + 1) * tick : slot * level.tick;
+                if (bucket.expiration != expiration) {
+                    bucket.expiration = expiration;
+                    due.add(bucket);
+                }
+                return;
+            }
+        }
+    }
+
+    public static final class Timeout<T> {
+        private final T item;
+        private final long deadline;
+        private boolean cancelled;
+
+        private Timeout(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+
+        // dropped lazily, when its bucket comes due
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public long deadline() {
+            return deadline;
+        }
+    }
+
+    private static final class Level<T> {
+        private final long tick;
+        private final long interval;
+        private final Bucket<T>[] buckets;
+
+        @SuppressWarnings("unchecked")
+        private Level(int index, long tick, int wheelSize) {
+            this.tick = tick;
+            this.interval = Math.multiplyExact(tick, wheelSize);
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new Bucket<>(index);
+            }
+        }
+    }
+
+    private static final class Bucket<T> {
+        private final int level;
+        private List<Timeout<T>> timeouts = new ArrayList<>();
+        private long expiration = -1;
+
+        private Bucket(int level) {
+            this.level = level;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.store.application.permission;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.when;
+
+class PermissionRepositoryTest {
+
+    private PermissionRepository permissionRepository;
+
+    @BeforeEach
+    void setUp() {
+        permissionRepository = Mockito.mock(PermissionRepository.class, Mockito.CALLS_REAL_METHODS);
+        doNothing().when(permissionRepository).lockForBitAllocation();
+    }
+
+    @Test
+    void allocatesLowestFreeBit() {
+        when(permissionRepository.findAssignedBits()).thenReturn(List.of(0, 1, 3, 4));
+
+        assertEquals(OptionalInt.of(2), permissionRepository.allocateBit());
+    }
+
+    @Test
+    void locksBeforeReadingAssignedBits() {
+        when(permissionRepository.findAssignedBits()).thenReturn(List.of());
+
+        assertEquals(OptionalInt.of(0), permissionRepository.allocateBit());
+        InOrder order = inOrder(permissionRepository);
+        order.verify(permissionRepository).lockForBitAllocation();
+        order.verify(permissionRepository).findAssignedBits();
+    }
+
+    @Test
+    void ignoresBitsOutsideTheMask() {
+        when(permissionRepository.findAssignedBits()).thenReturn(List.of(-1, 0, 64));
+
+        assertEquals(OptionalInt.of(1), permissionRepository.allocateBit());
+    }
+
+    @Test
+    void allocatesNothingOnceAllBitsAreTaken() {
+        when(permissionRepository.findAssignedBits()).thenReturn(IntStream.range(0, Long.SIZE).boxed().toList());
+
+        assertEquals(OptionalInt.empty(), permissionRepository.allocateBit());
+    }
+}
@@ -207,16 +207,17 @@ public class ProductControllerTest {
     @Test
     @WithMockUser(roles = "USER")
     void testGetProductsByCategory() throws Exception {
-        when(productService.getProductsByCategory(Category.FRUITS)).thenReturn(List.of(productDTO));
+        when(productService.getProductsByCategory(Category.FRUITS, PageRequest.of(0, 20)))
+                .thenReturn(new PageImpl<>(List.of(productDTO), PageRequest.of(0, 20), 1));
 
         mockMvc.perform(get("/products/category/" + Category.FRUITS.name()))
                 .andExpect(status().isOk());
 
-        ResponseEntity<List<ProductDTO>> response = productController.getProductsByCategory(Category.FRUITS);
+        ResponseEntity<Page<ProductDTO>> response = productController.getProductsByCategory(Category.FRUITS, 0, 20);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertEquals(1, response.getBody().size());
-        assertEquals("Test Product", response.getBody().getFirst().getName());
+        assertEquals(1, response.getBody().getContent().size());
+        assertEquals("Test Product", response.getBody().getContent().getFirst().getName());
     }
 
     @Test
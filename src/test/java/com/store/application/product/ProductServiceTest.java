@@ -2,13 +2,26 @@ package com.store.application.product;
 
 import com.store.application.exceptions.ProductAlreadyExistsException;
 import com.store.application.exceptions.ProductNotFoundException;
+import com.store.application.product.pricing.PricingAction;
+import com.store.application.product.pricing.PricingEngine;
+import com.store.application.product.pricing.PricingRequest;
+import com.store.application.product.pricing.PricingRule;
+import com.store.application.product.stream.ProductChangeType;
+import com.store.application.product.stream.ProductChangedEvent;
+import com.store.application.utils.CustomResponse;
+import com.store.application.utils.filters.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.hibernate.exception.ConstraintViolationException;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -16,6 +29,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.security.test.context.support.WithMockUser;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -33,6 +47,21 @@ class ProductServiceTest {
     @Mock
     private ProductMapper productMapper;
 
+    @Mock
+    private FilteredPageReader filteredPageReader;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PricingEngine pricingEngine;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private Cache cache;
+
     @InjectMocks
     private ProductService productService;
 
@@ -99,20 +128,21 @@ class ProductServiceTest {
     @Test
     @WithMockUser(roles = "ADMIN")
     void createProduct() {
-        when(productRepository.findByName(product.getName())).thenReturn(Optional.empty());
-        when(productRepository.save(any(Product.class))).thenReturn(product);
-        when(productMapper.toDTO(any(Product.class))).thenReturn(productDTO);
         when(productMapper.toEntity(any(ProductDTO.class))).thenReturn(product);
+        when(productRepository.insertIfNameAbsent(product)).thenReturn(Optional.of(product));
+        when(productMapper.toDTO(any(Product.class))).thenReturn(productDTO);
 
         ProductDTO createdProduct = productService.createProduct(productDTO);
 
         assertEquals("Test Product", createdProduct.getName());
+        assertEquals(7, product.getId().version());
     }
 
     @Test
     @WithMockUser(roles = "ADMIN")
     void createProductAlreadyExists() {
-        when(productRepository.findByName(product.getName())).thenReturn(Optional.of(product));
+        when(productMapper.toEntity(any(ProductDTO.class))).thenReturn(product);
+        when(productRepository.insertIfNameAbsent(product)).thenReturn(Optional.empty());
 
         assertThrows(ProductAlreadyExistsException.class, () -> productService.createProduct(productDTO));
     }
@@ -120,11 +150,10 @@ class ProductServiceTest {
     @Test
     @WithMockUser(roles = "ADMIN")
     void updateProduct() {
-        UUID id = product.getId();
         productDTO.setName("Test Product Update");
         productDTO.setPrice(15.0);
-        when(productRepository.findById(id)).thenReturn(Optional.of(product));
-        when(productRepository.save(any(Product.class))).thenReturn(product);
+        when(productMapper.toEntity(productDTO)).thenReturn(product);
+        when(productRepository.updateReturning(product)).thenReturn(Optional.of(product));
         when(productMapper.toDTO(any(Product.class))).thenReturn(productDTO);
 
         ProductDTO updatedProductDTO = productService.updateProduct(productDTO);
@@ -136,23 +165,34 @@ class ProductServiceTest {
     @Test
     @WithMockUser(roles = "ADMIN")
     void updateProductNotFound() {
-        UUID id = productDTO.getId();
-        when(productRepository.findById(id)).thenReturn(Optional.empty());
+        when(productMapper.toEntity(productDTO)).thenReturn(product);
+        when(productRepository.updateReturning(product)).thenReturn(Optional.empty());
 
         assertThrows(ProductNotFoundException.class, () -> productService.updateProduct(productDTO));
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void updateProductNameTaken() {
+        when(productMapper.toEntity(productDTO)).thenReturn(product);
+        when(productRepository.updateReturning(product)).thenThrow(new DataIntegrityViolationException("duplicate name",
+                new ConstraintViolationException("duplicate name", null, ConstraintViolationException.ConstraintKind.UNIQUE, "uk_products_name")));
+
+        assertThrows(ProductAlreadyExistsException.class, () -> productService.updateProduct(productDTO));
+    }
+
     @Test
     @WithMockUser(roles = "ADMIN")
     void deleteProduct() {
         UUID id = product.getId();
 
-        when(productRepository.existsById(id)).thenReturn(true);
-        doNothing().when(productRepository).deleteById(id);
+        when(productRepository.deleteReturning(id)).thenReturn(Optional.of(product));
+        when(productMapper.toDTO(product)).thenReturn(productDTO);
 
         assertDoesNotThrow(() -> productService.deleteProduct(id));
 
-        verify(productRepository, times(1)).deleteById(id);
+        verify(productRepository, times(1)).deleteReturning(id);
+        verify(eventPublisher).publishEvent(new ProductChangedEvent(ProductChangeType.DELETED, id, productDTO));
     }
 
     @Test
@@ -160,7 +200,7 @@ class ProductServiceTest {
     void deleteProductNotFound() {
         UUID id = UUID.randomUUID();
 
-        when(productRepository.existsById(id)).thenReturn(false);
+        when(productRepository.deleteReturning(id)).thenReturn(Optional.empty());
 
         assertThrows(ProductNotFoundException.class, () -> productService.deleteProduct(id));
     }
@@ -171,13 +211,50 @@ class ProductServiceTest {
         Category category = Category.FRUITS;
         product.setCategory(category);
 
-        when(productRepository.findByCategory(category)).thenReturn(List.of(product));
+        Pageable pageable = PageRequest.of(0, 10);
+
+        when(productRepository.findByCategory(category, pageable)).thenReturn(new PageImpl<>(List.of(product), pageable, 1));
         when(productMapper.toDTO(any(Product.class))).thenReturn(productDTO);
 
-        List<ProductDTO> products = productService.getProductsByCategory(category);
+        Page<ProductDTO> products = productService.getProductsByCategory(category, pageable);
 
-        assertEquals(1, products.size());
-        assertEquals("Test Product", products.getFirst().getName());
+        assertEquals(1, products.getTotalElements());
+        assertEquals("Test Product", products.getContent().getFirst().getName());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void getAllProductsFilteredAndPaginated() {
+        PageFilter pageFilter = new PageFilter();
+        pageFilter.setFilters(List.of(new FilterCriteria("price", FilterOperator.BETWEEN, List.of("5", "15"))));
+
+        when(filteredPageReader.read(Product.class, pageFilter))
+                .thenReturn(new FilteredPage<>(List.of(product), 0, 10, 11L, CountStrategy.EXACT, false));
+        when(productMapper.toDTO(product)).thenReturn(productDTO);
+
+        CustomResponse<ProductDTO> response = productService.getAllProductsFilteredAndPaginated(pageFilter);
+
+        assertEquals(List.of(productDTO), response.getContent());
+        assertEquals(1, response.getPage());
+        assertEquals(11L, response.getTotal());
+        assertEquals(2, response.getTotalPages());
+        assertFalse(response.isLast());
+    }
+
+    @Test
+    @WithMockUser(roles = "USER")
+    void getProductFieldsComputesEffectivePrice() {
+        PageFilter pageFilter = new PageFilter();
+        pageFilter.setFields(List.of("effectivePrice", "name"));
+        Map<String, Object> row = Map.of("name", "Test Product", "price", 20.0, "discount", 25.0);
+
+        when(filteredPageReader.read(Product.class, pageFilter, List.of("name", "price", "discount")))
+                .thenReturn(new FilteredPage<>(List.of(row), 0, 10, 1L, CountStrategy.EXACT, true));
+
+        CustomResponse<Map<String, Object>> response = productService.getProductFieldsFilteredAndPaginated(pageFilter);
+
+        assertEquals(List.of(Map.of("effectivePrice", 15.0, "name", "Test Product")), response.getContent());
+        assertEquals(List.of("effectivePrice", "name"), List.copyOf(response.getContent().get(0).keySet()));
     }
 
     @Test
@@ -185,8 +262,8 @@ class ProductServiceTest {
     void increaseQuantity() {
         UUID id = product.getId();
 
-        when(productRepository.findById(id)).thenReturn(Optional.of(product));
-        when(productRepository.save(any(Product.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        product.setQuantity(15);
+        when(productRepository.increaseQuantityReturning(id, 5)).thenReturn(Optional.of(product));
         when(productMapper.toDTO(any(Product.class))).thenAnswer(invocation -> {
             Product savedProduct = invocation.getArgument(0);
             return ProductDTO.builder()
@@ -205,8 +282,39 @@ class ProductServiceTest {
     void increaseQuantityNotFound() {
         UUID id = UUID.randomUUID();
 
-        when(productRepository.findById(id)).thenReturn(Optional.empty());
+        when(productRepository.increaseQuantityReturning(id, 5)).thenReturn(Optional.empty());
 
         assertThrows(ProductNotFoundException.class, () -> productService.increaseQuantity(id, 5));
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void repriceClearsCachesWhenAChunkFails() {
+        PricingRequest pricingRequest = new PricingRequest();
+        pricingRequest.setRules(List.of(PricingRule.builder().action(PricingAction.ROUND_TO_99).build()));
+
+        when(pricingEngine.run(pricingRequest.getRules(), false)).thenThrow(new IllegalStateException("chunk failed"));
+        when(cacheManager.getCache(any())).thenReturn(cache);
+
+        assertThrows(IllegalStateException.class, () -> productService.reprice(pricingRequest));
+
+        verify(cacheManager).getCache("products");
+        verify(cacheManager).getCache(FilteredPageReader.COUNT_CACHE);
+        verify(cache, times(2)).clear();
+        verify(eventPublisher).publishEvent(ProductChangedEvent.reset());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void dryRunRepriceKeepsCaches() {
+        PricingRequest pricingRequest = new PricingRequest();
+        pricingRequest.setRules(List.of(PricingRule.builder().action(PricingAction.ROUND_TO_99).build()));
+        pricingRequest.setDryRun(true);
+
+        when(pricingEngine.run(pricingRequest.getRules(), true)).thenThrow(new IllegalStateException("chunk failed"));
+
+        assertThrows(IllegalStateException.class, () -> productService.reprice(pricingRequest));
+
+        verifyNoInteractions(cacheManager, eventPublisher);
+    }
+}
@@ -0,0 +1,46 @@
+package com.store.application.product.pricing;
+
+import com.store.application.product.Category;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PricingEngineTest {
+    private static final ProductPrice PEAS = new ProductPrice(UUID.randomUUID(), "Peas", Category.FROZEN, 10.0, 50, 0.0);
+
+    @Test
+    void appliesMatchingRulesInOrder() {
+        List<PricingRule> rules = List.of(
+                PricingRule.builder().categories(Set.of(Category.FROZEN)).action(PricingAction.SET_DISCOUNT).value(10.0).build(),
+                PricingRule.builder().minQuantity(20).action(PricingAction.MARKUP).value(5.0).build(),
+                PricingRule.builder().action(PricingAction.ROUND_TO_99).build());
+
+        PriceChange change = PricingEngine.evaluate(rules, PEAS);
+
+        assertEquals(10.99, change.newPrice());
+        assertEquals(10.0, change.newDiscount());
+        assertEquals(9.89, change.effectivePrice());
+    }
+
+    @Test
+    void skipsRulesWhoseConditionsDoNotMatch() {
+        List<PricingRule> rules = List.of(
+                PricingRule.builder().categories(Set.of(Category.MEAT)).action(PricingAction.SET_DISCOUNT).value(10.0).build(),
+                PricingRule.builder().maxPrice(5.0).action(PricingAction.MARKUP).value(-50.0).build());
+
+        assertNull(PricingEngine.evaluate(rules, PEAS));
+    }
+
+    @Test
+    void reportsNoChangeWhenValuesStayTheSame() {
+        List<PricingRule> rules = List.of(PricingRule.builder().action(PricingAction.SET_DISCOUNT).value(0.0).build());
+
+        assertNull(PricingEngine.evaluate(rules, PEAS));
+        assertEquals(9.99, Prices.roundTo99(9.99));
+    }
+}
@@ -0,0 +1,70 @@
+package com.store.application.product.stream;
+
+import com.store.application.product.Category;
+import com.store.application.product.ProductDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SubscriberTest {
+    private final Map<UUID, ProductDTO> states = new HashMap<>();
+    private long sequence;
+
+    @Test
+    void coalescesChangesOfTheSameProductAndResetsOnOverflow() {
+        Subscriber subscriber = new Subscriber(new SseEmitter(), new ProductStreamFilter(null, null, null), 2, "e");
+        UUID first = UUID.randomUUID();
+
+        assertEquals(Subscriber.Offer.QUEUED, subscriber.offer(change(first, Category.FRUITS, 5)));
+        assertEquals(Subscriber.Offer.COALESCED, subscriber.offer(change(first, Category.FRUITS, 6)));
+        assertEquals(Subscriber.Offer.QUEUED, subscriber.offer(change(UUID.randomUUID(), Category.FRUITS, 5)));
+        assertEquals(Subscriber.Offer.OVERFLOWED, subscriber.offer(change(UUID.randomUUID(), Category.FRUITS, 5)));
+        // the buffer was cleared for the reset
+        assertEquals(Subscriber.Offer.QUEUED, subscriber.offer(change(first, Category.FRUITS, 7)));
+    }
+
+    @Test
+    void filtersByCategoryAndIdsAndSendsTheChangeLeavingLowStock() {
+        UUID id = UUID.randomUUID();
+        Subscriber subscriber = new Subscriber(new SseEmitter(),
+                new ProductStreamFilter(Set.of(Category.FRUITS), Set.of(id), 3), 10, "e");
+
+        assertEquals(Subscriber.Offer.SKIPPED, subscriber.offer(change(UUID.randomUUID(), Category.FRUITS, 1)));
+        assertEquals(Subscriber.Offer.SKIPPED, subscriber.offer(change(id, Category.FRUITS, 10)));
+        assertEquals(Subscriber.Offer.QUEUED, subscriber.offer(change(id, Category.FRUITS, 2)));
+        assertEquals(Subscriber.Offer.COALESCED, subscriber.offer(change(id, Category.FRUITS, 10)));
+        assertEquals(Subscriber.Offer.SKIPPED, subscriber.offer(change(id, Category.FRUITS, 11)));
+        assertEquals(Subscriber.Offer.SKIPPED, subscriber.offer(change(id, Category.MEAT, 1)));
+        assertEquals(Subscriber.Offer.QUEUED, subscriber.offer(new ProductChange(++sequence, ProductChangedEvent.reset())));
+    }
+
+    @Test
+    void sendsTheChangeMovingAProductOutOfTheCategories() {
+        UUID id = UUID.randomUUID();
+        change(id, Category.FRUITS, 5);
+        // subscribed after the product was created, its state was loaded some other way
+        Subscriber subscriber = new Subscriber(new SseEmitter(),
+                new ProductStreamFilter(Set.of(Category.FRUITS), null, null), 10, "e");
+
+        assertEquals(Subscriber.Offer.QUEUED, subscriber.offer(change(id, Category.MEAT, 5)));
+        assertEquals(Subscriber.Offer.SKIPPED, subscriber.offer(change(id, Category.MEAT, 6)));
+        // moved back in while the move out is still pending
+        assertEquals(Subscriber.Offer.COALESCED, subscriber.offer(change(id, Category.FRUITS, 6)));
+    }
+
+    // updates carry the state the product had before, as the service publishes them
+    private ProductChange change(UUID id, Category category, int quantity) {
+        ProductDTO product = ProductDTO.builder().id(id).name("p").category(category.name()).quantity(quantity).build();
+        ProductDTO previous = states.put(id, product);
+        ProductChangedEvent event = previous == null
+                ? new ProductChangedEvent(ProductChangeType.CREATED, id, product)
+                : new ProductChangedEvent(ProductChangeType.UPDATED, id, product, previous.getCategory(), previous.getQuantity());
+        return new ProductChange(++sequence, event);
+    }
+}
@@ -0,0 +1,75 @@
+package com.store.application.security;
+
+import com.store.application.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthAttemptLimiterTest {
+    private final AtomicLong now = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AuthAttemptLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new AuthAttemptLimiter(3, 2, Duration.ofMinutes(1), meterRegistry, now::get);
+    }
+
+    @Test
+    void rejectsAccountOnceItsBudgetIsSpent() {
+        limiter.acquire("10.0.0.1", "user@store.com");
+        limiter.acquire("10.0.0.2", "USER@store.com");
+
+        TooManyRequestsException exception = assertThrows(TooManyRequestsException.class,
+                () -> limiter.acquire("10.0.0.3", "user@store.com"));
+        assertEquals(60, exception.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.get("auth.attempts.rejected").tag("scope", "account").counter().count());
+    }
+
+    @Test
+    void rejectsIpAcrossAccounts() {
+        limiter.acquire("10.0.0.1", "a@store.com");
+        limiter.acquire("10.0.0.1", "b@store.com");
+        limiter.acquire("10.0.0.1", "c@store.com");
+
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire("10.0.0.1", "d@store.com"));
+        assertEquals(1.0, meterRegistry.get("auth.attempts.rejected").tag("scope", "ip").counter().count());
+    }
+
+    @Test
+    void successfulAttemptsAreGivenBack() {
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire("10.0.0.1", "user@store.com");
+            limiter.refund("10.0.0.1", "USER@store.com");
+        }
+
+        assertDoesNotThrow(() -> limiter.acquire("10.0.0.1", "user@store.com"));
+        assertDoesNotThrow(() -> limiter.acquire("10.0.0.1", "user@store.com"));
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire("10.0.0.1", "user@store.com"));
+    }
+
+    @Test
+    void budgetResetsWithTheWindow() {
+        limiter.acquire("10.0.0.1", "user@store.com");
+        limiter.acquire("10.0.0.1", "user@store.com");
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire("10.0.0.1", "user@store.com"));
+
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertDoesNotThrow(() -> limiter.acquire("10.0.0.1", "user@store.com"));
+    }
+
+    @Test
+    void evictsExpiredWindows() {
+        limiter.acquire("10.0.0.1", "user@store.com");
+        assertEquals(2, limiter.trackedKeys());
+
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+        limiter.evictExpired();
+        assertEquals(0, limiter.trackedKeys());
+    }
+}
@@ -0,0 +1,28 @@
+package com.store.application.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BCryptCalibratorTest {
+
+    @Test
+    void doublesStrengthUntilTheTargetWouldBeExceeded() {
+        // 4 ms at strength 8 doubles to 128 ms at strength 13, strength 14 would take 256 ms
+        assertEquals(13, BCryptCalibrator.strengthFor(TimeUnit.MILLISECONDS.toNanos(250), TimeUnit.MILLISECONDS.toNanos(4), 8));
+    }
+
+    @Test
+    void neverGoesBelowTheMinimumStrength() {
+        assertEquals(BCryptCalibrator.MIN_STRENGTH,
+                BCryptCalibrator.strengthFor(TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(4), 8));
+    }
+
+    @Test
+    void neverGoesAboveTheMaximumStrength() {
+        assertEquals(BCryptCalibrator.MAX_STRENGTH,
+                BCryptCalibrator.strengthFor(TimeUnit.SECONDS.toNanos(60), TimeUnit.MICROSECONDS.toNanos(1), 8));
+    }
+}
@@ -0,0 +1,63 @@
+package com.store.application.security;
+
+import com.store.application.user.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PasswordRehashServiceTest {
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private IsolatedPasswordEncoder passwordEncoder;
+    private PasswordRehashService passwordRehashService;
+
+    @BeforeEach
+    void setUp() {
+        passwordRehashService = new PasswordRehashService(userRepository, passwordEncoder, new SimpleMeterRegistry(), 2, 10);
+    }
+
+    @Test
+    void writesNewHashOnlyOverTheStoredOne() {
+        when(passwordEncoder.encodeAsync("secret")).thenReturn(CompletableFuture.completedFuture("{bcrypt}new"));
+        when(userRepository.updatePasswordIfUnchanged("user@store.com", "old", "{bcrypt}new")).thenReturn(1);
+
+        passwordRehashService.schedule("user@store.com", "old", "secret");
+        assertEquals(1, passwordRehashService.pendingCount());
+
+        passwordRehashService.flush();
+        verify(userRepository).updatePasswordIfUnchanged("user@store.com", "old", "{bcrypt}new");
+        assertEquals(0, passwordRehashService.pendingCount());
+    }
+
+    @Test
+    void skipsUserWhoseRehashIsStillRunning() {
+        when(passwordEncoder.encodeAsync("secret")).thenReturn(new CompletableFuture<>());
+
+        passwordRehashService.schedule("user@store.com", "old", "secret");
+        passwordRehashService.schedule("user@store.com", "old", "secret");
+
+        verify(passwordEncoder, times(1)).encodeAsync(anyString());
+    }
+
+    @Test
+    void dropsUpgradesBeyondTheQueueLimit() {
+        when(passwordEncoder.encodeAsync(anyString())).thenReturn(CompletableFuture.completedFuture("{bcrypt}new"));
+
+        passwordRehashService.schedule("a@store.com", "old", "secret");
+        passwordRehashService.schedule("b@store.com", "old", "secret");
+        passwordRehashService.schedule("c@store.com", "old", "secret");
+
+        assertEquals(2, passwordRehashService.pendingCount());
+    }
+}
@@ -0,0 +1,90 @@
+package com.store.application.security;
+
+import com.store.application.permission.Permission;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PermissionAuthorizationManagerTest {
+
+    private RbacRegistry rbacRegistry;
+    private PermissionAuthorizationManager authorizationManager;
+
+    @BeforeEach
+    void init() {
+        rbacRegistry = new RbacRegistry(null, null);
+        rbacRegistry.load(List.of(), List.of(
+                Permission.builder().id(UUID.randomUUID()).name("READ_PERM").bit(0).build(),
+                Permission.builder().id(UUID.randomUUID()).name("WRITE_PERM").bit(1).build()));
+        authorizationManager = new PermissionAuthorizationManager(() -> rbacRegistry);
+    }
+
+    @Test
+    void grantsWhenMaskContainsRequiredBit() throws Exception {
+        PermissionAuthenticationToken reader = new PermissionAuthenticationToken("user", 0b01, List.of());
+
+        assertTrue(authorizationManager.check(() -> reader, invocation("read")).isGranted());
+        assertFalse(authorizationManager.check(() -> reader, invocation("write")).isGranted());
+        assertFalse(authorizationManager.check(() -> reader, invocation("readWrite")).isGranted());
+    }
+
+    @Test
+    void fallsBackToAuthoritiesForOtherAuthentications() throws Exception {
+        UsernamePasswordAuthenticationToken writer = UsernamePasswordAuthenticationToken.authenticated(
+                "user", null, List.of(new SimpleGrantedAuthority("WRITE_PERM")));
+
+        assertTrue(authorizationManager.check(() -> writer, invocation("write")).isGranted());
+        assertFalse(authorizationManager.check(() -> writer, invocation("read")).isGranted());
+    }
+
+    @Test
+    void unknownPermissionIsNeverGranted() throws Exception {
+        PermissionAuthenticationToken everything = new PermissionAuthenticationToken("user", -1L, List.of());
+
+        assertFalse(authorizationManager.check(() -> everything, invocation("delete")).isGranted());
+    }
+
+    @Test
+    void recompilesAfterRegistryReload() throws Exception {
+        PermissionAuthenticationToken deleter = new PermissionAuthenticationToken("user", 0b100, List.of());
+        assertFalse(authorizationManager.check(() -> deleter, invocation("delete")).isGranted());
+
+        rbacRegistry.load(List.of(), List.of(
+                Permission.builder().id(UUID.randomUUID()).name("READ_PERM").bit(0).build(),
+                Permission.builder().id(UUID.randomUUID()).name("WRITE_PERM").bit(1).build(),
+                Permission.builder().id(UUID.randomUUID()).name("DELETE_PERM").bit(2).build()));
+
+        assertTrue(authorizationManager.check(() -> deleter, invocation("delete")).isGranted());
+    }
+
+    private static SimpleMethodInvocation invocation(String methodName) throws NoSuchMethodException {
+        Secured target = new Secured();
+        return new SimpleMethodInvocation(target, Secured.class.getMethod(methodName));
+    }
+
+    static class Secured {
+        @RequiresPermission("READ")
+        public void read() {
+        }
+
+        @RequiresPermission("WRITE")
+        public void write() {
+        }
+
+        @RequiresPermission({"READ", "WRITE"})
+        public void readWrite() {
+        }
+
+        @RequiresPermission("DELETE")
+        public void delete() {
+        }
+    }
+}
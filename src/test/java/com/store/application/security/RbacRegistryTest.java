@@ -0,0 +1,72 @@
+package com.store.application.security;
+
+import com.store.application.permission.Permission;
+import com.store.application.role.Role;
+import com.store.application.role.RoleEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RbacRegistryTest {
+
+    private RbacRegistry rbacRegistry;
+    private Permission readPerm;
+    private Permission writePerm;
+    private Role adminRole;
+
+    @BeforeEach
+    void init() {
+        readPerm = Permission.builder().id(UUID.randomUUID()).name("READ_PERM").bit(0).build();
+        writePerm = Permission.builder().id(UUID.randomUUID()).name("WRITE_PERM").bit(1).build();
+        adminRole = Role.builder().id(UUID.randomUUID()).name(RoleEnum.ADMIN).permissions(List.of(readPerm, writePerm)).build();
+
+        rbacRegistry = new RbacRegistry(null, null);
+        rbacRegistry.load(List.of(adminRole), List.of(readPerm, writePerm));
+    }
+
+    @Test
+    void precomputesRoleAuthorities() {
+        RbacRegistry.RoleEntry entry = rbacRegistry.findRole(adminRole.getId()).orElseThrow();
+
+        assertEquals(List.of(
+                new SimpleGrantedAuthority("ROLE_ADMIN"),
+                new SimpleGrantedAuthority("READ_PERM"),
+                new SimpleGrantedAuthority("WRITE_PERM")), entry.authorities());
+        assertEquals(Set.of(readPerm.getId(), writePerm.getId()), entry.permissionIds());
+        assertSame(entry, rbacRegistry.findRoleByName(RoleEnum.ADMIN).orElseThrow());
+    }
+
+    @Test
+    void knowsRolesAndPermissionsById() {
+        assertTrue(rbacRegistry.hasRole(adminRole.getId()));
+        assertTrue(rbacRegistry.hasPermission(writePerm.getId()));
+        assertFalse(rbacRegistry.hasRole(UUID.randomUUID()));
+        assertFalse(rbacRegistry.hasPermission(UUID.randomUUID()));
+    }
+
+    @Test
+    void authoritiesRoundTripThroughMask() {
+        long mask = rbacRegistry.maskOfAuthorities(List.of(
+                new SimpleGrantedAuthority("ROLE_ADMIN"), new SimpleGrantedAuthority("WRITE_PERM")));
+
+        assertEquals(0b10, mask);
+        assertEquals(List.of(new SimpleGrantedAuthority("WRITE_PERM")), rbacRegistry.authoritiesOf(mask));
+    }
+
+    @Test
+    void reloadBumpsGeneration() {
+        int generation = rbacRegistry.getGeneration();
+
+        rbacRegistry.load(List.of(), List.of(readPerm));
+
+        assertEquals(generation + 1, rbacRegistry.getGeneration());
+        assertFalse(rbacRegistry.hasRole(adminRole.getId()));
+        assertEquals(0L, rbacRegistry.maskOf("WRITE_PERM"));
+    }
+}
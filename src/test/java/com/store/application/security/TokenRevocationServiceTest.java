@@ -0,0 +1,83 @@
+package com.store.application.security;
+
+import com.store.application.user.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private TokenRevocationService tokenRevocationService;
+
+    @Test
+    void unknownSubjectAcceptsVersionZero() {
+        when(userRepository.findRevocationStates()).thenReturn(List.of());
+        tokenRevocationService.onApplicationEvent(null);
+
+        assertFalse(tokenRevocationService.isRevoked("user@store.com", 0));
+        assertTrue(tokenRevocationService.isRevoked("user@store.com", 1));
+    }
+
+    @Test
+    void versionBumpRevokesOlderTokens() {
+        tokenRevocationService.onTokenRevocation(new TokenRevocationEvent("user@store.com", 2, true));
+
+        assertTrue(tokenRevocationService.isRevoked("user@store.com", 1));
+        assertFalse(tokenRevocationService.isRevoked("user@store.com", 2));
+    }
+
+    @Test
+    void outOfOrderEventsNeverMoveVersionBack() {
+        tokenRevocationService.onTokenRevocation(new TokenRevocationEvent("user@store.com", 3, true));
+        tokenRevocationService.onTokenRevocation(new TokenRevocationEvent("user@store.com", 2, true));
+
+        assertFalse(tokenRevocationService.isRevoked("user@store.com", 3));
+    }
+
+    @Test
+    void disabledSubjectIsRevokedUntilReEnabled() {
+        tokenRevocationService.onTokenRevocation(new TokenRevocationEvent("user@store.com", 0, false));
+        assertTrue(tokenRevocationService.isRevoked("user@store.com", 0));
+
+        tokenRevocationService.onTokenRevocation(new TokenRevocationEvent("user@store.com", 0, true));
+        assertFalse(tokenRevocationService.isRevoked("user@store.com", 0));
+    }
+
+    @Test
+    void reloadKeepsDeletedSubjectsRevoked() {
+        tokenRevocationService.onTokenRevocation(new TokenRevocationEvent("enabled@store.com", 0, false));
+        tokenRevocationService.onTokenRevocation(new TokenRevocationEvent("deleted@store.com", 0, false));
+        when(userRepository.findRevocationStates()).thenReturn(List.of());
+        when(userRepository.findEnabledEmails(Set.of("enabled@store.com", "deleted@store.com"))).thenReturn(List.of("enabled@store.com"));
+
+        tokenRevocationService.onTokenRevocationReload(new TokenRevocationReloadEvent());
+
+        assertFalse(tokenRevocationService.isRevoked("enabled@store.com", 0));
+        assertTrue(tokenRevocationService.isRevoked("deleted@store.com", 0));
+    }
+
+    @Test
+    void deletedSubjectsStayRevokedAfterRestart() {
+        when(userRepository.findRevocationStates()).thenReturn(List.of());
+        when(userRepository.findDeletedEmails()).thenReturn(List.of("deleted@store.com"));
+
+        tokenRevocationService.onApplicationEvent(null);
+
+        assertTrue(tokenRevocationService.isRevoked("deleted@store.com", 0));
+        assertFalse(tokenRevocationService.isRevoked("user@store.com", 0));
+    }
+}
@@ -0,0 +1,74 @@
+package com.store.application.user;
+
+import com.store.application.role.Role;
+import com.store.application.role.RoleRepository;
+import com.store.application.utils.sql.QueryBudget;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+
+import static org.hamcrest.Matchers.hasItems;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class UserQueryBudgetTest {
+    private static final int USERS = 10;
+    // larger than the users table, so the first page stays partial and needs no count
+    private static final int PAGE_SIZE = 1000;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final List<User> users = new ArrayList<>();
+
+    @BeforeEach
+    public void init() {
+        Objects.requireNonNull(cacheManager.getCache("users")).clear();
+        Role role = roleRepository.findAll().get(0);
+        for (int i = 0; i < USERS; i++) {
+            users.add(userRepository.save(User.builder()
+                    .username("budget" + i)
+                    .email("budget" + i + "@store.com")
+                    .password("password")
+                    .enabled(true)
+                    .roles(Set.of(role))
+                    .build()));
+        }
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        userRepository.deleteAll(users);
+    }
+
+    @Test
+    @QueryBudget(1) // users and their role ids in one statement, the count is skipped for a partial first page
+    @WithMockUser(authorities = {"ROLE_ADMIN", "READ_PERM"})
+    void testGetAllUsersStaysWithinQueryBudget() throws Exception {
+        // other users may share the database, only the ones created here are known
+        mockMvc.perform(get("/users").param("page", "0").param("size", String.valueOf(PAGE_SIZE)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].id", hasItems(users.stream().map(user -> user.getId().toString()).toArray(String[]::new))));
+    }
+}
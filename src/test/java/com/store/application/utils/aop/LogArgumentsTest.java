@@ -0,0 +1,40 @@
+package com.store.application.utils.aop;
+
+import com.store.application.utils.CustomResponse;
+import com.store.application.utils.changes.ChangeFeed;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LogArgumentsTest {
+
+    @Test
+    void summarizesCollectionsAndPages() {
+        assertEquals("ArrayList[size=3]", LogArguments.render(new ArrayList<>(List.of(1, 2, 3)), 200));
+        assertEquals("Page[number=1, size=2, total=12]",
+                LogArguments.render(new PageImpl<>(List.of("a", "b"), PageRequest.of(1, 10), 12), 200));
+        assertEquals("ResponseEntity[status=200, body=ArrayList[size=1]]",
+                LogArguments.render(ResponseEntity.ok(new ArrayList<>(List.of("a"))), 200));
+    }
+
+    @Test
+    void summarizesResponsesHoldingContent() {
+        CustomResponse<String> page = CustomResponse.<String>builder().page(2).content(List.of("a", "b")).total(42L).build();
+        assertEquals("ResponseEntity[status=200, body=CustomResponse[page=2, size=2, total=42]]",
+                LogArguments.render(ResponseEntity.ok(page), 200));
+        assertEquals("ChangeFeed[changes=0, next=7, more=false]",
+                LogArguments.render(new ChangeFeed<>(List.of(), 7, null, false), 200));
+    }
+
+    @Test
+    void capsLongValues() {
+        assertEquals("abcdefg...", LogArguments.render("abcdefghijklmnop", 10));
+        assertEquals("[null, 42, abc...]", LogArguments.renderAll(new Object[]{null, 42, "abcdefgh"}, 6));
+    }
+}
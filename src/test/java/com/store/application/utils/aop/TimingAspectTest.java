@@ -0,0 +1,66 @@
+package com.store.application.utils.aop;
+
+import com.store.application.exceptions.ProductNotFoundException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TimingAspectTest {
+    @Mock
+    private ProceedingJoinPoint joinPoint;
+    @Mock
+    private MethodSignature signature;
+    private SimpleMeterRegistry meterRegistry;
+    private TimingAspect timingAspect;
+
+    static class CatalogService {
+        public String findProduct() {
+            return "product";
+        }
+    }
+
+    @BeforeEach
+    void setUp() throws NoSuchMethodException {
+        meterRegistry = new SimpleMeterRegistry();
+        timingAspect = new TimingAspect(meterRegistry, new double[]{0.95}, false, new Duration[]{Duration.ofMillis(100)});
+        when(joinPoint.getSignature()).thenReturn(signature);
+        when(joinPoint.getTarget()).thenReturn(new CatalogService());
+        when(signature.getMethod()).thenReturn(CatalogService.class.getMethod("findProduct"));
+    }
+
+    @Test
+    void reusesTheTimerOfTheMethod() throws Throwable {
+        when(joinPoint.proceed()).thenReturn("product");
+
+        assertEquals("product", timingAspect.timeService(joinPoint));
+        timingAspect.timeService(joinPoint);
+
+        Timer timer = meterRegistry.get(TimingAspect.METRIC_NAME)
+                .tags("layer", "service", "class", "CatalogService", "method", "findProduct", "outcome", TimingAspect.SUCCESS)
+                .timer();
+        assertEquals(2, timer.count());
+        assertEquals(1, meterRegistry.find(TimingAspect.METRIC_NAME).timers().size());
+    }
+
+    @Test
+    void tagsFailuresWithTheExceptionType() throws Throwable {
+        when(joinPoint.proceed()).thenThrow(new ProductNotFoundException("missing"));
+
+        assertThrows(ProductNotFoundException.class, () -> timingAspect.timeService(joinPoint));
+
+        assertEquals(1, meterRegistry.get(TimingAspect.METRIC_NAME)
+                .tag("outcome", "ProductNotFoundException").timer().count());
+    }
+}
@@ -0,0 +1,50 @@
+package com.store.application.utils.changes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedReaderTest {
+
+    @Test
+    void mergesRowsAndTombstonesInSequenceOrder() {
+        ChangeFeedReader.Page page = ChangeFeedReader.page(
+                List.of(entry(1, false), entry(4, false), entry(6, false)),
+                List.of(entry(2, true), entry(5, true)), 4);
+
+        assertEquals(List.of(1L, 2L, 4L, 5L), page.entries().stream().map(ChangeFeedReader.Entry::seq).toList());
+        assertTrue(page.more());
+        assertFalse(page.tied());
+    }
+
+    @Test
+    void flagsAPageEndingInsideARunOfEqualSequences() {
+        ChangeFeedReader.Page page = ChangeFeedReader.page(List.of(entry(1, false), entry(3, false)), List.of(entry(3, true)), 2);
+
+        assertTrue(page.tied());
+
+        ChangeFeedReader.Page last = ChangeFeedReader.page(List.of(entry(1, false)), List.of(entry(3, true)), 2);
+        assertFalse(last.more());
+        assertEquals(2, last.entries().size());
+    }
+
+    @Test
+    void ordersEntriesSharingASequenceByUnsignedId() {
+        ChangeFeedReader.Entry low = new ChangeFeedReader.Entry(UUID.fromString("7fffffff-0000-0000-0000-000000000000"), 3, false);
+        ChangeFeedReader.Entry high = new ChangeFeedReader.Entry(UUID.fromString("80000000-0000-0000-0000-000000000000"), 3, true);
+        ChangeFeedReader.Entry next = new ChangeFeedReader.Entry(UUID.fromString("00000000-0000-0000-0000-000000000001"), 3, false);
+
+        ChangeFeedReader.Page page = ChangeFeedReader.page(List.of(next, low), List.of(high), 2);
+
+        // as PostgreSQL orders uuids, where the high bit sorts last
+        assertEquals(List.of(next, low), page.entries());
+        assertTrue(page.tied());
+    }
+
+    private static ChangeFeedReader.Entry entry(long seq, boolean deleted) {
+        return new ChangeFeedReader.Entry(UUID.randomUUID(), seq, deleted);
+    }
+}
@@ -0,0 +1,33 @@
+package com.store.application.utils.filters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilteredPageReaderTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void planRowsAreReadBelowTheCountAggregate() throws Exception {
+        String plan = """
+                [{"Plan": {"Node Type": "Aggregate", "Plan Rows": 1, "Plans": [
+                    {"Node Type": "Hash Join", "Plan Rows": 48210, "Plans": [
+                        {"Node Type": "Seq Scan", "Plan Rows": 90000}]}]}}]
+                """;
+
+        assertEquals(48210, FilteredPageReader.planRows(objectMapper.readTree(plan)));
+    }
+
+    @Test
+    void parallelPlanRowsAreScaledByTheWorkers() throws Exception {
+        String plan = """
+                [{"Plan": {"Node Type": "Aggregate", "Plan Rows": 1, "Plans": [
+                    {"Node Type": "Gather", "Workers Planned": 2, "Plan Rows": 2, "Plans": [
+                        {"Node Type": "Aggregate", "Partial Mode": "Partial", "Plan Rows": 1, "Plans": [
+                            {"Node Type": "Seq Scan", "Parallel Aware": true, "Plan Rows": 416667}]}]}]}}]
+                """;
+
+        assertEquals(1000001, FilteredPageReader.planRows(objectMapper.readTree(plan)));
+    }
+}
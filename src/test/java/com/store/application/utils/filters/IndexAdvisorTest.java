@@ -0,0 +1,53 @@
+package com.store.application.utils.filters;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexAdvisorTest {
+    private static final IndexAdvisor.EntityTable PRODUCTS = new IndexAdvisor.EntityTable("products",
+            Map.of("id", "id", "name", "name", "category", "category", "price", "price", "discount", "discount"),
+            List.of(List.of("id"), List.of("name"), List.of("category")), Set.of("id", "name"));
+
+    @Test
+    void equalityColumnsComeBeforeTheRange() {
+        List<IndexAdvisor.Candidate> candidates = IndexAdvisor.candidates(PRODUCTS, List.of(
+                new FilterPlan.Shape("price", FilterOperator.BETWEEN),
+                new FilterPlan.Shape("category", FilterOperator.EQUALS)), "name");
+
+        assertEquals(1, candidates.size());
+        assertEquals(List.of("category", "price"), candidates.getFirst().columns());
+        assertEquals("create index concurrently if not exists idx_products_category_price on products (category, price);",
+                IndexAdvisor.ddl(candidates.getFirst()));
+    }
+
+    @Test
+    void existingIndexesAreNotRecommendedAgain() {
+        assertTrue(IndexAdvisor.candidates(PRODUCTS, List.of(new FilterPlan.Shape("category", FilterOperator.IN)), null).isEmpty());
+        assertTrue(IndexAdvisor.candidates(PRODUCTS, List.of(new FilterPlan.Shape("name", FilterOperator.EQUALS)), "price").isEmpty());
+    }
+
+    @Test
+    void substringSearchGetsATrigramIndex() {
+        List<IndexAdvisor.Candidate> candidates = IndexAdvisor.candidates(PRODUCTS, List.of(
+                new FilterPlan.Shape("name", FilterOperator.LIKE)), null);
+
+        assertEquals(IndexAdvisor.GIN_TRGM, candidates.getFirst().method());
+        assertTrue(IndexAdvisor.ddl(candidates.getFirst()).contains("idx_products_lower_name_trgm on products using gin (lower(name) gin_trgm_ops)"));
+    }
+
+    @Test
+    void nullChecksBecomeAPartialIndex() {
+        List<IndexAdvisor.Candidate> candidates = IndexAdvisor.candidates(PRODUCTS, List.of(
+                new FilterPlan.Shape("discount", FilterOperator.IS_NOT_NULL),
+                new FilterPlan.Shape("category", FilterOperator.EQUALS)), "price");
+
+        assertEquals(List.of("category", "price"), candidates.getFirst().columns());
+        assertEquals("discount is not null", candidates.getFirst().where());
+    }
+}
@@ -0,0 +1,33 @@
+package com.store.application.utils.filters;
+
+import com.store.application.permission.Permission;
+import com.store.application.product.Product;
+import com.store.application.role.Role;
+import com.store.application.user.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.dialect.PostgreSQLDialect;
+
+/**
+ * Builds a Hibernate session factory over the entities without connecting to a database,
+ * enough to build criteria queries and their predicates.
+ */
+final class MetamodelSessionFactory {
+
+    private MetamodelSessionFactory() {
+    }
+
+    static SessionFactory build() {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.dialect", PostgreSQLDialect.class.getName())
+                .applySetting("hibernate.boot.allow_jdbc_metadata_access", "false")
+                .applySetting("hibernate.hbm2ddl.auto", "none")
+                .build();
+        return new MetadataSources(registry)
+                .addAnnotatedClasses(User.class, Role.class, Permission.class, Product.class)
+                .buildMetadata()
+                .buildSessionFactory();
+    }
+}
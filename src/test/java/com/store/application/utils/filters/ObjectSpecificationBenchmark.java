@@ -0,0 +1,77 @@
+package com.store.application.utils.filters;
+
+import com.store.application.user.User;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request predicate build cost of {@link ObjectSpecification}: binding values to a cached
+ * {@link FilterPlan} versus compiling the plan for every request.
+ * Run the main method (from the IDE, or with the test classpath) to print the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObjectSpecificationBenchmark {
+
+    private SessionFactory sessionFactory;
+    private CriteriaBuilder cb;
+    private List<FilterCriteria> criteria;
+    private List<FilterPlan.Shape> shapes;
+
+    @Setup
+    public void setup() {
+        sessionFactory = MetamodelSessionFactory.build();
+        cb = sessionFactory.getCriteriaBuilder();
+        criteria = List.of(
+                new FilterCriteria("username", FilterOperator.LIKE, List.of("adm")),
+                new FilterCriteria("createdAt", FilterOperator.BETWEEN, List.of("2024-01-01T00:00:00.000Z", "2024-12-31T23:59:59.999Z")),
+                new FilterCriteria("roles.name", FilterOperator.IN, List.of("ADMIN", "USER")),
+                new FilterCriteria("roles.permissions.name", FilterOperator.EQUALS, List.of("READ_PERM")));
+        shapes = new ArrayList<>();
+        for (FilterCriteria criterion : criteria) {
+            shapes.add(new FilterPlan.Shape(criterion.getKey(), criterion.getOperator()));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public Predicate cachedPlan() {
+        CriteriaQuery<User> query = cb.createQuery(User.class);
+        Root<User> root = query.from(User.class);
+        return new ObjectSpecification<User>(criteria).toPredicate(root, query, cb);
+    }
+
+    @Benchmark
+    public Predicate compilePerRequest() {
+        CriteriaQuery<User> query = cb.createQuery(User.class);
+        Root<User> root = query.from(User.class);
+        return FilterPlan.compile(root.getModel(), shapes).apply(root, query, cb, criteria);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ObjectSpecificationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
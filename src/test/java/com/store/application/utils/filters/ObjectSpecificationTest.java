@@ -0,0 +1,85 @@
+package com.store.application.utils.filters;
+
+import com.store.application.product.Product;
+import com.store.application.user.User;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjectSpecificationTest {
+    private static SessionFactory sessionFactory;
+
+    @BeforeAll
+    static void setUp() {
+        sessionFactory = MetamodelSessionFactory.build();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void criteriaOnTheSameAssociationShareOneJoin() {
+        CriteriaBuilder cb = sessionFactory.getCriteriaBuilder();
+        CriteriaQuery<User> query = cb.createQuery(User.class);
+        Root<User> root = query.from(User.class);
+
+        new ObjectSpecification<User>(List.of(
+                new FilterCriteria("roles.name", FilterOperator.IN, List.of("ADMIN", "USER")),
+                new FilterCriteria("roles.description", FilterOperator.LIKE, List.of("admin")),
+                new FilterCriteria("roles.permissions.name", FilterOperator.EQUALS, List.of("READ_PERM"))))
+                .toPredicate(root, query, cb);
+
+        assertEquals(1, root.getJoins().size());
+        assertEquals(1, root.getJoins().iterator().next().getJoins().size());
+        assertTrue(query.isDistinct());
+    }
+
+    @Test
+    void sameShapeReusesThePlan() {
+        var model = sessionFactory.getMetamodel().entity(Product.class);
+
+        FilterPlan first = FilterPlan.of(model, List.of(new FilterCriteria("price", FilterOperator.BETWEEN, List.of("1", "10"))));
+        FilterPlan second = FilterPlan.of(model, List.of(new FilterCriteria("price", FilterOperator.BETWEEN, List.of("5.5", "7"))));
+
+        assertSame(first, second);
+        assertEquals(0, first.joinCount());
+    }
+
+    @Test
+    void valuesAreConvertedToTheAttributeType() {
+        CriteriaBuilder cb = sessionFactory.getCriteriaBuilder();
+        CriteriaQuery<Product> query = cb.createQuery(Product.class);
+        Root<Product> root = query.from(Product.class);
+
+        assertDoesNotThrow(() -> new ObjectSpecification<Product>(List.of(
+                new FilterCriteria("price", FilterOperator.GREATER_THAN_OR_EQUALS, List.of("9.99")),
+                new FilterCriteria("category", FilterOperator.IN, List.of("FRUITS", "Not Assigned")),
+                new FilterCriteria("id", FilterOperator.NOT_EQUALS, List.of("7f2c1f0e-2f40-4d51-9b3a-5f1d1c0a9e11"))))
+                .toPredicate(root, query, cb));
+        assertFalse(query.isDistinct());
+    }
+
+    @Test
+    void invalidValuesAreRejected() {
+        CriteriaBuilder cb = sessionFactory.getCriteriaBuilder();
+        CriteriaQuery<User> query = cb.createQuery(User.class);
+        Root<User> root = query.from(User.class);
+
+        assertThrows(IllegalArgumentException.class, () -> new ObjectSpecification<User>(List.of(
+                new FilterCriteria("createdAt", FilterOperator.GREATER_THAN, List.of("yesterday"))))
+                .toPredicate(root, query, cb));
+        assertThrows(IllegalArgumentException.class, () -> new ObjectSpecification<User>(List.of(
+                new FilterCriteria("createdAt", FilterOperator.BETWEEN, List.of("2024-01-01T00:00:00.000Z"))))
+                .toPredicate(root, query, cb));
+    }
+}
@@ -0,0 +1,37 @@
+package com.store.application.utils.filters;
+
+import com.store.application.exceptions.InvalidFieldsException;
+import com.store.application.product.ProductDTO;
+import com.store.application.user.UserDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SparseFieldsTest {
+
+    @Test
+    void keepsRequestOrderWithoutDuplicates() {
+        assertEquals(List.of("name", "id", "price"), SparseFields.validate(ProductDTO.class, List.of("name", "id", "price", "id")));
+    }
+
+    @Test
+    void rejectsUnknownFields() {
+        InvalidFieldsException ex = assertThrows(InvalidFieldsException.class,
+                () -> SparseFields.validate(ProductDTO.class, List.of("id", "cost")));
+
+        assertEquals("Unknown fields [cost], expected any of [id, name, description, category, price, quantity, discount, effectivePrice]", ex.getMessage());
+    }
+
+    @Test
+    void acceptsReadOnlyProperties() {
+        assertEquals(List.of("name", "effectivePrice"), SparseFields.validate(ProductDTO.class, List.of("name", "effectivePrice")));
+    }
+
+    @Test
+    void rejectsWriteOnlyFields() {
+        assertThrows(InvalidFieldsException.class, () -> SparseFields.validate(UserDTO.class, List.of("email", "password")));
+    }
+}
@@ -0,0 +1,45 @@
+package com.store.application.utils.ids;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidV7GeneratorTest {
+
+    @Test
+    void encodesVersionVariantAndMillis() {
+        Instant instant = Instant.parse("2024-05-01T10:15:30.123456789Z");
+
+        UUID id = UuidV7Generator.at(instant, -1L);
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(instant.toEpochMilli(), id.getMostSignificantBits() >>> 16);
+        assertEquals(456_789L * 4096 / 1_000_000, id.getMostSignificantBits() & 0xFFF);
+    }
+
+    @Test
+    void ordersByTimeRegardlessOfRandomBits() {
+        Instant instant = Instant.parse("2024-05-01T10:15:30.123Z");
+
+        UUID first = UuidV7Generator.at(instant, -1L);
+        UUID sameMilli = UuidV7Generator.at(instant.plusNanos(500_000), 0L);
+        UUID nextMilli = UuidV7Generator.at(instant.plusMillis(1), 0L);
+
+        // PostgreSQL compares uuids as unsigned bytes, the same order as the unsigned most significant bits here
+        assertTrue(Long.compareUnsigned(first.getMostSignificantBits(), sameMilli.getMostSignificantBits()) < 0);
+        assertTrue(Long.compareUnsigned(sameMilli.getMostSignificantBits(), nextMilli.getMostSignificantBits()) < 0);
+    }
+
+    @Test
+    void generatesVersion7Ids() {
+        UUID id = UuidV7Generator.next();
+
+        assertEquals(7, id.version());
+        assertTrue(Math.abs(System.currentTimeMillis() - (id.getMostSignificantBits() >>> 16)) < 60_000);
+    }
+}
@@ -0,0 +1,90 @@
+package com.store.application.utils.ids;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batched primary key inserts with random v4 ids versus {@link UuidV7Generator} ids, and the size of the resulting
+ * primary key index, which is printed after each trial. Needs a running PostgreSQL, by default the one from
+ * docker-compose; use {@code -Dbenchmark.jdbc-url}, {@code -Dbenchmark.username} and {@code -Dbenchmark.password}
+ * for another one. The difference grows once the index no longer fits in shared_buffers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class UuidV7InsertBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"v4", "v7"})
+    private String version;
+
+    private Connection connection;
+    private PreparedStatement insert;
+    private String table;
+
+    @Setup
+    public void setup() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.jdbc-url", "jdbc:postgresql://localhost:5432/mydatabase"),
+                System.getProperty("benchmark.username", "myuser"),
+                System.getProperty("benchmark.password", "secret"));
+        table = "uuid_benchmark_" + version;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists " + table);
+            statement.execute("create table " + table + " (id uuid primary key, payload varchar(64))");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement("insert into " + table + " (id, payload) values (?, ?)");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("select count(*), pg_relation_size('" + table + "_pkey') from " + table)) {
+            result.next();
+            long rows = result.getLong(1);
+            long indexBytes = result.getLong(2);
+            System.out.printf("%n%s: %d rows, primary key index %d kB, %.1f bytes per row%n",
+                    version, rows, indexBytes / 1024, (double) indexBytes / rows);
+            statement.execute("drop table " + table);
+        }
+        connection.close();
+    }
+
+    /** One batch of {@value #BATCH_SIZE} rows per operation. */
+    @Benchmark
+    public int[] insertBatch() throws SQLException {
+        boolean v7 = "v7".equals(version);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            insert.setObject(1, v7 ? UuidV7Generator.next() : UUID.randomUUID());
+            insert.setString(2, "product");
+            insert.addBatch();
+        }
+        int[] counts = insert.executeBatch();
+        connection.commit();
+        return counts;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(UuidV7InsertBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,73 @@
+package com.store.application.utils.jwt;
+
+import com.store.application.permission.Permission;
+import com.store.application.security.RbacRegistry;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request token handling cost in {@link JwtAuthenticationFilter}: renewing on every request
+ * versus renewing only once the token is past the renewal threshold.
+ * Run the main method (from the IDE, or with the test classpath) to print the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtRenewalBenchmark {
+
+    private JwtTokenUtil jwtTokenUtil;
+    private String token;
+
+    @Setup
+    public void setup() {
+        RbacRegistry rbacRegistry = new RbacRegistry(null, null);
+        rbacRegistry.load(List.of(), List.of(
+                Permission.builder().id(UUID.randomUUID()).name("READ_PERM").bit(0).build(),
+                Permission.builder().id(UUID.randomUUID()).name("WRITE_PERM").bit(1).build()));
+
+        jwtTokenUtil = new JwtTokenUtil(rbacRegistry, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtTokenUtil, "secretKey", "8c9a239e21f7bb939f8b570ae81daa50028d6a3d3250111e2d4cd269c2ab54bb");
+        ReflectionTestUtils.setField(jwtTokenUtil, "jwtExpiration", 3600000L);
+        ReflectionTestUtils.setField(jwtTokenUtil, "renewalThreshold", 0.5);
+        jwtTokenUtil.init();
+
+        token = jwtTokenUtil.generateToken(new User("admin@admin.com", "", List.of(
+                new SimpleGrantedAuthority("ROLE_ADMIN"),
+                new SimpleGrantedAuthority("READ_PERM"),
+                new SimpleGrantedAuthority("WRITE_PERM"))));
+    }
+
+    @Benchmark
+    public String renewOnEveryRequest() {
+        Claims claims = jwtTokenUtil.extractAllClaims(token);
+        return jwtTokenUtil.refreshToken(claims);
+    }
+
+    @Benchmark
+    public Object renewPastThreshold() {
+        Claims claims = jwtTokenUtil.extractAllClaims(token);
+        return jwtTokenUtil.shouldRenew(claims) ? jwtTokenUtil.refreshToken(claims) : claims;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(JwtRenewalBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
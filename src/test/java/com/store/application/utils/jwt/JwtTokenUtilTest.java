@@ -0,0 +1,63 @@
+package com.store.application.utils.jwt;
+
+import com.store.application.security.CustomUserDetails;
+import com.store.application.security.RbacRegistry;
+import com.store.application.user.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtTokenUtilTest {
+
+    private JwtTokenUtil jwtTokenUtil;
+
+    @BeforeEach
+    void setUp() {
+        RbacRegistry rbacRegistry = new RbacRegistry(null, null);
+        rbacRegistry.load(List.of(), List.of());
+
+        jwtTokenUtil = new JwtTokenUtil(rbacRegistry, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtTokenUtil, "secretKey", "8c9a239e21f7bb939f8b570ae81daa50028d6a3d3250111e2d4cd269c2ab54bb");
+        ReflectionTestUtils.setField(jwtTokenUtil, "jwtExpiration", 3600000L);
+        ReflectionTestUtils.setField(jwtTokenUtil, "renewalThreshold", 0.5);
+        jwtTokenUtil.init();
+    }
+
+    @Test
+    void tokenOfCurrentVersionIsValid() {
+        String token = jwtTokenUtil.generateToken(userDetails(2, true));
+
+        assertTrue(jwtTokenUtil.isTokenValid(token, userDetails(2, true)));
+    }
+
+    @Test
+    void tokenOfOlderVersionIsRejected() {
+        String token = jwtTokenUtil.generateToken(userDetails(2, true));
+
+        assertFalse(jwtTokenUtil.isTokenValid(token, userDetails(3, true)));
+    }
+
+    @Test
+    void tokenOfDisabledUserIsRejected() {
+        String token = jwtTokenUtil.generateToken(userDetails(2, true));
+
+        assertFalse(jwtTokenUtil.isTokenValid(token, userDetails(2, false)));
+    }
+
+    private static CustomUserDetails userDetails(int tokenVersion, boolean enabled) {
+        User user = User.builder()
+                .email("user@store.com")
+                .password("")
+                .enabled(enabled)
+                .tokenVersion(tokenVersion)
+                .build();
+        return new CustomUserDetails(user, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    }
+}
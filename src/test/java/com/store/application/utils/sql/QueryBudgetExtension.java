@@ -0,0 +1,29 @@
+package com.store.application.utils.sql;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.opentest4j.AssertionFailedError;
+
+public class QueryBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(QueryBudgetExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(), SqlStatementCounter.open());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        SqlStatementCounter.Scope scope = context.getStore(NAMESPACE).remove(context.getUniqueId(), SqlStatementCounter.Scope.class);
+        scope.close();
+        context.getTestMethod()
+                .map(method -> method.getAnnotation(QueryBudget.class))
+                .ifPresent(budget -> {
+                    if (scope.getCount() > budget.value()) {
+                        throw new AssertionFailedError(String.format("%s issued %d SQL statements, the budget is %d",
+                                context.getDisplayName(), scope.getCount(), budget.value()), budget.value(), scope.getCount());
+                    }
+                });
+    }
+}
@@ -0,0 +1,80 @@
+package com.store.application.utils.sql;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReadWriteRoutingDataSourceTest {
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+    private final ReplicaLagMonitor lagMonitor = mock(ReplicaLagMonitor.class);
+    private final AtomicLong clock = new AtomicLong();
+    private ReadWriteRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        DataSource primary = mock(DataSource.class);
+        DataSource replica = mock(DataSource.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        when(lagMonitor.isUsable()).thenReturn(true);
+        routing = new ReadWriteRoutingDataSource(primary, replica,
+                new ReadYourWritesTracker(Duration.ofSeconds(5), clock::get), lagMonitor, new SimpleMeterRegistry());
+        routing.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() throws Exception {
+        assertSame(primaryConnection, routing.getConnection());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(replicaConnection, routing.getConnection());
+    }
+
+    @Test
+    void readsStayOnThePrimaryWhileTheReplicaLags() throws Exception {
+        when(lagMonitor.isUsable()).thenReturn(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primaryConnection, routing.getConnection());
+    }
+
+    @Test
+    void readsFollowTheUsersOwnWritesForAWindow() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("writer@store.com", null, List.of()));
+        TransactionSynchronizationManager.initSynchronization();
+        routing.getConnection();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(primaryConnection, routing.getConnection());
+
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertSame(replicaConnection, routing.getConnection());
+    }
+}
@@ -0,0 +1,29 @@
+package com.store.application.utils.sql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SlowQueryRecorderTest {
+    private static final String ANALYZE = "explain (analyze, buffers) ";
+    private static final String PLAIN = "explain ";
+
+    @Test
+    void analyzesTableReadsInsideATransaction() {
+        assertEquals(ANALYZE, SlowQueryRecorder.explainPrefix("select p1_0.id,p1_0.name from products p1_0 where p1_0.category=?", false));
+    }
+
+    @Test
+    void onlyPlansStatementsWithSideEffects() {
+        assertEquals(PLAIN, SlowQueryRecorder.explainPrefix("select p1_0.id from products p1_0 where p1_0.id=? for update", false));
+        assertEquals(PLAIN, SlowQueryRecorder.explainPrefix("select id from products where id = ? for no key update skip locked", false));
+        assertEquals(PLAIN, SlowQueryRecorder.explainPrefix("select pg_advisory_xact_lock(7236824)", false));
+        assertEquals(PLAIN, SlowQueryRecorder.explainPrefix("select pg_try_advisory_lock(?)", false));
+        assertEquals(PLAIN, SlowQueryRecorder.explainPrefix("select nextval('change_seq')", false));
+    }
+
+    @Test
+    void onlyPlansOutsideATransaction() {
+        assertEquals(PLAIN, SlowQueryRecorder.explainPrefix("select p1_0.id from products p1_0", true));
+    }
+}
@@ -0,0 +1,51 @@
+package com.store.application.utils.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlParametersTest {
+    private static final Set<SqlParameters.RedactedColumn> REDACTED = Set.of(SqlParameters.RedactedColumn.parse("users.password"));
+
+    @Test
+    void redactsInsertedColumns() throws Exception {
+        String sql = "insert into users (created_at,email,enabled,password,token_version,updated_at,username,id) values (?,?,?,?,?,?,?,?)";
+
+        List<String> rendered = SqlParameters.render(sql, bindings("2024-01-01", "a@b.com", true, "$2a$10$hash", 0, "2024-01-01", "a", "id"), REDACTED);
+
+        assertEquals(List.of("2024-01-01", "a@b.com", "true", SqlParameters.REDACTED, "0", "2024-01-01", "a", "id"), rendered);
+    }
+
+    @Test
+    void redactsComparedColumns() throws Exception {
+        String sql = "update users set password=? where email=? and password=?";
+
+        assertEquals(List.of(SqlParameters.REDACTED, "a@b.com", SqlParameters.REDACTED),
+                SqlParameters.render(sql, bindings("new", "a@b.com", "old"), REDACTED));
+    }
+
+    @Test
+    void followsInListsAndLeavesOtherTablesAlone() throws Exception {
+        String users = "select u1_0.id from users u1_0 where u1_0.username in (?,?) and u1_0.created_at between ? and ? offset ? rows fetch first ? rows only";
+        String products = "select p1_0.id from products p1_0 where p1_0.price between ? and ?";
+
+        assertEquals(List.of("a", "b", "x", "y", "0", "20"), SqlParameters.render(users, bindings("a", "b", "x", "y", 0, 20), REDACTED));
+        assertEquals(List.of("1.5", "9"), SqlParameters.render(products, bindings(1.5, 9), REDACTED));
+    }
+
+    private static Map<Integer, SqlParameters.Binding> bindings(Object... values) throws Exception {
+        Method setObject = PreparedStatement.class.getMethod("setObject", int.class, Object.class);
+        Map<Integer, SqlParameters.Binding> bindings = new TreeMap<>();
+        for (int i = 0; i < values.length; i++) {
+            bindings.put(i + 1, new SqlParameters.Binding(setObject, new Object[]{i + 1, values[i]}));
+        }
+        return bindings;
+    }
+}
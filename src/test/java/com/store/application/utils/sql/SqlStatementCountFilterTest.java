@@ -0,0 +1,49 @@
+package com.store.application.utils.sql;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SqlStatementCountFilterTest {
+    private final SqlStatementCounter counter = new SqlStatementCounter();
+    private final SqlStatementCountFilter filter = new SqlStatementCountFilter(new SimpleMeterRegistry(), true, 20);
+
+    @Test
+    void addsCountHeaderBeforeTheBody() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            counter.inspect("select 1");
+            counter.inspect("select 2");
+            res.getWriter().write("[]");
+        });
+
+        assertEquals("2", response.getHeader(SqlStatementCountFilter.HEADER));
+        assertEquals("[]", response.getContentAsString());
+    }
+
+    @Test
+    void streamsBodyWrittenAfterTheRequestWentAsync() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products/stream");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        StringBuilder sentBeforeReturn = new StringBuilder();
+
+        filter.doFilter(request, response, (req, res) -> {
+            req.startAsync(req, res);
+            res.getOutputStream().write("event: RESET\n\n".getBytes());
+            res.flushBuffer();
+            sentBeforeReturn.append(response.getContentAsString());
+        });
+
+        assertEquals("event: RESET\n\n", sentBeforeReturn.toString());
+        assertEquals("event: RESET\n\n", response.getContentAsString());
+        assertNull(response.getHeader(SqlStatementCountFilter.HEADER));
+    }
+}
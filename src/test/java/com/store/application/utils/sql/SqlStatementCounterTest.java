@@ -0,0 +1,30 @@
+package com.store.application.utils.sql;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlStatementCounterTest {
+    private final SqlStatementCounter counter = new SqlStatementCounter();
+
+    @Test
+    void nestedScopesAddUpToTheOuterScope() {
+        try (SqlStatementCounter.Scope outer = SqlStatementCounter.open()) {
+            counter.inspect("select 1");
+            try (SqlStatementCounter.Scope inner = SqlStatementCounter.open()) {
+                counter.inspect("select 2");
+                counter.inspect("select 3");
+                assertEquals(2, inner.getCount());
+            }
+            assertEquals(3, outer.getCount());
+        }
+    }
+
+    @Test
+    void ignoresStatementsOutsideAScope() {
+        counter.inspect("select 1");
+        try (SqlStatementCounter.Scope scope = SqlStatementCounter.open()) {
+            assertEquals(0, scope.getCount());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.store.application.utils.timing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void expiresEveryTimerWithinOneTickAfterItsDeadline() {
+        long start = 1_700_000_000_123L;
+        TimingWheel<Long> wheel = new TimingWheel<>(10, 8, start);
+        Random random = new Random(42);
+        Map<Long, Long> deadlines = new HashMap<>();
+        for (long i = 0; i < 10_000; i++) {
+            // spans several levels, some already due
+            long deadline = start - 50 + random.nextInt(200_000);
+            deadlines.put(i, deadline);
+            wheel.add(i, deadline);
+        }
+
+        for (long now = start; now <= start + 200_010; now += 1 + random.nextInt(15)) {
+            for (Long item : wheel.advance(now)) {
+                long deadline = deadlines.remove(item);
+                assertTrue(deadline <= now, "expired early");
+                // timers expire at the end of their tick, seen by the first advance after it
+                assertTrue(now - Math.max(deadline, start) < 10 + 15, "expired late");
+            }
+        }
+        assertTrue(deadlines.isEmpty());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void skipsCancelledTimers() {
+        TimingWheel<String> wheel = new TimingWheel<>(1_000, 4, 0);
+        TimingWheel.Timeout<String> cancelled = wheel.add("cancelled", 5_000);
+        wheel.add("kept", 60_000);
+
+        cancelled.cancel();
+
+        assertEquals(List.of(), wheel.advance(59_000));
+        assertEquals(List.of("kept"), wheel.advance(61_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void returnsExpiredTimersByDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(1_000, 4, 0);
+        wheel.add("third", 90_000);
+        wheel.add("first", 3_500);
+        wheel.add("second", 20_000);
+
+        assertEquals(List.of("first", "second", "third"), wheel.advance(100_000));
+    }
+
+    @Test
+    void returnsOverdueTimersOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(1_000, 4, 10_000);
+
+        wheel.add("overdue", 2_000);
+
+        assertEquals(List.of("overdue"), wheel.advance(10_000));
+    }
+}